@@ -0,0 +1,80 @@
+package com.scaler.productservice.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class BenchmarkData {
+
+    // Test data shared by the benchmarks, shaped like the FakeStore catalog
+
+    public static final int CATALOG_SIZE = 10_000;
+
+    private static final String[] CATEGORIES = {"electronics", "jewelery", "men's clothing", "women's clothing"};
+
+    private BenchmarkData() {
+    }
+
+    // Configured like the ObjectMapper Spring Boot gives the controllers
+    // (spring.jackson.default-property-inclusion=non_null)
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().serializationInclusion(JsonInclude.Include.NON_NULL).build();
+    }
+
+    public static Product product(long id) {
+        Category category = new Category();
+        category.setId(id % CATEGORIES.length + 1);
+        category.setName(CATEGORIES[(int) (id % CATEGORIES.length)]);
+
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle("Fjallraven - Foldsack No. " + id + " Backpack, Fits 15 Laptops");
+        product.setPrice(109.95 + id);
+        product.setDescription("Your perfect pack for everyday use and walks in the forest. "
+                + "Stash your laptop (up to 15 inches) in the padded sleeve, your everyday");
+        product.setImageUrl("https://fakestoreapi.com/img/" + id + "_AC_SL1500_.jpg");
+        product.setCategory(category);
+        // the BaseModel fields are serialized too
+        Date now = new Date();
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+        product.setCreatedBy("benchmark");
+        product.setUpdatedBy("benchmark");
+        return product;
+    }
+
+    public static List<Product> catalog(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            products.add(product(id));
+        }
+        return products;
+    }
+
+    public static FakeStoreProductDto productDto(long id) {
+        FakeStoreProductDto dto = new FakeStoreProductDto();
+        dto.setId(id);
+        dto.setTitle("Fjallraven - Foldsack No. " + id + " Backpack, Fits 15 Laptops");
+        dto.setPrice(109.95 + id);
+        dto.setCategory(CATEGORIES[(int) (id % CATEGORIES.length)]);
+        dto.setDescription("Your perfect pack for everyday use and walks in the forest. "
+                + "Stash your laptop (up to 15 inches) in the padded sleeve, your everyday");
+        dto.setImage("https://fakestoreapi.com/img/" + id + "_AC_SL1500_.jpg");
+        return dto;
+    }
+
+    public static FakeStoreProductDto[] catalogDtos(int size) {
+        FakeStoreProductDto[] dtos = new FakeStoreProductDto[size];
+        for (int i = 0; i < size; i++) {
+            dtos[i] = productDto(i + 1);
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,58 @@
+package com.scaler.productservice.benchmarks;
+
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductPages;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.service.ProductService;
+
+import java.util.List;
+
+// Stands in for the real services: a fixed catalog in memory
+public class InMemoryProductService implements ProductService {
+    private final List<Product> catalog;
+
+    public InMemoryProductService(List<Product> catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+        if (id < 1 || id > catalog.size()) {
+            throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+        }
+        return catalog.get((int) (id - 1));
+    }
+
+    @Override
+    public Product addProduct(Product product) {
+        return product;
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return catalog;
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        return ProductPages.slice(catalog, sortField, cursor, size);
+    }
+
+    @Override
+    public Product updateProduct(Long id, Product product) {
+        return product;
+    }
+
+    @Override
+    public Product replaceProduct(Long id, Product product) {
+        return product;
+    }
+
+    @Override
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        return getSingleProduct(id);
+    }
+}
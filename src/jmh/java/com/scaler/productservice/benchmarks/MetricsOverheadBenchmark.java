@@ -0,0 +1,97 @@
+package com.scaler.productservice.benchmarks;
+
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.metrics.ProductServiceMetricsAspect;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.ProductService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    /*
+    What ProductServiceMetricsAspect adds to every ProductService call.
+    The service answers from memory in a few nanoseconds, so the difference
+    between the variants is the cost of the proxy and the timer:
+    - direct: no proxy at all
+    - proxyOnly: a Spring AOP proxy with an aspect that does nothing
+    - timed: the real aspect, recording into a Prometheus registry with
+      percentile histograms, as configured in application.properties
+    Compare the times (and gc.alloc.rate.norm) against the milliseconds a
+    database query or an upstream call takes.
+     */
+
+    private ProductService direct;
+    private ProductService proxyOnly;
+    private ProductService timed;
+
+    @Setup
+    public void setUp() {
+        direct = new InMemoryProductService(BenchmarkData.catalog(100));
+        proxyOnly = proxy(new PassThroughAspect());
+
+        MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        timed = proxy(new ProductServiceMetricsAspect(registry));
+    }
+
+    private ProductService proxy(Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new InMemoryProductService(BenchmarkData.catalog(100)));
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Benchmark
+    public Product direct() throws ProductDoesNotExistException {
+        return direct.getSingleProduct(42L);
+    }
+
+    @Benchmark
+    public Product proxyOnly() throws ProductDoesNotExistException {
+        return proxyOnly.getSingleProduct(42L);
+    }
+
+    @Benchmark
+    public Product timed() throws ProductDoesNotExistException {
+        return timed.getSingleProduct(42L);
+    }
+
+    @Aspect
+    public static class PassThroughAspect {
+        @Around("execution(* com.scaler.productservice.service.ProductService+.*(..))")
+        public Object proceed(ProceedingJoinPoint joinPoint) throws Throwable {
+            return joinPoint.proceed();
+        }
+    }
+}
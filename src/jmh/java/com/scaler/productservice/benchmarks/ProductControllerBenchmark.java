@@ -0,0 +1,81 @@
+package com.scaler.productservice.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.config.PaginationProperties;
+import com.scaler.productservice.config.ProductBackendProperties;
+import com.scaler.productservice.controlleradvices.ExceptionHandlers;
+import com.scaler.productservice.controllers.ProductController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductControllerBenchmark {
+
+    /*
+    A whole request through Spring MVC: handler mapping, argument binding,
+    ProductController and JSON serialization of the response. The service
+    answers from memory, so what we measure is our web layer, not the
+    database or the FakeStore API.
+     */
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = BenchmarkData.objectMapper();
+        ProductBackendProperties backendProperties = new ProductBackendProperties();
+        backendProperties.setProductService("inMemoryProductService");
+        ProductController controller = new ProductController(
+                Map.of("inMemoryProductService", new InMemoryProductService(BenchmarkData.catalog(1_000))),
+                backendProperties, objectMapper, new PaginationProperties(),
+                // only /products/filter uses the snapshot, which is not benchmarked here
+                null);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ExceptionHandlers())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Benchmark
+    public String getSingleProduct() throws Exception {
+        return mockMvc.perform(get("/products/42")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getProductPage() throws Exception {
+        return mockMvc.perform(get("/products").param("sort", "price").param("size", "20"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getProductBatch() throws Exception {
+        return mockMvc.perform(get("/products").param("ids", "1,2,3,4,5,6,7,8,9,10,-1"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getMissingProduct() throws Exception {
+        return mockMvc.perform(get("/products/-1")).andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.scaler.productservice.benchmarks;
+
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.CategoryDictionary;
+import com.scaler.productservice.service.FakeStoreProductConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductConversionBenchmark {
+
+    // DTO <-> entity conversion of FakeStoreProductConverter, done for every
+    // product that goes to or comes from the FakeStore API
+
+    private FakeStoreProductConverter service;
+    private FakeStoreProductDto dto;
+    private Product product;
+    private FakeStoreProductDto[] catalogDtos;
+
+    @Setup
+    public void setUp() {
+        service = new FakeStoreProductConverter(new CategoryDictionary());
+        dto = BenchmarkData.productDto(1);
+        product = BenchmarkData.product(1);
+        catalogDtos = BenchmarkData.catalogDtos(BenchmarkData.CATALOG_SIZE);
+    }
+
+    @Benchmark
+    public Product dtoToProduct() {
+        return service.convertProductDtoToProduct(dto);
+    }
+
+    @Benchmark
+    public FakeStoreProductDto productToDto() {
+        return service.convertProductToProductDto(product);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void catalogDtosToProducts(Blackhole blackhole) {
+        for (FakeStoreProductDto catalogDto : catalogDtos) {
+            blackhole.consume(service.convertProductDtoToProduct(catalogDto));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.scaler.productservice.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.scaler.productservice.config.BinaryFormatConfiguration;
+import com.scaler.productservice.models.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductEncodingBenchmark {
+
+    /*
+    CPU per format for the 10k product catalog: the time to encode it (what
+    /products/stream spends per response), to encode and gzip it (what the
+    response costs with server.compression) and to decode it (what a client
+    spends). The sizes are printed once in setUp, the bytes on the wire through
+    Tomcat are reported by ContentNegotiationTests.
+     */
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectWriter catalogWriter;
+    private ObjectReader catalogReader;
+    private List<Product> catalog;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "smile" -> BenchmarkData.objectMapper().copyWith(BinaryFormatConfiguration.smileFactory());
+            case "cbor" -> BenchmarkData.objectMapper().copyWith(BinaryFormatConfiguration.cborFactory());
+            default -> BenchmarkData.objectMapper();
+        };
+        catalogWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        catalogReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+
+        catalog = BenchmarkData.catalog(BenchmarkData.CATALOG_SIZE);
+        encoded = catalogWriter.writeValueAsBytes(catalog);
+        System.out.printf("%n%s: %,d bytes, gzip %,d bytes%n", format, encoded.length, encodeGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return catalogWriter.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] encodeGzipped() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            catalogWriter.writeValue(gzip, catalog);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Product> decode() throws IOException {
+        return catalogReader.readValue(encoded);
+    }
+}
@@ -0,0 +1,94 @@
+package com.scaler.productservice.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.models.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductJsonBenchmark {
+
+    /*
+    Jackson (de)serialization of Product (with its BaseModel fields and category)
+    as our controllers write it, and of FakeStoreProductDto as the FakeStore
+    responses are read. Single products and a whole 10k catalog.
+    Readers and writers are created once, like Spring's message converters do.
+     */
+
+    private ObjectWriter productWriter;
+    private ObjectWriter catalogWriter;
+    private ObjectReader productReader;
+    private ObjectReader catalogReader;
+    private ObjectReader dtoCatalogReader;
+
+    private Product product;
+    private List<Product> catalog;
+    private byte[] productJson;
+    private byte[] catalogJson;
+    private byte[] dtoCatalogJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkData.objectMapper();
+        productWriter = objectMapper.writerFor(Product.class);
+        catalogWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        productReader = objectMapper.readerFor(Product.class);
+        catalogReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        dtoCatalogReader = objectMapper.readerFor(FakeStoreProductDto[].class);
+
+        product = BenchmarkData.product(1);
+        catalog = BenchmarkData.catalog(BenchmarkData.CATALOG_SIZE);
+        productJson = productWriter.writeValueAsBytes(product);
+        catalogJson = catalogWriter.writeValueAsBytes(catalog);
+        dtoCatalogJson = objectMapper.writeValueAsBytes(BenchmarkData.catalogDtos(BenchmarkData.CATALOG_SIZE));
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product deserializeProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] serializeCatalog() throws IOException {
+        return catalogWriter.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Product> deserializeCatalog() throws IOException {
+        return catalogReader.readValue(catalogJson);
+    }
+
+    // What FakeStoreProductService.getAllProducts() reads from the upstream
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FakeStoreProductDto[] deserializeFakeStoreCatalog() throws IOException {
+        return dtoCatalogReader.readValue(dtoCatalogJson);
+    }
+}
@@ -0,0 +1,188 @@
+package com.scaler.productservice.client;
+
+import com.scaler.productservice.config.UpstreamClientProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+
+public class UpstreamHttpClientFactory {
+
+    /*
+    Builds the RestTemplate used for calls to the FakeStore API.
+    The default RestTemplate opens a new HttpURLConnection for every call and
+    has no timeouts at all, so a single slow response can hold a Tomcat worker
+    forever. Here we plug in:
+    1. Apache HttpClient 5 with a pooled, keep-alive connection manager
+    2. connect/read timeouts, with per host (route) overrides
+    3. a Resilience4j bulkhead that caps the number of calls in flight
+    4. a Resilience4j circuit breaker that fails fast while the upstream is down
+    It also builds the WebClient used by WebClientProductService, with the same
+    pool size, timeouts (including the route overrides), bulkhead and circuit
+    breaker on top of Reactor Netty.
+    The class has no Spring annotations, so tests can build the exact same
+    client and point it at a local stub server.
+     */
+
+    public static final String UPSTREAM_NAME = "fakestore";
+
+    private UpstreamHttpClientFactory() {
+    }
+
+    public static RestTemplate createRestTemplate(RestTemplateBuilder builder,
+                                                  UpstreamClientProperties properties) {
+        return createRestTemplate(builder, properties,
+                createPoolingConnectionManager(properties),
+                createCircuitBreaker(properties),
+                createBulkhead(properties));
+    }
+
+    public static RestTemplate createRestTemplate(RestTemplateBuilder builder,
+                                                  UpstreamClientProperties properties,
+                                                  PoolingHttpClientConnectionManager connectionManager,
+                                                  CircuitBreaker circuitBreaker,
+                                                  Bulkhead bulkhead) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(toTimeValue(properties.getIdleConnectionTimeout()))
+                .build();
+
+        // We do not call setReadTimeout() on the factory: that would override the
+        // per route socket timeout configured on the connection manager
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis());
+
+        return builder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(new UpstreamResilienceInterceptor(circuitBreaker, bulkhead))
+                .build();
+    }
+
+    public static PoolingHttpClientConnectionManager createPoolingConnectionManager(UpstreamClientProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .build();
+
+        // The resolver is asked for every new connection, so each host can have its own timeouts
+        connectionManager.setConnectionConfigResolver(route -> {
+            UpstreamClientProperties.Route overrides =
+                    properties.getRoutes().get(route.getTargetHost().getHostName());
+            return createConnectionConfig(properties, overrides);
+        });
+
+        return connectionManager;
+    }
+
+    private static ConnectionConfig createConnectionConfig(UpstreamClientProperties properties,
+                                                           UpstreamClientProperties.Route overrides) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(toTimeout(connectTimeout(properties, overrides)))
+                .setSocketTimeout(toTimeout(readTimeout(properties, overrides)))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+    }
+
+    // The route override if there is one, the default otherwise
+    private static Duration connectTimeout(UpstreamClientProperties properties,
+                                           UpstreamClientProperties.Route overrides) {
+        return overrides != null && overrides.getConnectTimeout() != null
+                ? overrides.getConnectTimeout() : properties.getConnectTimeout();
+    }
+
+    private static Duration readTimeout(UpstreamClientProperties properties,
+                                        UpstreamClientProperties.Route overrides) {
+        return overrides != null && overrides.getReadTimeout() != null
+                ? overrides.getReadTimeout() : properties.getReadTimeout();
+    }
+
+    public static WebClient createWebClient(WebClient.Builder builder,
+                                            UpstreamClientProperties properties,
+                                            String baseUrl) {
+        return createWebClient(builder, properties, baseUrl,
+                createCircuitBreaker(properties),
+                createBulkhead(properties));
+    }
+
+    public static WebClient createWebClient(WebClient.Builder builder,
+                                            UpstreamClientProperties properties,
+                                            String baseUrl,
+                                            CircuitBreaker circuitBreaker,
+                                            Bulkhead bulkhead) {
+        // A WebClient talks to a single base URL, so the route overrides of its host apply to every call
+        UpstreamClientProperties.Route overrides = properties.getRoutes().get(URI.create(baseUrl).getHost());
+
+        // One pool of keep-alive connections shared by all event-loop threads
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(UPSTREAM_NAME)
+                .maxConnections(properties.getMaxConnectionsTotal())
+                .pendingAcquireTimeout(properties.getConnectionRequestTimeout())
+                .maxIdleTime(properties.getIdleConnectionTimeout())
+                .build();
+
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient
+                .create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout(properties, overrides).toMillis())
+                .responseTimeout(readTimeout(properties, overrides));
+
+        return builder
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(new UpstreamResilienceFilter(circuitBreaker, bulkhead))
+                .build();
+    }
+
+    public static CircuitBreaker createCircuitBreaker(UpstreamClientProperties properties) {
+        UpstreamClientProperties.CircuitBreaker settings = properties.getCircuitBreaker();
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(settings.getFailureRateThreshold())
+                .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(settings.getSlowCallDurationThreshold())
+                .slidingWindowSize(settings.getSlidingWindowSize())
+                .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(settings.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(settings.getPermittedCallsInHalfOpenState())
+                .build();
+        return CircuitBreaker.of(UPSTREAM_NAME, config);
+    }
+
+    public static Bulkhead createBulkhead(UpstreamClientProperties properties) {
+        UpstreamClientProperties.Bulkhead settings = properties.getBulkhead();
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(settings.getMaxConcurrentCalls())
+                .maxWaitDuration(settings.getMaxWaitDuration())
+                .build();
+        return Bulkhead.of(UPSTREAM_NAME, config);
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+}
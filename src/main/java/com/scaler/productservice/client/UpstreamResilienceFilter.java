@@ -0,0 +1,96 @@
+package com.scaler.productservice.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class UpstreamResilienceFilter implements ExchangeFilterFunction {
+
+    /*
+    The WebClient version of UpstreamResilienceInterceptor: every call goes
+    through the same bulkhead and circuit breaker as the RestTemplate calls
+    (the instances are shared, it is the same upstream). Nothing blocks:
+    a full bulkhead or an open circuit fails the Mono right away with
+    BulkheadFullException / CallNotPermittedException.
+    Either of them may be null when it is disabled in the properties.
+     */
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public UpstreamResilienceFilter(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        // defer: the permissions are taken per subscription, like the call itself
+        return Mono.defer(() -> {
+            if (bulkhead != null) {
+                bulkhead.acquirePermission();
+            }
+            try {
+                if (circuitBreaker != null) {
+                    circuitBreaker.acquirePermission();
+                }
+            } catch (RuntimeException exception) {
+                releaseBulkhead();
+                throw exception;
+            }
+
+            long start = System.nanoTime();
+            // the slot is given back exactly once, whichever way the call ends
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    releaseBulkhead();
+                }
+            };
+            return next.exchange(request)
+                    .doOnError(exception -> {
+                        onError(start, exception);
+                        release.run();
+                    })
+                    .doOnCancel(() -> {
+                        // cancelled before the response arrived, the call counts neither way
+                        if (circuitBreaker != null) {
+                            circuitBreaker.releasePermission();
+                        }
+                        release.run();
+                    })
+                    .map(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            onError(start, new IOException("Upstream responded with " + response.statusCode()));
+                        } else if (circuitBreaker != null) {
+                            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        // the body is read after we return, so the bulkhead slot is
+                        // only given back once it has been read (or released)
+                        return response.mutate()
+                                .body(body -> body.doFinally(signal -> release.run()))
+                                .build();
+                    });
+        });
+    }
+
+    private void onError(long start, Throwable throwable) {
+        if (circuitBreaker != null) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, throwable);
+        }
+    }
+
+    private void releaseBulkhead() {
+        if (bulkhead != null) {
+            bulkhead.onComplete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.scaler.productservice.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+public class UpstreamResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+    /*
+    Wraps every RestTemplate call in a bulkhead and a circuit breaker.
+    - Bulkhead: if too many calls are already in flight we throw
+      BulkheadFullException right away instead of queueing on the pool
+    - Circuit breaker: IO errors, 5xx responses and slow calls are recorded;
+      once the failure rate is too high CallNotPermittedException is thrown
+      without touching the network until the upstream recovers
+    Both exceptions are turned into 503 responses by ExceptionHandlers.
+    Either of them may be null when it is disabled in the properties.
+     */
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public UpstreamResilienceInterceptor(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        if (bulkhead != null) {
+            bulkhead.acquirePermission();
+        }
+        try {
+            if (circuitBreaker != null) {
+                circuitBreaker.acquirePermission();
+            }
+        } catch (RuntimeException exception) {
+            releaseBulkhead();
+            throw exception;
+        }
+
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException exception) {
+            onError(start, exception);
+            releaseBulkhead();
+            throw exception;
+        }
+
+        if (response.getStatusCode().is5xxServerError()) {
+            onError(start, new IOException("Upstream responded with " + response.getStatusCode()));
+        } else if (circuitBreaker != null) {
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        // The body is read by RestTemplate after we return, so the bulkhead
+        // slot is only given back once the response has been closed
+        return new BulkheadReleasingResponse(response);
+    }
+
+    private void onError(long start, Throwable throwable) {
+        if (circuitBreaker != null) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, throwable);
+        }
+    }
+
+    private void releaseBulkhead() {
+        if (bulkhead != null) {
+            bulkhead.onComplete();
+        }
+    }
+
+    private class BulkheadReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private boolean released;
+
+        BulkheadReleasingResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    releaseBulkhead();
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,94 @@
 package com.scaler.productservice.config;
 
+import com.scaler.productservice.client.UpstreamHttpClientFactory;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
+// for background jobs such as DeletedProductPurger
+@EnableScheduling
 public class ApplicationConfiguration {
 
+    // The connection pool is a bean of its own so that Spring closes it on
+    // shutdown and so that other beans can look at its statistics
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager upstreamConnectionManager(UpstreamClientProperties properties) {
+        return UpstreamHttpClientFactory.createPoolingConnectionManager(properties);
+    }
+
+    // One circuit breaker and one bulkhead for the FakeStore API, shared by the
+    // RestTemplate and the WebClient: both talk to the same upstream. They are
+    // null (no bean) when they are disabled in the properties
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(UpstreamClientProperties properties) {
+        return UpstreamHttpClientFactory.createCircuitBreaker(properties);
+    }
+
+    @Bean
+    public Bulkhead upstreamBulkhead(UpstreamClientProperties properties) {
+        return UpstreamHttpClientFactory.createBulkhead(properties);
+    }
+
+    // Use the RestTemplateBuilder that Spring Boot configures for us instead of
+    // creating a new one, so its customizers (message converters etc.) are applied
+    @Bean
+    public RestTemplate createRestTemplate(RestTemplateBuilder builder,
+                                           UpstreamClientProperties properties,
+                                           PoolingHttpClientConnectionManager upstreamConnectionManager,
+                                           ObjectProvider<CircuitBreaker> upstreamCircuitBreaker,
+                                           ObjectProvider<Bulkhead> upstreamBulkhead) {
+        return UpstreamHttpClientFactory.createRestTemplate(builder, properties,
+                upstreamConnectionManager,
+                upstreamCircuitBreaker.getIfAvailable(),
+                upstreamBulkhead.getIfAvailable());
+    }
+
+    /*
+    Executor for upstream work that does not run on the request thread itself
+    (e.g. background cache refreshes). With spring.threads.virtual.enabled=true
+    every task gets its own virtual thread, otherwise we use a bounded pool of
+    platform threads that is as big as the upstream connection pool.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public TaskExecutor upstreamExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("upstream-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    @Bean(name = "upstreamExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public TaskExecutor upstreamPlatformExecutor(UpstreamClientProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getMaxConnectionsTotal());
+        executor.setMaxPoolSize(properties.getMaxConnectionsTotal());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("upstream-");
+        return executor;
+    }
+
+    // Non-blocking client for WebClientProductService
     @Bean
-    public RestTemplate createRestTemplate() {
-        return new RestTemplateBuilder().build();
+    public WebClient fakeStoreWebClient(WebClient.Builder builder, UpstreamClientProperties properties,
+                                        ObjectProvider<CircuitBreaker> upstreamCircuitBreaker,
+                                        ObjectProvider<Bulkhead> upstreamBulkhead) {
+        return UpstreamHttpClientFactory.createWebClient(builder, properties, properties.getBaseUrl(),
+                upstreamCircuitBreaker.getIfAvailable(),
+                upstreamBulkhead.getIfAvailable());
     }
 
 }
@@ -0,0 +1,81 @@
+package com.scaler.productservice.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+@Configuration
+public class BinaryFormatConfiguration {
+
+    /*
+    Every endpoint that returns an object (Product, ProductPage, ...) can also
+    answer in a binary encoding of the same document, chosen by the Accept header:
+    - application/x-jackson-smile: Smile, binary JSON. Field names and short
+      string values that repeat (the BaseModel fields of every product, the
+      category names) are written once and then referenced by a 1-2 byte index
+    - application/cbor: CBOR (RFC 8949), for clients that have no Smile decoder
+    Both are self-describing like JSON, so the documents follow the same
+    schema (static/schemas/product.schema.json) whatever the encoding.
+    The only difference: the binary mappers leave out fields that are null
+    (audit fields of FakeStore products, nextCursor on the last page, ...),
+    JSON writes them as null like it always did. Binary clients are new, so
+    they can take the smaller documents without breaking anyone.
+    Spring Boot picks up HttpMessageConverter beans and uses them in place
+    of the Smile/CBOR converters Spring MVC would register by itself, which
+    would not be configured by spring.jackson.*
+     */
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                // off by default: it costs a hash lookup per string value, but
+                // createdBy, updatedBy and the category names repeat in every item
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    public static CBORFactory cborFactory() {
+        return CBORFactory.builder().build();
+    }
+
+    // copyWith keeps everything Spring Boot configured on the JSON ObjectMapper
+    // (modules, date format, spring.jackson.* features), only the encoding and
+    // the null handling change
+    public static ObjectMapper smileMapper(ObjectMapper objectMapper) {
+        return leaveOutNulls(objectMapper.copyWith(smileFactory()));
+    }
+
+    public static ObjectMapper cborMapper(ObjectMapper objectMapper) {
+        return leaveOutNulls(objectMapper.copyWith(cborFactory()));
+    }
+
+    // For serializers that write fields by hand (sparse fieldsets)
+    public static boolean leavesOutNulls(SerializerProvider provider) {
+        return provider.getConfig().getDefaultPropertyInclusion().getValueInclusion() == JsonInclude.Include.NON_NULL;
+    }
+
+    private static ObjectMapper leaveOutNulls(ObjectMapper mapper) {
+        mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+        return mapper;
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(objectMapper));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(objectMapper));
+    }
+}
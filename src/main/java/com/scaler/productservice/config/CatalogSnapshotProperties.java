@@ -0,0 +1,26 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.snapshot")
+public class CatalogSnapshotProperties {
+    /*
+    The columnar catalog snapshot behind GET /products/filter, see
+    CatalogSnapshotService
+     */
+
+    // How often the snapshot is rebuilt, i.e. how stale a filtered listing can be
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    // Rows read from the database per query while building
+    private int readChunkSize = 10_000;
+
+    // Counting the matches of a range with more rows than this uses all CPUs
+    private int parallelScanThreshold = 100_000;
+}
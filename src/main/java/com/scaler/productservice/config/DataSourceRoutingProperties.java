@@ -0,0 +1,44 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.datasource")
+public class DataSourceRoutingProperties {
+    /*
+    Read replicas (see ReplicaRoutingDataSource). spring.datasource.* stays the
+    primary, every replica is listed like this:
+    productservice.datasource.routing-enabled=true
+    productservice.datasource.replicas[0].url=jdbc:mysql://replica-1:3306/productservice
+    productservice.datasource.replicas[0].username=productservice
+    productservice.datasource.replicas[0].password=productservice
+     */
+    private boolean routingEnabled = false;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // After a client wrote something its reads go to the primary for this long,
+    // so it does not read an older state from a replica that is lagging behind
+    private Duration readYourWritesWindow = Duration.ofSeconds(2);
+
+    // How often the replicas are checked, and how long a check may take
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        // Connections per replica (HikariCP maximumPoolSize)
+        private int maxPoolSize = 10;
+    }
+}
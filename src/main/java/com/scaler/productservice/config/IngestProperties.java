@@ -0,0 +1,17 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.ingest")
+public class IngestProperties {
+    // Bulk ingest flushes and clears the persistence context after this many
+    // products, so memory does not grow with the size of the request.
+    // Inside a chunk Hibernate sends JDBC batches of hibernate.jdbc.batch_size
+    private int chunkSize = 500;
+    // Upper bound for the number of products in one bulk request
+    private int maxProductsPerRequest = 10_000;
+}
@@ -0,0 +1,19 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.pagination")
+public class PaginationProperties {
+    // Used when the client does not send ?size=
+    private int defaultPageSize = 20;
+    // Larger ?size= values are silently reduced to this
+    private int maxPageSize = 100;
+    // Most ids one GET /products?ids= request may ask for
+    private int maxBatchSize = 100;
+    // Products read per query while /products/stream walks the database
+    private int streamChunkSize = 500;
+}
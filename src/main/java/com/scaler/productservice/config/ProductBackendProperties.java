@@ -0,0 +1,16 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.backend")
+public class ProductBackendProperties {
+    // Bean name of the ProductService that ProductController uses, e.g.
+    // selfProductService, fakeStoreProductService, cachingProductService,
+    // writeBehindProductService or tieredProductService.
+    // Lets a load test compare the backends without changing code
+    private String productService = "coalescingProductService";
+}
@@ -0,0 +1,35 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.cache")
+public class ProductCacheProperties {
+    /*
+    These values control the read-through cache that sits in front of a
+    ProductService (see CachingProductService). They can be overridden in
+    application.properties, e.g. productservice.cache.maximum-size=5000
+     */
+
+    // Maximum number of single products kept in the cache, least recently
+    // used entries are evicted once this is reached
+    private long maximumSize = 10_000;
+
+    // An entry is thrown away after this long, no matter what
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    // After this long an entry is still served, but a reload is triggered
+    // in the background (stale-while-revalidate)
+    private Duration refreshAfterWrite = Duration.ofMinutes(1);
+
+    // How long we remember that an id does not exist upstream
+    private Duration negativeTtl = Duration.ofSeconds(30);
+
+    // How long the full catalog returned by getAllProducts() is kept
+    private Duration catalogTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,50 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.changes")
+public class ProductChangeProperties {
+    /*
+    The change feed (GET /products/changes and its SSE stream), see
+    ProductChangeLog and ProductChangeFeed
+     */
+
+    private int defaultPageSize = 100;
+    private int maxPageSize = 1000;
+
+    // Entries are given their seq by the sequencer thread, woken up by the
+    // commits. It also runs this often, for entries an instance left behind
+    // (see ProductChangeLog)
+    private Duration sequenceInterval = Duration.ofSeconds(1);
+
+    // Entries given their seq per transaction
+    private int sequenceBatchSize = 1000;
+
+    // Compaction: of the entries older than this only the newest one per
+    // product is kept (like a compacted Kafka topic)
+    private Duration compactAfter = Duration.ofHours(1);
+
+    // DELETED entries (tombstones) are removed after this long. A mirror that
+    // did not sync for longer has to start over from GET /products
+    private Duration tombstoneRetention = Duration.ofDays(7);
+
+    private Duration compactionInterval = Duration.ofMinutes(5);
+
+    // Entries removed per compaction transaction
+    private int compactionBatchSize = 1000;
+
+    // How often the SSE stream looks for new entries
+    private Duration streamPollInterval = Duration.ofMillis(500);
+
+    // An SSE connection is closed after this long, clients reconnect with Last-Event-ID
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    // A comment is sent on idle connections so proxies do not close them
+    private Duration streamHeartbeat = Duration.ofSeconds(15);
+}
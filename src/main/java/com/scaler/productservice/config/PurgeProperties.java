@@ -0,0 +1,35 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.purge")
+public class PurgeProperties {
+    /*
+    Background purge of soft-deleted products (see DeletedProductPurger).
+    Small batches in short transactions with a pause in between, so the purge
+    never holds locks for long and leaves the database to the requests
+     */
+    private boolean enabled = true;
+
+    // How often the purge runs
+    private Duration interval = Duration.ofMinutes(1);
+
+    // Deleted products are kept this long before they are removed for real
+    // (time to undo a mistake, and for replicas / exports to see the delete)
+    private Duration retention = Duration.ofHours(1);
+
+    // Rows removed per transaction
+    private int batchSize = 500;
+
+    // Pause after every batch (rate limit)
+    private Duration pauseBetweenBatches = Duration.ofMillis(50);
+
+    // A run stops after this many batches, the next run continues
+    private int maxBatchesPerRun = 100;
+}
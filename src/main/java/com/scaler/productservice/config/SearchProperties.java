@@ -0,0 +1,26 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.search")
+public class SearchProperties {
+    /*
+    The in-memory search index (GET /products/search), see ProductSearchIndex
+     */
+
+    private int defaultLimit = 10;
+    private int maxLimit = 100;
+
+    // The last word of a query is matched as a prefix ("lapt" finds "laptop").
+    // A short prefix matches many terms, only this many of them are looked at
+    private int maxPrefixTerms = 200;
+
+    // Startup rebuild: products read per page, and the threads that index the
+    // pages while the next one is read (0 = one per CPU)
+    private int rebuildPageSize = 1000;
+    private int rebuildThreads = 0;
+}
@@ -0,0 +1,32 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.tiered")
+public class TieredProperties {
+    /*
+    The tiered backend (TieredProductService) and the upstream snapshot
+    that fills our database (UpstreamSnapshotSync)
+     */
+
+    // How often the whole upstream catalog is copied into the database
+    private Duration snapshotInterval = Duration.ofHours(1);
+
+    // Products imported per transaction during a snapshot
+    private int snapshotChunkSize = 500;
+
+    // Run a snapshot at startup when the database has no products yet
+    private boolean snapshotWhenEmpty = true;
+
+    // Products that get the most traffic. They are loaded at startup (and
+    // imported from upstream if they are missing), before we take requests
+    private List<Long> hotProductIds = new ArrayList<>();
+}
@@ -0,0 +1,86 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.upstream")
+public class UpstreamClientProperties {
+    /*
+    Settings of the HTTP client that FakeStoreProductService uses to talk
+    to the FakeStore API (see UpstreamHttpClientFactory).
+    Per host overrides go under productservice.upstream.routes[<host>].*, e.g.
+    productservice.upstream.routes[fakestoreapi.com].read-timeout=3s
+     */
+
+    // Where the FakeStore API lives. Point this at a local stub
+    // (e.g. http://localhost:9090) to test without network access
+    private String baseUrl = "https://fakestoreapi.com";
+
+    // Connection pool
+    private int maxConnectionsTotal = 100;
+    private int maxConnectionsPerRoute = 20;
+    // How long a request may wait for a free pooled connection
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+    // Idle keep-alive connections are closed after this long
+    private Duration idleConnectionTimeout = Duration.ofSeconds(30);
+
+    // Default timeouts, used for every host that has no entry in routes
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    private Map<String, Route> routes = new HashMap<>();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Bulkhead bulkhead = new Bulkhead();
+    private Batch batch = new Batch();
+
+    @Getter
+    @Setter
+    public static class Route {
+        // Anything left null falls back to the defaults above
+        private Duration connectTimeout;
+        private Duration readTimeout;
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        // Percentage of failed (or slow) calls that opens the circuit
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(3);
+        // Number of recent calls the failure rate is computed over
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        // How long the circuit stays open before letting trial calls through
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        private boolean enabled = true;
+        // Upper bound of upstream calls in flight at the same time
+        private int maxConcurrentCalls = 25;
+        // How long a call may wait for a free slot before it is rejected
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        // How many upstream calls one batch read (GET /products?ids=) runs in parallel
+        private int maxConcurrency = 8;
+        // The whole batch answers within this time, ids that are not done by then are reported as failed
+        private Duration deadline = Duration.ofSeconds(3);
+    }
+}
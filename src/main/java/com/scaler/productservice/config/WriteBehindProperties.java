@@ -0,0 +1,40 @@
+package com.scaler.productservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "productservice.write-behind")
+public class WriteBehindProperties {
+    /*
+    Write-behind mode (see WriteBehindProductService). It is off by default,
+    to use it set productservice.write-behind.enabled=true and
+    productservice.backend.product-service=writeBehindProductService
+     */
+    private boolean enabled = false;
+
+    // Maximum number of products with a write waiting in the queue. Writes to
+    // a product that is already waiting replace it and need no new place
+    private int capacity = 10_000;
+
+    // A flush starts as soon as this many products are waiting...
+    private int batchSize = 500;
+
+    // ...or at the latest after this long
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    // After a failed flush the next one waits flushInterval, then twice as
+    // long after every further failure, but never longer than this
+    private Duration maxRetryBackoff = Duration.ofSeconds(30);
+
+    // Backpressure: when the queue is full a write waits this long for a
+    // flush to make room, then it is rejected with 503
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    // On shutdown the queue is flushed, but we give up after this long
+    private Duration drainTimeout = Duration.ofSeconds(30);
+}
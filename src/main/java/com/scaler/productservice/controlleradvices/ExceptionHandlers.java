@@ -1,11 +1,22 @@
 package com.scaler.productservice.controlleradvices;
 
 import com.scaler.productservice.dtos.ExceptionDto;
+import com.scaler.productservice.exceptions.BatchTooLargeException;
+import com.scaler.productservice.exceptions.BulkIngestTooLargeException;
+import com.scaler.productservice.exceptions.InvalidFieldsException;
+import com.scaler.productservice.exceptions.InvalidPageRequestException;
 import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.exceptions.ProductVersionMismatchException;
+import com.scaler.productservice.exceptions.WriteQueueFullException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 
 
 @ControllerAdvice
@@ -44,6 +55,92 @@ public class ExceptionHandlers {
 //
 //    }
 
+    /*
+    * Bad paging parameters (an unknown sort field or a cursor that was tampered
+    * with or belongs to a different sort) are the client's fault: 400
+     */
+    @ExceptionHandler(value = {InvalidPageRequestException.class})
+    public ResponseEntity<ExceptionDto> handleInvalidPageRequestException(InvalidPageRequestException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.BAD_REQUEST);
+    }
+
+    /*
+    * ?fields= named a field that products do not have: 400
+     */
+    @ExceptionHandler(value = {InvalidFieldsException.class})
+    public ResponseEntity<ExceptionDto> handleInvalidFieldsException(InvalidFieldsException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.BAD_REQUEST);
+    }
+
+    /*
+    * GET /products?ids= asked for more ids than productservice.pagination.max-batch-size.
+    * The client has to split its request: 400
+     */
+    @ExceptionHandler(value = {BatchTooLargeException.class})
+    public ResponseEntity<ExceptionDto> handleBatchTooLargeException(BatchTooLargeException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(value = {BulkIngestTooLargeException.class})
+    public ResponseEntity<ExceptionDto> handleBulkIngestTooLargeException(BulkIngestTooLargeException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /*
+    * A conditional write (If-Match or a version in the body) found the product at
+    * another version, or a concurrent update won the race (optimistic locking).
+    * The client has to read the product again before changing it: 412
+     */
+    @ExceptionHandler(value = {ProductVersionMismatchException.class, ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<ExceptionDto> handleProductVersionMismatchException(RuntimeException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage("Product has been changed by someone else, read it again");
+        exceptionDto.setDetails(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /*
+    * The upstream (FakeStore) client fails fast when its circuit breaker is open,
+    * when too many calls are already in flight (bulkhead) or when a call timed out
+    * (ResourceAccessException from RestTemplate, WebClientRequestException from WebClient).
+    * In all these cases the client should retry later, so we answer with 503
+     */
+    @ExceptionHandler(value = {CallNotPermittedException.class, BulkheadFullException.class,
+            ResourceAccessException.class, WebClientRequestException.class})
+    public ResponseEntity<ExceptionDto> handleUpstreamUnavailableException(RuntimeException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage("Product catalog is temporarily unavailable");
+        exceptionDto.setDetails(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /*
+    * Write-behind mode: the queue of writes waiting to be flushed stayed full
+    * for too long (backpressure). The write was not accepted, retry later: 503
+     */
+    @ExceptionHandler(value = {WriteQueueFullException.class})
+    public ResponseEntity<ExceptionDto> handleWriteQueueFullException(WriteQueueFullException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto();
+        exceptionDto.setMessage("Too many writes right now, try again later");
+        exceptionDto.setDetails(exception.getMessage());
+
+        return new ResponseEntity<>(exceptionDto, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(value = {ArithmeticException.class})
     public ResponseEntity<Void> handleArithmeticException() {
         return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,47 @@
+package com.scaler.productservice.controllers;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.scaler.productservice.dtos.CacheStatsDto;
+import com.scaler.productservice.service.CachingProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    // This controller only reports the counters of the product cache,
+    // so that we can decide how big the cache should be
+
+    private CachingProductService cachingProductService;
+
+    @Autowired
+    public CacheController(CachingProductService cachingProductServiceObj) {
+        this.cachingProductService = cachingProductServiceObj;
+    }
+
+    @GetMapping("/stats")
+    public List<CacheStatsDto> getCacheStats() {
+        return List.of(
+                convertToDto("products", cachingProductService.getProductCacheSize(),
+                        cachingProductService.getProductCacheStats()),
+                convertToDto("catalog", cachingProductService.getCatalogCacheSize(),
+                        cachingProductService.getCatalogCacheStats())
+        );
+    }
+
+    private CacheStatsDto convertToDto(String name, long size, CacheStats stats) {
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.setName(name);
+        dto.setSize(size);
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setEvictionCount(stats.evictionCount());
+        dto.setHitRate(stats.hitRate());
+        return dto;
+    }
+}
@@ -0,0 +1,73 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.config.ProductChangeProperties;
+import com.scaler.productservice.dtos.ProductChangePage;
+import com.scaler.productservice.service.ProductChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/products/changes")
+public class ProductChangeController {
+
+    /*
+    Delta sync for services that keep a copy of our catalog. Instead of
+    downloading GET /products again and again they:
+    1. remember latestSeq from GET /products/changes, then copy the catalog once
+       with GET /products (or /products/stream)
+    2. from then on ask for GET /products/changes?since=<nextSince of the last call>,
+       or keep GET /products/changes/stream open to get the changes as they happen
+    Every change carries the current product (null once it is deleted).
+    The log is compacted (see ProductChangeLog): deletes older than the
+    tombstone retention are removed. Every page carries oldestSeq, the seq the
+    log is complete after. A since below it is answered with 410 Gone (and a
+    page with resyncRequired, latestSeq and no changes), the stream with a
+    "resync" event: the mirror may have missed deletes, starting again at
+    since=1 would not bring them back either. It goes back to step 1 with the
+    latestSeq of that page. Without since (a new mirror, nothing to miss)
+    there is no 410.
+     */
+
+    private ProductChangeFeed changeFeed;
+    private ProductChangeProperties properties;
+
+    @Autowired
+    public ProductChangeController(ProductChangeFeed changeFeedObj, ProductChangeProperties propertiesObj) {
+        this.changeFeed = changeFeedObj;
+        this.properties = propertiesObj;
+    }
+
+    @GetMapping()
+    public ResponseEntity<ProductChangePage> getChanges(@RequestParam(value = "since", required = false) Long since,
+                                                        @RequestParam(value = "limit", required = false) Integer limit) {
+        ProductChangePage page = changeFeed.getChanges(since == null ? 0 : since, pageSize(limit));
+        if (page.isResyncRequired() && since != null) {
+            return ResponseEntity.status(HttpStatus.GONE).body(page);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    // Server-sent events. A client that reconnects sends the Last-Event-ID
+    // header (the seq of the last event it got) and continues from there
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(value = "since", required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since != null ? since : 0;
+        return changeFeed.subscribe(from);
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null) {
+            return properties.getDefaultPageSize();
+        }
+        return Math.max(1, Math.min(requested, properties.getMaxPageSize()));
+    }
+}
@@ -1,14 +1,45 @@
 package com.scaler.productservice.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.config.BinaryFormatConfiguration;
+import com.scaler.productservice.config.PaginationProperties;
+import com.scaler.productservice.config.ProductBackendProperties;
+import com.scaler.productservice.dtos.BulkIngestResponseDto;
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductFilterPage;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.SparseProduct;
+import com.scaler.productservice.dtos.SparseProductPage;
+import com.scaler.productservice.exceptions.BatchTooLargeException;
+import com.scaler.productservice.exceptions.InvalidPageRequestException;
 import com.scaler.productservice.exceptions.ProductDoesNotExistException;
 import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductFieldSet;
 import com.scaler.productservice.service.ProductService;
+import com.scaler.productservice.snapshot.CatalogSnapshot;
+import com.scaler.productservice.snapshot.CatalogSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/products")
@@ -17,25 +48,318 @@ public class ProductController {
     // The controller will have to call the Product service and for that
     // we need to create a reference of the service
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
     private ProductService productService;
+    private ObjectMapper objectMapper;
+    // same configuration as objectMapper, for the binary /stream responses
+    private ObjectMapper smileObjectMapper;
+    private ObjectMapper cborObjectMapper;
+    private PaginationProperties paginationProperties;
+    private CatalogSnapshotService catalogSnapshotService;
+    // the store the catalog snapshot is built from, see filterProducts()
+    private ProductService snapshotStore;
 
     // We will not create an object of the product service directly but,
     // instead we will create a constructor and pass the product service
-    // Object in it and use @Autowired annotation for this
+    // Object in it and use @Autowired annotation for this.
+    // Spring hands us all ProductService beans by name and we pick the one
+    // named in productservice.backend.product-service
     @Autowired
-    public ProductController(@Qualifier("selfProductService") ProductService productServiceObj) {
-        this.productService = productServiceObj;
+    public ProductController(Map<String, ProductService> productServicesObj,
+                             ProductBackendProperties backendPropertiesObj,
+                             ObjectMapper objectMapperObj,
+                             PaginationProperties paginationPropertiesObj,
+                             CatalogSnapshotService catalogSnapshotServiceObj) {
+        this.productService = productServicesObj.get(backendPropertiesObj.getProductService());
+        if (this.productService == null) {
+            throw new IllegalStateException("No ProductService named " + backendPropertiesObj.getProductService()
+                    + ", choose one of " + productServicesObj.keySet());
+        }
+        this.objectMapper = objectMapperObj;
+        this.smileObjectMapper = BinaryFormatConfiguration.smileMapper(objectMapperObj);
+        this.cborObjectMapper = BinaryFormatConfiguration.cborMapper(objectMapperObj);
+        this.paginationProperties = paginationPropertiesObj;
+        this.catalogSnapshotService = catalogSnapshotServiceObj;
+        this.snapshotStore = productServicesObj.get("selfProductService");
     }
 
+    /*
+    Returns one page of the catalog, e.g. GET /products?sort=price&size=50
+    The response carries a nextCursor token, the next page is fetched with
+    GET /products?sort=price&size=50&cursor=<nextCursor>
+    The page size is capped by productservice.pagination.max-page-size.
+    Use /products/stream to read the whole catalog in one response.
+     */
     @GetMapping()
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ProductPage getAllProducts(@RequestParam(value = "sort", defaultValue = "id") String sort,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", required = false) Integer size,
+                                      WebRequest webRequest) {
+        return loadPage(sort, cursor, size, ProductFieldSet.ALL, webRequest);
+    }
+
+    /*
+    Sparse fieldsets: GET /products?fields=id,title,price (works with sort, cursor
+    and size as above) and GET /products/{id}?fields=... return only the named
+    fields of every product, plus its id. Services that store the products
+    themselves only read those columns. Unknown field names are a 400.
+     */
+    @GetMapping(params = {"fields", "!ids"})
+    public SparseProductPage getAllProducts(@RequestParam(value = "sort", defaultValue = "id") String sort,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "size", required = false) Integer size,
+                                            @RequestParam("fields") String fields,
+                                            WebRequest webRequest) {
+        ProductFieldSet fieldSet = ProductFieldSet.parse(fields);
+        ProductPage page = loadPage(sort, cursor, size, fieldSet, webRequest);
+        return page == null ? null : new SparseProductPage(page, fieldSet);
+    }
+
+    // null when the client's copy is still current (304 Not Modified)
+    private ProductPage loadPage(String sort, String cursor, Integer size, ProductFieldSet fields,
+                                 WebRequest webRequest) {
+        ProductSortField sortField = parseSortField(sort);
+        ProductCursor productCursor = cursor == null ? null : ProductCursor.decode(cursor, sortField);
+
+        // Conditional GET, see getSingleProduct(). Every page carries the ETag of
+        // the whole catalog, so the (cheap) catalog version is read for every request.
+        // No Last-Modified here: deleting a product does not change the latest
+        // updatedAt, so If-Modified-Since would answer 304 for a catalog that changed
+        CatalogVersion catalogVersion = productService.getCatalogVersion();
+        if (catalogVersion != null && webRequest.checkNotModified(ProductETags.of(catalogVersion))) {
+            return null;
+        }
+        ProductPage page = fields == ProductFieldSet.ALL
+                ? productService.getProductPage(sortField, productCursor, pageSize(size))
+                : productService.getProductPage(sortField, productCursor, pageSize(size), fields);
+        if (catalogVersion == null && webRequest.checkNotModified(ProductETags.of(page))) {
+            return null;
+        }
+        return page;
+    }
+
+    /*
+    Batch read for carts and wishlists, e.g. GET /products?ids=1,5,7
+    One request instead of one GET /products/{id} per item. Unknown ids are
+    listed in notFoundIds instead of failing the whole request.
+     */
+    @GetMapping(params = "ids")
+    public ProductBatch getProducts(@RequestParam("ids") List<Long> ids) {
+        if (ids.size() > paginationProperties.getMaxBatchSize()) {
+            throw new BatchTooLargeException("At most " + paginationProperties.getMaxBatchSize()
+                    + " ids can be requested at once");
+        }
+        return productService.getProducts(ids);
+    }
+
+    /*
+    Filtered listing sorted by price, e.g.
+    GET /products/filter?category=electronics&minPrice=10&maxPrice=50&size=20
+    Which products match is decided on the columnar CatalogSnapshot, without
+    loading a single entity; only the products of the page are then read with
+    one batch read. Paging works like GET /products?sort=price (nextCursor).
+    The snapshot is built from our database, so the page is read from there
+    too (selfProductService), whatever backend serves the other endpoints:
+    ids from the snapshot may be unknown to FakeStore, or be other products there.
+    The snapshot is rebuilt every productservice.snapshot.refresh-interval. A
+    product that was deleted since then, or no longer matches the filter
+    (e.g. its price changed), is left out of its page, so a page can be short
+    and totalMatches is as of the snapshot
+     */
+    @GetMapping("/filter")
+    public ProductFilterPage filterProducts(@RequestParam(value = "category", required = false) String category,
+                                            @RequestParam(value = "minPrice", required = false) Double minPrice,
+                                            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "size", required = false) Integer size) {
+        ProductCursor productCursor = cursor == null ? null : ProductCursor.decode(cursor, ProductSortField.PRICE);
+        CatalogSnapshot.Scan scan = catalogSnapshotService.filter(category, minPrice, maxPrice,
+                productCursor == null ? null : productCursor.getId(),
+                productCursor == null ? 0 : productCursor.getPrice(),
+                pageSize(size));
+
+        List<Long> ids = new ArrayList<>(scan.getIds().length);
+        for (long id : scan.getIds()) {
+            ids.add(id);
+        }
+        Map<Long, Product> found = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Product product : snapshotStore.getProducts(ids).getProducts()) {
+                found.put(product.getId(), product);
+            }
+        }
+
+        ProductFilterPage page = new ProductFilterPage();
+        for (Long id : ids) {
+            Product product = found.get(id);
+            if (product != null && matches(product, category, minPrice, maxPrice)) {
+                page.getProducts().add(product);
+            }
+        }
+        if (scan.isHasMore()) {
+            // the position in the snapshot, the current price may differ
+            int last = scan.getIds().length - 1;
+            Product probe = new Product();
+            probe.setId(scan.getIds()[last]);
+            probe.setPrice(scan.getPrices()[last]);
+            page.setNextCursor(ProductCursor.after(ProductSortField.PRICE, probe).encode());
+        }
+        page.setTotalMatches(scan.getTotalMatches());
+        page.setSnapshotBuiltAt(catalogSnapshotService.getSnapshot().getBuiltAt());
+        return page;
     }
 
+    // The filter of filterProducts() on the current product, same rules as CatalogSnapshot.scan()
+    private static boolean matches(Product product, String category, Double minPrice, Double maxPrice) {
+        String categoryName = product.getCategory() == null ? null : product.getCategory().getName();
+        return (category == null || category.equalsIgnoreCase(categoryName))
+                && (minPrice == null || product.getPrice() >= minPrice)
+                && (maxPrice == null || product.getPrice() <= maxPrice);
+    }
+
+    // accepts id, price and updatedAt (or UPDATED_AT)
+    private ProductSortField parseSortField(String sort) {
+        String normalized = sort.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        try {
+            return ProductSortField.valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Cannot sort products by " + sort);
+        }
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null) {
+            return paginationProperties.getDefaultPageSize();
+        }
+        return Math.max(1, Math.min(requested, paginationProperties.getMaxPageSize()));
+    }
+
+    /*
+    The streaming versions of getAllProducts(). Instead of building a List<Product>
+    and serializing it in one piece, every product is written to the response as soon
+    as the service hands it over (see ProductService.forEachProduct), so memory stays
+    flat as the catalog grows and the first bytes go out before the last product is read.
+    The same URL serves a JSON array, NDJSON (one product per line) or the array in
+    Smile or CBOR (see BinaryFormatConfiguration) based on the Accept header.
+     */
+    // Spring does not set the Content-Type of a StreamingResponseBody from produces,
+    // we do it ourselves. Tomcat only compresses responses of a type listed in
+    // server.compression.mime-types, untyped ones went out uncompressed
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        return streamArray(MediaType.APPLICATION_JSON, objectMapper);
+    }
+
+    @GetMapping(value = "/stream", produces = BinaryFormatConfiguration.SMILE_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProductsAsSmile() {
+        return streamArray(MediaType.parseMediaType(BinaryFormatConfiguration.SMILE_VALUE), smileObjectMapper);
+    }
+
+    @GetMapping(value = "/stream", produces = BinaryFormatConfiguration.CBOR_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProductsAsCbor() {
+        return streamArray(MediaType.APPLICATION_CBOR, cborObjectMapper);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamArray(MediaType mediaType, ObjectMapper mapper) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = createGenerator(mapper, outputStream)) {
+                generator.writeStartArray();
+                productService.forEachProduct(product -> writeProduct(generator, product));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProductsAsNdjson() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = createGenerator(objectMapper, outputStream)) {
+                // no separator between root values, we write the new lines ourselves
+                generator.setRootValueSeparator(null);
+                productService.forEachProduct(product -> {
+                    writeProduct(generator, product);
+                    writeNewLine(generator);
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private JsonGenerator createGenerator(ObjectMapper mapper, OutputStream outputStream) throws IOException {
+        // Spring closes the response stream itself
+        JsonGenerator generator = mapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // When the service fails half way, close() must not write the missing "]":
+        // the client would get a valid but incomplete array and never notice
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        return generator;
+    }
+
+    // The consumer passed to forEachProduct cannot throw IOException, so we wrap it
+    private void writeProduct(JsonGenerator generator, Product product) {
+        try {
+            generator.writeObject(product);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeNewLine(JsonGenerator generator) {
+        try {
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Conditional GET: the response carries an ETag and a Last-Modified header.
+    A client that sends them back (If-None-Match / If-Modified-Since) and still
+    has the current version gets an empty 304 Not Modified.
+    webRequest.checkNotModified() compares the headers, sets the 304 status and
+    the ETag / Last-Modified headers; returning null then sends no body.
+    For a conditional request and a service with a cheap validator (the version
+    column) we check it before loading the product, so a 304 neither loads nor
+    serializes it. Otherwise (FakeStore) the product is loaded and we only skip
+    serialization. Requests without these headers just load the product.
+     */
     @GetMapping("/{id}")
-    public Product getSingleProduct(@PathVariable("id") Long id) throws ProductDoesNotExistException {
-        System.out.println("This is controller service");
-        return productService.getSingleProduct(id);
+    public Product getSingleProduct(@PathVariable("id") Long id, WebRequest webRequest) throws ProductDoesNotExistException {
+        return loadProduct(id, ProductFieldSet.ALL, webRequest);
+    }
+
+    // Sparse fieldset, see getAllProducts(..., fields, ...)
+    @GetMapping(value = "/{id}", params = "fields")
+    public SparseProduct getSingleProduct(@PathVariable("id") Long id, @RequestParam("fields") String fields,
+                                          WebRequest webRequest) throws ProductDoesNotExistException {
+        ProductFieldSet fieldSet = ProductFieldSet.parse(fields);
+        Product product = loadProduct(id, fieldSet, webRequest);
+        return product == null ? null : new SparseProduct(product, fieldSet);
+    }
+
+    // null when the client's copy is still current (304 Not Modified)
+    private Product loadProduct(Long id, ProductFieldSet fields, WebRequest webRequest) throws ProductDoesNotExistException {
+        // Parameterized and guarded: when DEBUG is off this costs one boolean
+        // check, no string is built. Timings come from the metrics, not from logs
+        if (log.isDebugEnabled()) {
+            log.debug("get product id={} fields={} service={}", id, fields, productService.getClass().getSimpleName());
+        }
+        if (isConditional(webRequest)) {
+            ProductVersion version = productService.getProductVersion(id);
+            if (version != null && webRequest.checkNotModified(ProductETags.of(version),
+                    ProductETags.lastModified(version.getUpdatedAt()))) {
+                return null;
+            }
+        }
+        Product product = fields == ProductFieldSet.ALL
+                ? productService.getSingleProduct(id)
+                : productService.getSingleProduct(id, fields);
+        if (webRequest.checkNotModified(ProductETags.of(product), ProductETags.lastModified(product.getUpdatedAt()))) {
+            return null;
+        }
+        return product;
     }
 
     @PostMapping()
@@ -46,22 +370,59 @@ public class ProductController {
         return productService.addProduct(product);
     }
 
+    // Adds thousands of products in one request, see SelfProductService.addProducts()
+    @PostMapping("/bulk")
+    public BulkIngestResponseDto addProducts(@RequestBody List<Product> products) {
+        List<Product> added = productService.addProducts(products);
+
+        BulkIngestResponseDto response = new BulkIngestResponseDto();
+        response.setCount(added.size());
+        response.setIds(added.stream().map(Product::getId).toList());
+        return response;
+    }
+
+    /*
+    Conditional writes: with "If-Match: <ETag>" the update only happens if the
+    product is still at the version the client has seen, otherwise the answer
+    is 412 Precondition Failed and the client has to read it again.
+    The version is checked by the service against the entity it loads for the
+    update anyway, so this costs no extra read. The response carries the new ETag.
+     */
     @PatchMapping("/update/{id}")
-    public Product updateProduct(@PathVariable("id") Long id, @RequestBody Product product) {
+    public ResponseEntity<Product> updateProduct(@PathVariable("id") Long id, @RequestBody Product product,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ProductDoesNotExistException {
         // As this is updating a product, according to me, we don't have to return anything
         // but Naman is return a product here
-        return productService.updateProduct(id, product);
+        if (ifMatch != null) {
+            product.setVersion(ProductETags.versionFrom(id, ifMatch, () -> productService.getSingleProduct(id)));
+        }
+        return withETag(productService.updateProduct(id, product));
     }
 
     @PutMapping("/replace/{id}")
-    public Product replaceProduct(@PathVariable("id") Long id, @RequestBody Product product) {
+    public ResponseEntity<Product> replaceProduct(@PathVariable("id") Long id, @RequestBody Product product,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ProductDoesNotExistException {
         // As this is updating a product, according to me, we don't have to return anything
         // but Naman is return a product here
-        return productService.replaceProduct(id, product);
+        if (ifMatch != null) {
+            product.setVersion(ProductETags.versionFrom(id, ifMatch, () -> productService.getSingleProduct(id)));
+        }
+        return withETag(productService.replaceProduct(id, product));
+    }
+
+    private boolean isConditional(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || webRequest.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    private ResponseEntity<Product> withETag(Product product) {
+        return ResponseEntity.ok()
+                .eTag(ProductETags.of(product))
+                .body(product);
     }
 
     @DeleteMapping("/delete/{id}")
-    public Product deleteProduct(@PathVariable("id") Long id){
+    public Product deleteProduct(@PathVariable("id") Long id) throws ProductDoesNotExistException {
         // No need to return anything
         return productService.deleteProduct(id);
 //        System.out.println(response);
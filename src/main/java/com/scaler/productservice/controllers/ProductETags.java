@@ -0,0 +1,145 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.exceptions.ProductVersionMismatchException;
+import com.scaler.productservice.models.Product;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+class ProductETags {
+
+    /*
+    Builds the ETag and Last-Modified values of our responses.
+    - A stored product: "<id>.<version>". The version is incremented by every
+      update, so equal ETags mean equal products (a strong ETag).
+    - A product without version (FakeStore): a hash of the fields we return.
+    - The catalog (GET /products): "c<count>.<last update>", it changes when a
+      product is added, deleted or updated. The catalog has no Last-Modified,
+      a delete does not move the last update.
+     */
+
+    private ProductETags() {
+    }
+
+    static String of(ProductVersion version) {
+        return version.getId() + "." + version.getVersion();
+    }
+
+    static String of(Product product) {
+        if (product.getVersion() != null) {
+            return product.getId() + "." + product.getVersion();
+        }
+        return "h" + Integer.toHexString(contentHash(product));
+    }
+
+    static String of(CatalogVersion version) {
+        return "c" + version.getProductCount() + "." + lastModified(version.getLastUpdatedAt());
+    }
+
+    static String of(ProductPage page) {
+        int hash = Objects.hashCode(page.getNextCursor());
+        for (Product product : page.getProducts()) {
+            hash = 31 * hash + (product.getVersion() != null
+                    ? Objects.hash(product.getId(), product.getVersion())
+                    : contentHash(product));
+        }
+        return "h" + Integer.toHexString(hash);
+    }
+
+    // -1 tells Spring that there is no Last-Modified
+    static long lastModified(Date updatedAt) {
+        return updatedAt == null ? -1 : updatedAt.getTime();
+    }
+
+    /*
+    Turns an If-Match header back into the version the client has seen, for
+    the service to check against the entity it loads for the update.
+    If-Match is "*" or a list of ETags ("a", "b", RFC 9110 13.1.1), and it
+    uses the strong comparison: a weak ETag (W/"...") never matches.
+    - "*" only asks for the product to exist, which the update checks anyway
+    - one "<id>.<version>" ETag, the common case: that version, nothing is read
+    - anything else (a list of versions, or the content hash ETag of a
+      product without version, e.g. from FakeStore): the current product is
+      read and its ETag must be in the list. A product without version has
+      nothing for the service to check, null then means "unconditional"
+    No match is a 412 Precondition Failed.
+     */
+    static Long versionFrom(Long id, String ifMatch, CurrentProduct current) throws ProductDoesNotExistException {
+        List<String> eTags = strongETags(id, ifMatch);
+        if (eTags.contains("*")) {
+            return null;
+        }
+        Long version = eTags.size() == 1 ? versionOf(id, eTags.get(0)) : null;
+        if (version != null) {
+            return version;
+        }
+        if (!eTags.isEmpty()) {
+            Product product = current.get();
+            if (eTags.contains("\"" + of(product) + "\"")) {
+                return product.getVersion();
+            }
+        }
+        throw mismatch(id, ifMatch);
+    }
+
+    // The product the If-Match header is compared with, read only when needed
+    @FunctionalInterface
+    interface CurrentProduct {
+        Product get() throws ProductDoesNotExistException;
+    }
+
+    // The strong ETags of an If-Match header, quotes included, or "*"
+    private static List<String> strongETags(Long id, String ifMatch) {
+        List<String> eTags = new ArrayList<>();
+        int i = 0;
+        while (i < ifMatch.length()) {
+            char c = ifMatch.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+            } else if (c == '*') {
+                eTags.add("*");
+                i++;
+            } else {
+                boolean weak = ifMatch.startsWith("W/", i);
+                int open = weak ? i + 2 : i;
+                int close = open < ifMatch.length() && ifMatch.charAt(open) == '"' ? ifMatch.indexOf('"', open + 1) : -1;
+                if (close < 0) {
+                    throw mismatch(id, ifMatch);
+                }
+                if (!weak) {
+                    eTags.add(ifMatch.substring(open, close + 1));
+                }
+                i = close + 1;
+            }
+        }
+        return eTags;
+    }
+
+    // The version of a quoted "<id>.<version>" ETag of this product, null for any other ETag
+    private static Long versionOf(Long id, String eTag) {
+        String prefix = "\"" + id + ".";
+        if (eTag.startsWith(prefix) && eTag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(eTag.substring(prefix.length(), eTag.length() - 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static ProductVersionMismatchException mismatch(Long id, String ifMatch) {
+        return new ProductVersionMismatchException("If-Match " + ifMatch + " does not match product with id " + id);
+    }
+
+    private static int contentHash(Product product) {
+        return Objects.hash(product.getId(), product.getTitle(), product.getPrice(), product.getDescription(),
+                product.getImageUrl(), product.getCategory() == null ? null : product.getCategory().getName());
+    }
+}
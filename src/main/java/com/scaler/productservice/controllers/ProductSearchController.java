@@ -0,0 +1,55 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.config.SearchProperties;
+import com.scaler.productservice.dtos.ProductSearchResult;
+import com.scaler.productservice.search.ProductSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/products/search")
+public class ProductSearchController {
+
+    /*
+    Full-text search over title, description and category, answered from the
+    in-memory ProductSearchIndex without a database query:
+    - GET /products/search?q=wireless mo&category=electronics&minPrice=10&maxPrice=50
+    - GET /products/search/suggest?q=wireless mo for the completions of what is typed
+     */
+
+    private ProductSearchIndex searchIndex;
+    private SearchProperties properties;
+
+    @Autowired
+    public ProductSearchController(ProductSearchIndex searchIndexObj, SearchProperties propertiesObj) {
+        this.searchIndex = searchIndexObj;
+        this.properties = propertiesObj;
+    }
+
+    @GetMapping()
+    public ProductSearchResult search(@RequestParam("q") String query,
+                                      @RequestParam(value = "category", required = false) String category,
+                                      @RequestParam(value = "minPrice", required = false) Double minPrice,
+                                      @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+                                      @RequestParam(value = "limit", required = false) Integer limit) {
+        return searchIndex.search(query, category, minPrice, maxPrice, limit(limit));
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam("q") String query,
+                                @RequestParam(value = "limit", required = false) Integer limit) {
+        return searchIndex.suggest(query, limit(limit));
+    }
+
+    private int limit(Integer requested) {
+        if (requested == null) {
+            return properties.getDefaultLimit();
+        }
+        return Math.max(1, Math.min(requested, properties.getMaxLimit()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/reactive/products")
+public class ReactiveProductController {
+
+    // Same endpoints as ProductController, but the methods return Mono/Flux.
+    // Spring MVC treats these as asynchronous results: the Tomcat thread is
+    // released as soon as the method returns and the response is written
+    // when the upstream answer arrives. ProductDoesNotExistException is still
+    // turned into a 404 by ExceptionHandlers.
+
+    private ReactiveProductService productService;
+
+    @Autowired
+    public ReactiveProductController(@Qualifier("webClientProductService") ReactiveProductService productServiceObj) {
+        this.productService = productServiceObj;
+    }
+
+    @GetMapping()
+    public Flux<Product> getAllProducts() {
+        return productService.getAllProducts();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Product> getSingleProduct(@PathVariable("id") Long id) {
+        return productService.getSingleProduct(id);
+    }
+
+    @PostMapping()
+    public Mono<Product> addProduct(@RequestBody() Product product) {
+        return productService.addProduct(product);
+    }
+
+    @PatchMapping("/update/{id}")
+    public Mono<Product> updateProduct(@PathVariable("id") Long id, @RequestBody Product product) {
+        return productService.updateProduct(id, product);
+    }
+
+    @PutMapping("/replace/{id}")
+    public Mono<Product> replaceProduct(@PathVariable("id") Long id, @RequestBody Product product) {
+        return productService.replaceProduct(id, product);
+    }
+
+    @DeleteMapping("/delete/{id}")
+    public Mono<Product> deleteProduct(@PathVariable("id") Long id) {
+        return productService.deleteProduct(id);
+    }
+}
@@ -0,0 +1,55 @@
+package com.scaler.productservice.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+public final class ReadYourWrites {
+
+    /*
+    Remembers, for the current thread, until when reads have to go to the
+    primary. It is set in two ways:
+    - after a write transaction of this thread commits (see ReplicaRoutingDataSource)
+    - from the cookie we gave the client with the response to its last write
+      (see ReadYourWritesFilter), so the next request of the same client is
+      routed to the primary as well
+     */
+
+    static final String COOKIE_NAME = "primary-until";
+
+    private static final ThreadLocal<Long> PRIMARY_UNTIL = new ThreadLocal<>();
+    private static final ThreadLocal<HttpServletResponse> RESPONSE = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        Long until = PRIMARY_UNTIL.get();
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    // Called when a write committed: stick to the primary for window millis
+    static void wrote(long windowMillis) {
+        long until = System.currentTimeMillis() + windowMillis;
+        PRIMARY_UNTIL.set(until);
+        HttpServletResponse response = RESPONSE.get();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, windowMillis / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    static void start(Long primaryUntil, HttpServletResponse response) {
+        if (primaryUntil != null) {
+            PRIMARY_UNTIL.set(primaryUntil);
+        }
+        RESPONSE.set(response);
+    }
+
+    public static void clear() {
+        PRIMARY_UNTIL.remove();
+        RESPONSE.remove();
+    }
+}
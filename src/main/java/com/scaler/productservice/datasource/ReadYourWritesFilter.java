@@ -0,0 +1,52 @@
+package com.scaler.productservice.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    // Picks up the primary-until cookie of a client that wrote recently and
+    // makes sure nothing is left in the ThreadLocals when the thread is reused
+
+    private long windowMillis;
+
+    public ReadYourWritesFilter(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ReadYourWrites.start(primaryUntil(request), response);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    private Long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (ReadYourWrites.COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    // never longer than one window, whatever the client sends
+                    long until = Long.parseLong(cookie.getValue());
+                    return Math.min(until, System.currentTimeMillis() + windowMillis);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
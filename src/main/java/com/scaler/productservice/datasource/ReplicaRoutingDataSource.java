@@ -0,0 +1,144 @@
+package com.scaler.productservice.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /*
+    Sends read-only transactions (@Transactional(readOnly = true), i.e.
+    getSingleProduct, getAllProducts, pages, batches, versions) to a read
+    replica and everything else to the primary.
+    - The replicas take turns (round robin), replicas that failed their last
+      health check are skipped. Without a healthy replica reads use the primary.
+    - After a write commits, reads of the same thread, and of the same client
+      through the primary-until cookie, stay on the primary for a short window
+      (read your writes, a replica may lag a bit behind).
+    This only works behind a LazyConnectionDataSourceProxy: the transaction
+    manager asks for a connection when the transaction begins, before the
+    read-only flag we route on is set. The proxy fetches the real connection
+    on the first statement, when the flag is known.
+     */
+
+    static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Map<String, DataSource> replicas = new HashMap<>();
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private long readYourWritesWindowMillis;
+    private int healthCheckTimeoutSeconds;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources,
+                                    long readYourWritesWindowMillis, int healthCheckTimeoutSeconds) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            replicas.put(key, replicaDataSources.get(i));
+            healthy.put(key, true);
+            targets.put(key, replicaDataSources.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.readYourWritesWindowMillis = readYourWritesWindowMillis;
+        this.healthCheckTimeoutSeconds = Math.max(1, healthCheckTimeoutSeconds);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            // schema updates, startup queries and the like
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWrite();
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        return nextHealthyReplica();
+    }
+
+    private String nextHealthyReplica() {
+        int size = replicaKeys.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get((start + i) % size);
+            if (healthy.get(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    // Once the write transaction has committed, the thread (and the client,
+    // through the cookie) reads from the primary for a while
+    private void rememberWrite() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadYourWrites.wrote(readYourWritesWindowMillis);
+                }
+            });
+        }
+    }
+
+    // Runs every productservice.datasource.health-check-interval
+    @Scheduled(fixedDelayString = "${productservice.datasource.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        for (String key : replicaKeys) {
+            boolean up = isValid(replicas.get(key));
+            Boolean wasUp = healthy.put(key, up);
+            if (wasUp != null && wasUp != up) {
+                if (up) {
+                    log.info("Replica {} is back, reads are routed to it again", key);
+                } else {
+                    log.warn("Replica {} failed its health check, reads skip it", key);
+                }
+            }
+        }
+    }
+
+    private boolean isValid(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(healthCheckTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Spring calls this on shutdown. The replica pools are not beans of their
+    // own, so nobody else closes them (the primary is closed by Spring)
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public boolean isHealthy(int replica) {
+        return healthy.get(replicaKeys.get(replica));
+    }
+}
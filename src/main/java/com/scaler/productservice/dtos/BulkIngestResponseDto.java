@@ -0,0 +1,14 @@
+package com.scaler.productservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkIngestResponseDto {
+    private int count;
+    // generated ids, in the same order as the products in the request
+    private List<Long> ids;
+}
@@ -0,0 +1,15 @@
+package com.scaler.productservice.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class CatalogVersion {
+    // Together they change whenever any product is added, updated or deleted.
+    // lastUpdatedAt alone does not change on a delete, it is no Last-Modified
+    private long productCount;
+    private Date lastUpdatedAt;
+}
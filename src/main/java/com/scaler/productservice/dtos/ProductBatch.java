@@ -0,0 +1,37 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+public class ProductBatch {
+    // The products that were found, in the order their ids were asked for
+    private List<Product> products = new ArrayList<>();
+    // Ids that do not exist
+    private List<Long> notFoundIds = new ArrayList<>();
+    // Ids we could not look up this time (upstream error or deadline passed)
+    private List<Long> failedIds = new ArrayList<>();
+
+    // Puts every requested id in exactly one of the three lists
+    public static ProductBatch of(Collection<Long> ids, Map<Long, Product> found, Collection<Long> notFound) {
+        ProductBatch batch = new ProductBatch();
+        for (Long id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                batch.getProducts().add(product);
+            } else if (notFound.contains(id)) {
+                batch.getNotFoundIds().add(id);
+            } else {
+                batch.getFailedIds().add(id);
+            }
+        }
+        return batch;
+    }
+}
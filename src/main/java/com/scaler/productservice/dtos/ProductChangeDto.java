@@ -0,0 +1,19 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.models.ProductChangeType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+public class ProductChangeDto {
+    private long seq;
+    private Long productId;
+    private ProductChangeType changeType;
+    private Date changedAt;
+    // The current state of the product, null when it has been deleted since
+    private Product product;
+}
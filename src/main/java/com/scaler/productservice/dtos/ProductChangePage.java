@@ -0,0 +1,24 @@
+package com.scaler.productservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class ProductChangePage {
+    private List<ProductChangeDto> changes = new ArrayList<>();
+    // Pass this back as ?since= to get the next changes
+    private long nextSince;
+    // true when the page is full, i.e. there may be more changes right away
+    private boolean hasMore;
+    // The newest sequence number right now, a new mirror starts tailing here
+    private long latestSeq;
+    // The log is complete after this seq. Deletes before it have been compacted away
+    private long oldestSeq;
+    // since was below oldestSeq: the page has no changes, the mirror may have
+    // missed deletes and has to copy the catalog again, then go on from latestSeq
+    private boolean resyncRequired;
+}
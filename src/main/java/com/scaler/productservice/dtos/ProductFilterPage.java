@@ -0,0 +1,22 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@Setter
+public class ProductFilterPage {
+    // Sorted by price (then id)
+    private List<Product> products = new ArrayList<>();
+    // Pass this back as ?cursor= to get the next page, null on the last page
+    private String nextCursor;
+    // All products that match the filters, over all pages
+    private long totalMatches;
+    // The filters ran against the catalog as it was at this time
+    private Date snapshotBuiltAt;
+}
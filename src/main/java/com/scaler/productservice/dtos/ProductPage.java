@@ -0,0 +1,15 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class ProductPage {
+    private List<Product> products;
+    // Pass this back as ?cursor= to get the next page, null on the last page
+    private String nextCursor;
+}
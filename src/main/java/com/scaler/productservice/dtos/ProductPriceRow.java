@@ -0,0 +1,14 @@
+package com.scaler.productservice.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductPriceRow {
+    // The three columns the catalog snapshot keeps of a product, filled by a
+    // JPQL "select new ProductPriceRow(...)"
+    private Long id;
+    private double price;
+    private Long categoryId;
+}
@@ -0,0 +1,17 @@
+package com.scaler.productservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductSearchHit {
+    // Straight from the search index, no database read. GET /products/{id}
+    // has the whole product
+    private Long id;
+    private String title;
+    private double price;
+    private String category;
+    private String imageUrl;
+    private double score;
+}
@@ -0,0 +1,16 @@
+package com.scaler.productservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class ProductSearchResult {
+    // The best matches first, at most limit of them
+    private List<ProductSearchHit> hits = new ArrayList<>();
+    // How many products matched the query and the filters in total
+    private int totalHits;
+}
@@ -0,0 +1,15 @@
+package com.scaler.productservice.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class ProductVersion {
+    // Just enough of a product to answer a conditional request (ETag / Last-Modified)
+    private Long id;
+    private Long version;
+    private Date updatedAt;
+}
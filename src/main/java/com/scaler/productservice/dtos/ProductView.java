@@ -0,0 +1,47 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class ProductView {
+    /*
+    Read-only projection of a product, filled directly by a JPQL
+    "select new ProductView(...)". Only the category id (the foreign key column)
+    is read, the category itself comes from the CategoryDictionary.
+    Compared to loading Product entities this:
+    - needs exactly one SQL statement, no extra selects or joins for the categories
+    - only reads the columns the API returns, not the BaseModel audit columns
+    - creates no managed entities, so Hibernate keeps no snapshots to dirty check
+     */
+    private Long id;
+    private String title;
+    private double price;
+    private String description;
+    private String imageUrl;
+    private Long categoryId;
+    // kept because it is a sort key for paging (and Last-Modified)
+    private Date updatedAt;
+    // for the ETag
+    private Long version;
+
+    // The API still speaks Product, so we hand out a detached, plain Product
+    // with the category from the CategoryDictionary
+    public Product toProduct(Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle(title);
+        product.setPrice(price);
+        product.setDescription(description);
+        product.setImageUrl(imageUrl);
+        product.setUpdatedAt(updatedAt);
+        product.setVersion(version);
+        product.setCategory(category);
+        return product;
+    }
+}
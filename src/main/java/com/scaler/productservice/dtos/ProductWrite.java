@@ -0,0 +1,23 @@
+package com.scaler.productservice.dtos;
+
+import com.scaler.productservice.models.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductWrite {
+    private Long id;
+    // The fields to write. For a PATCH only the fields that were sent are set
+    private Product product;
+    // true for a PUT (every field is overwritten), false for a PATCH
+    private boolean replace;
+
+    public static ProductWrite of(Long id, Product product, boolean replace) {
+        ProductWrite write = new ProductWrite();
+        write.setId(id);
+        write.setProduct(product);
+        write.setReplace(replace);
+        return write;
+    }
+}
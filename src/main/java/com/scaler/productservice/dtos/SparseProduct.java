@@ -0,0 +1,32 @@
+package com.scaler.productservice.dtos;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.projection.ProductFieldSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+
+// GET /products/{id}?fields=... : only the requested fields of the product are written
+@Getter
+@AllArgsConstructor
+@JsonSerialize(using = SparseProduct.Serializer.class)
+public class SparseProduct {
+    private Product product;
+    private ProductFieldSet fields;
+
+    static class Serializer extends StdSerializer<SparseProduct> {
+        Serializer() {
+            super(SparseProduct.class);
+        }
+
+        @Override
+        public void serialize(SparseProduct value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            value.getFields().write(value.getProduct(), generator, provider);
+        }
+    }
+}
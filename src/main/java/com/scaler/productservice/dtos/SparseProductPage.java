@@ -0,0 +1,45 @@
+package com.scaler.productservice.dtos;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.scaler.productservice.config.BinaryFormatConfiguration;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.projection.ProductFieldSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+
+// GET /products?fields=... : a ProductPage with only the requested fields of every product
+@Getter
+@AllArgsConstructor
+@JsonSerialize(using = SparseProductPage.Serializer.class)
+public class SparseProductPage {
+    private ProductPage page;
+    private ProductFieldSet fields;
+
+    static class Serializer extends StdSerializer<SparseProductPage> {
+        Serializer() {
+            super(SparseProductPage.class);
+        }
+
+        @Override
+        public void serialize(SparseProductPage value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            ProductFieldSet fields = value.getFields();
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("products");
+            for (Product product : value.getPage().getProducts()) {
+                fields.write(product, generator, provider);
+            }
+            generator.writeEndArray();
+            if (value.getPage().getNextCursor() != null) {
+                generator.writeStringField("nextCursor", value.getPage().getNextCursor());
+            } else if (!BinaryFormatConfiguration.leavesOutNulls(provider)) {
+                generator.writeNullField("nextCursor");
+            }
+            generator.writeEndObject();
+        }
+    }
+}
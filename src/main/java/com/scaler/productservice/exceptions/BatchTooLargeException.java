@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
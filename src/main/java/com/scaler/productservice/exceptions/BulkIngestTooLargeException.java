@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class BulkIngestTooLargeException extends RuntimeException {
+    public BulkIngestTooLargeException(String message) {
+        super(message);
+    }
+}
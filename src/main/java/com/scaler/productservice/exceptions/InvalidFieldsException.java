@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -4,4 +4,15 @@ public class ProductDoesNotExistException extends Exception{
     public ProductDoesNotExistException(String message) {
         super(message);
     }
+
+    private ProductDoesNotExistException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    // For answers that are known in advance (e.g. a cached miss): filling in the
+    // stack trace is most of the cost of throwing, and nobody reads it, the
+    // handler turns the exception into a 404
+    public static ProductDoesNotExistException withoutStackTrace(String message) {
+        return new ProductDoesNotExistException(message, false);
+    }
 }
@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class ProductVersionMismatchException extends RuntimeException {
+    public ProductVersionMismatchException(String message) {
+        super(message);
+    }
+}
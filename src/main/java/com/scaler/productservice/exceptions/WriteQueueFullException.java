@@ -0,0 +1,7 @@
+package com.scaler.productservice.exceptions;
+
+public class WriteQueueFullException extends RuntimeException {
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+}
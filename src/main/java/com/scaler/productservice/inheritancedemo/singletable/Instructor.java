@@ -0,0 +1,12 @@
+package com.scaler.productservice.inheritancedemo.singletable;
+
+import jakarta.persistence.Entity;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity(name = "st_instructor")
+public class Instructor extends User {
+    private double averageRating;
+}
@@ -0,0 +1,19 @@
+package com.scaler.productservice.inheritancedemo.singletable;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Inheritance;
+import jakarta.persistence.InheritanceType;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity(name = "st_user")
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE) // One table for the whole hierarchy, a dtype column tells the rows apart
+public class User {
+    @Id
+    private Long id;
+    private String name;
+    private String email;
+}
@@ -0,0 +1,79 @@
+package com.scaler.productservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+public class ProductServiceMetricsAspect {
+
+    /*
+    Times every call of a ProductService method, per implementation, e.g.
+    product.service{service=SelfProductService, method=getSingleProduct, outcome=success}
+    The decorators (caching, coalescing) and the services behind them are all
+    beans, so each layer gets its own timer and we can see where the time goes.
+    Percentile histograms are switched on in application.properties
+    (management.metrics.distribution.percentiles-histogram.product.service).
+
+    Looking a timer up in the MeterRegistry builds a new Meter.Id and tags on
+    every call, so we keep the timers we already registered in a map and the
+    hot path is one map lookup plus the timer update.
+     */
+
+    public static final String METRIC_NAME = "product.service";
+
+    private MeterRegistry meterRegistry;
+    private ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductServiceMetricsAspect(MeterRegistry meterRegistryObj) {
+        this.meterRegistry = meterRegistryObj;
+    }
+
+    @Around("execution(* com.scaler.productservice.service.ProductService+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> service = joinPoint.getTarget().getClass();
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        Class<?> exception = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            exception = throwable.getClass();
+            throw throwable;
+        } finally {
+            long duration = System.nanoTime() - start;
+            timer(new TimerKey(service, method, exception)).record(duration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(TimerKey key) {
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, this::register);
+        }
+        return timer;
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(METRIC_NAME)
+                .description("Calls of ProductService methods, per implementation")
+                .tag("service", key.service().getSimpleName())
+                .tag("method", key.method())
+                .tag("outcome", key.exception() == null ? "success" : "error")
+                .tag("exception", key.exception() == null ? "none" : key.exception().getSimpleName())
+                .register(meterRegistry);
+    }
+
+    private record TimerKey(Class<?> service, String method, Class<?> exception) {
+    }
+}
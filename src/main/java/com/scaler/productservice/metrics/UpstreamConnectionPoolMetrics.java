@@ -0,0 +1,41 @@
+package com.scaler.productservice.metrics;
+
+import com.scaler.productservice.client.UpstreamHttpClientFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+@Component
+public class UpstreamConnectionPoolMetrics implements MeterBinder {
+
+    // Gauges for the HTTP connection pool of the FakeStore client, next to
+    // the hikaricp.connections.* gauges Spring Boot registers for the JDBC pool.
+    // A growing "pending" count means requests are waiting for a connection
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    @Autowired
+    public UpstreamConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManagerObj) {
+        this.connectionManager = connectionManagerObj;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "upstream.connections.leased", PoolStats::getLeased);
+        gauge(registry, "upstream.connections.available", PoolStats::getAvailable);
+        gauge(registry, "upstream.connections.pending", PoolStats::getPending);
+        gauge(registry, "upstream.connections.max", PoolStats::getMax);
+    }
+
+    private void gauge(MeterRegistry registry, String name, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("upstream", UpstreamHttpClientFactory.UPSTREAM_NAME)
+                .register(registry);
+    }
+}
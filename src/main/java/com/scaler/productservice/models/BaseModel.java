@@ -1,6 +1,8 @@
 package com.scaler.productservice.models;
 
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -21,4 +23,21 @@ public class BaseModel {
     private Date updatedAt;
     private String updatedBy;
     private boolean isDeleted;
+
+    // Hibernate calls these right before the INSERT / UPDATE statement,
+    // so every row carries correct audit timestamps (updatedAt is also
+    // used as a sort key for paging through the catalog)
+    @PrePersist
+    protected void onCreate() {
+        Date now = new Date();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = new Date();
+    }
 }
@@ -1,17 +1,33 @@
 package com.scaler.productservice.models;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
 @Entity // This tells Hibernate to make a table out of this class
+// Categories are reference data: keep them in the second-level cache so loading
+// a category by id (e.g. a lazy product.category) does not hit the database.
+// READ_WRITE keeps the cache consistent when a category is written
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "categories")
 public class Category extends BaseModel {
 
     @Id // This makes id field the primary key
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "category_seq", allocationSize = 50)
     private Long id;
+    // Categories are looked up (and upserted) by name
+    @Column(unique = true)
     private String name;
 
 
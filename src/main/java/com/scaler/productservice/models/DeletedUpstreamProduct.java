@@ -0,0 +1,23 @@
+package com.scaler.productservice.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@Entity // This tells Hibernate to make a table out of this class
+// An upstream product (id below Product.FIRST_LOCAL_ID) that was deleted here.
+// The soft-deleted product row is purged after a while, this row stays, so
+// the product is never imported from upstream again (see SelfProductService)
+public class DeletedUpstreamProduct {
+
+    @Id
+    private Long id;
+    @Column(nullable = false)
+    private Date deletedAt;
+}
@@ -0,0 +1,32 @@
+package com.scaler.productservice.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@Entity // This tells Hibernate to make a table out of this class
+// A change that has no seq yet. It is written in the transaction of the change
+// and moved to ProductChange once that transaction has committed (see ProductChangeLog)
+public class PendingProductChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long productId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProductChangeType changeType;
+    @Column(nullable = false)
+    private Date changedAt;
+}
@@ -1,23 +1,81 @@
 package com.scaler.productservice.models;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
 
 @Getter
 @Setter
 @Entity // This tells Hibernate to make a table out of this class
+// Products loaded by id (entityManager.find / findById) are served from the
+// second-level cache, updates and deletes through Hibernate invalidate the entry
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+// Soft delete: repository.delete() only flips is_deleted (one UPDATE, no index
+// maintenance for removed rows, no foreign keys to check) and every query on
+// Product, HQL and entity loads alike, gets "is_deleted = false" added.
+// DeletedProductPurger removes the rows for real later, in small batches.
+// The UPDATE keeps the optimistic locking check and bumps updated_at, which
+// the purger uses as the time of deletion
+@SQLDelete(sql = "update product set is_deleted = true, updated_at = current_timestamp, " +
+        "version = version + 1 where id = ? and version = ?")
+@SQLRestriction("is_deleted = false")
+// Composite indexes for keyset pagination: every page is a range scan that
+// starts right after the (sort value, id) of the previous page.
+// is_deleted comes first, so the soft delete filter is an equality on the
+// index prefix and does not cost an extra lookup per row. (is_deleted, id)
+// serves the id order and lets the purger find the deleted rows
+@Table(indexes = {
+        @Index(name = "idx_product_deleted_id", columnList = "is_deleted, id"),
+        @Index(name = "idx_product_deleted_price_id", columnList = "is_deleted, price, id"),
+        @Index(name = "idx_product_deleted_updated_at_id", columnList = "is_deleted, updated_at, id")
+})
 public class Product extends BaseModel {
 
+    // Ids below this belong to products imported from the upstream catalog,
+    // which keep their upstream id (see SelfProductService.importProducts)
+    public static final int FIRST_LOCAL_ID = 1_000_000;
+
     @Id // This makes id field the primary key
+    // IDENTITY (auto increment) would force Hibernate to run every INSERT on its own
+    // to learn the new id, which disables JDBC batching. A pooled sequence hands out
+    // 50 ids per round trip instead (on MySQL Hibernate emulates it with a table).
+    // initialValue only applies when product_seq is created. An existing one is
+    // raised on startup by ProductIdSequenceMigration
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50,
+            initialValue = FIRST_LOCAL_ID)
     private Long id;
     private String title;
     private double price;
-    @ManyToOne
+    // LAZY: the JPA default for @ManyToOne is EAGER, which runs an extra select per
+    // product whenever products are loaded without a join. Read paths use
+    // ProductView projections and write paths an entity graph instead
+    @ManyToOne(fetch = FetchType.LAZY)
     private Category category;
     private String description;
     private String imageUrl;
+    // Optimistic locking: Hibernate adds "where version = ?" to every UPDATE and
+    // increments it, so a concurrent change makes the second write fail instead of
+    // silently overwriting the first. It is also what our ETags are made of.
+    // The default backfills rows that existed before the column
+    @Version
+    @ColumnDefault("0")
+    private Long version;
 
 }
@@ -0,0 +1,41 @@
+package com.scaler.productservice.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@Entity // This tells Hibernate to make a table out of this class
+// One row per change of a product, the change feed reads them in seq order.
+// (product_id, seq) is used by the compaction to find the newest entry of a product
+@Table(indexes = {
+        @Index(name = "idx_product_change_product_id_seq", columnList = "product_id, seq"),
+        @Index(name = "idx_product_change_changed_at", columnList = "changed_at")
+})
+public class ProductChange {
+
+    // Auto increment. Entries are only inserted by the sequencer of
+    // ProductChangeLog, one instance at a time and after the change has
+    // committed, so the numbers are handed out in commit order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+    @Column(nullable = false)
+    private Long productId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProductChangeType changeType;
+    @Column(nullable = false)
+    private Date changedAt;
+}
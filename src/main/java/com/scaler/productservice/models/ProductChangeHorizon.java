@@ -0,0 +1,20 @@
+package com.scaler.productservice.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity // This tells Hibernate to make a table out of this class
+// A table with a single row: the seq of the newest tombstone compaction has
+// removed. A mirror that has not read up to it may have missed deletes
+public class ProductChangeHorizon {
+
+    @Id
+    private Long id;
+    @Column(nullable = false)
+    private Long oldestSeq;
+}
@@ -0,0 +1,17 @@
+package com.scaler.productservice.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity // This tells Hibernate to make a table out of this class
+// A table with a single row. The instance that hands out change seqs locks it
+// (select ... for update), so only one instance at a time does that
+public class ProductChangeLock {
+
+    @Id
+    private Long id;
+}
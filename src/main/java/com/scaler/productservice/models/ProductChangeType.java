@@ -0,0 +1,7 @@
+package com.scaler.productservice.models;
+
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,82 @@
+package com.scaler.productservice.pagination;
+
+import com.scaler.productservice.exceptions.InvalidPageRequestException;
+import com.scaler.productservice.models.Product;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+@Getter
+public class ProductCursor {
+    /*
+    Points right after the last product of a page: the sort field plus the
+    sort value and id of that product. The next page is "everything after
+    (value, id) in this order", which the database answers with an index
+    range scan, so page 1000 costs the same as page 1.
+    Clients get it as an opaque base64url token, e.g. PRICE:109.95:1
+    A product without updatedAt (FakeStore products, rows written outside of
+    JPA) is encoded with an empty value, UPDATED_AT::1, and decodes back to a
+    null updatedAt. Nulls sort first, the listings continue from there.
+     */
+
+    private final ProductSortField sortField;
+    private final Long id;
+    private final double price;
+    private final Date updatedAt;
+
+    private ProductCursor(ProductSortField sortField, Long id, double price, Date updatedAt) {
+        this.sortField = sortField;
+        this.id = id;
+        this.price = price;
+        this.updatedAt = updatedAt;
+    }
+
+    public static ProductCursor after(ProductSortField sortField, Product product) {
+        // the id is the tie breaker of every order, a page cannot end without one
+        if (product.getId() == null) {
+            throw new IllegalArgumentException("Cannot page after a product without id");
+        }
+        return new ProductCursor(sortField, product.getId(), product.getPrice(), product.getUpdatedAt());
+    }
+
+    public String encode() {
+        String value = switch (sortField) {
+            case ID -> "";
+            case PRICE -> Double.toString(price);
+            case UPDATED_AT -> updatedAt == null ? "" : Long.toString(updatedAt.getTime());
+        };
+        String raw = sortField.name() + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, ProductSortField expectedSortField) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            ProductSortField sortField = ProductSortField.valueOf(parts[0]);
+            if (parts.length != 3 || sortField != expectedSortField) {
+                throw new InvalidPageRequestException("Cursor does not belong to a listing sorted by " + expectedSortField);
+            }
+            Long id = Long.parseLong(parts[2]);
+            double price = sortField == ProductSortField.PRICE ? Double.parseDouble(parts[1]) : 0;
+            Date updatedAt = sortField == ProductSortField.UPDATED_AT && !parts[1].isEmpty()
+                    ? new Date(Long.parseLong(parts[1])) : null;
+            return new ProductCursor(sortField, id, price, updatedAt);
+        } catch (IllegalArgumentException e) {
+            // covers bad base64, unknown sort field and malformed numbers
+            throw new InvalidPageRequestException("Invalid cursor: " + token);
+        }
+    }
+
+    // A product that sits exactly at the cursor position, so in-memory
+    // listings can use the sort comparator to find where the page starts
+    public Product toProbe() {
+        Product probe = new Product();
+        probe.setId(id);
+        probe.setPrice(price);
+        probe.setUpdatedAt(updatedAt);
+        return probe;
+    }
+}
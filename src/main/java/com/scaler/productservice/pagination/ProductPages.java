@@ -0,0 +1,45 @@
+package com.scaler.productservice.pagination;
+
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.models.Product;
+
+import java.util.Comparator;
+import java.util.List;
+
+public class ProductPages {
+
+    private ProductPages() {
+    }
+
+    /*
+    Builds a page from a query result that was asked for size + 1 rows.
+    The extra row only tells us that there is a next page, it is not returned.
+     */
+    public static ProductPage fromLookahead(List<Product> rows, ProductSortField sortField, int size) {
+        ProductPage page = new ProductPage();
+        if (rows.size() > size) {
+            List<Product> products = rows.subList(0, size);
+            page.setProducts(products);
+            page.setNextCursor(ProductCursor.after(sortField, products.get(size - 1)).encode());
+        } else {
+            page.setProducts(rows);
+        }
+        return page;
+    }
+
+    /*
+    Same keyset semantics for services that only have the whole catalog
+    in memory (e.g. the FakeStore API has no paging of its own).
+     */
+    public static ProductPage slice(List<Product> catalog, ProductSortField sortField,
+                                    ProductCursor cursor, int size) {
+        Comparator<Product> comparator = sortField.getComparator();
+        Product probe = cursor == null ? null : cursor.toProbe();
+        List<Product> rows = catalog.stream()
+                .filter(product -> probe == null || comparator.compare(product, probe) > 0)
+                .sorted(comparator)
+                .limit(size + 1L)
+                .toList();
+        return fromLookahead(rows, sortField, size);
+    }
+}
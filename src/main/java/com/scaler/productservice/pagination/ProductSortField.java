@@ -0,0 +1,24 @@
+package com.scaler.productservice.pagination;
+
+import com.scaler.productservice.models.Product;
+
+import java.util.Comparator;
+
+public enum ProductSortField {
+    // Every sort uses the id as tie breaker, so the order is total and
+    // (sort value, id) identifies exactly where a page ends
+    ID(Comparator.comparing(Product::getId)),
+    PRICE(Comparator.comparingDouble(Product::getPrice).thenComparing(Product::getId)),
+    UPDATED_AT(Comparator.comparing(Product::getUpdatedAt,
+            Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(Product::getId));
+
+    private final Comparator<Product> comparator;
+
+    ProductSortField(Comparator<Product> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Product> getComparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,131 @@
+package com.scaler.productservice.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.scaler.productservice.config.BinaryFormatConfiguration;
+import com.scaler.productservice.models.Product;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.function.BiConsumer;
+
+public enum ProductField {
+    /*
+    The fields of a product a client can ask for with ?fields=, in the order
+    they are written. Every field knows
+    - its name in the response
+    - the JPQL path it is read from (category: only the foreign key column,
+      the category itself comes from the CategoryDictionary)
+    - how to put a value read from the database on a Product, and how to
+      write it to the response
+    all as plain method calls, nothing is looked up by reflection per request.
+    A requested field without a value is written as null in JSON and left out
+    in Smile/CBOR, the same as in a full product.
+     */
+    ID("id", "p.id",
+            (product, value) -> product.setId((Long) value),
+            (product, generator, provider) -> writeNumber(generator, provider, "id", product.getId())),
+    TITLE("title", "p.title",
+            (product, value) -> product.setTitle((String) value),
+            (product, generator, provider) -> writeString(generator, provider, "title", product.getTitle())),
+    PRICE("price", "p.price",
+            (product, value) -> product.setPrice((Double) value),
+            (product, generator, provider) -> generator.writeNumberField("price", product.getPrice())),
+    CATEGORY("category", "p.category.id",
+            // set by ProductFieldSet.toProduct, which resolves the id
+            (product, value) -> {
+            },
+            (product, generator, provider) -> writeObject(generator, provider, "category", product.getCategory())),
+    DESCRIPTION("description", "p.description",
+            (product, value) -> product.setDescription((String) value),
+            (product, generator, provider) -> writeString(generator, provider, "description", product.getDescription())),
+    IMAGE_URL("imageUrl", "p.imageUrl",
+            (product, value) -> product.setImageUrl((String) value),
+            (product, generator, provider) -> writeString(generator, provider, "imageUrl", product.getImageUrl())),
+    VERSION("version", "p.version",
+            (product, value) -> product.setVersion((Long) value),
+            (product, generator, provider) -> writeNumber(generator, provider, "version", product.getVersion())),
+    CREATED_AT("createdAt", "p.createdAt",
+            (product, value) -> product.setCreatedAt((Date) value),
+            (product, generator, provider) -> writeObject(generator, provider, "createdAt", product.getCreatedAt())),
+    CREATED_BY("createdBy", "p.createdBy",
+            (product, value) -> product.setCreatedBy((String) value),
+            (product, generator, provider) -> writeString(generator, provider, "createdBy", product.getCreatedBy())),
+    UPDATED_AT("updatedAt", "p.updatedAt",
+            (product, value) -> product.setUpdatedAt((Date) value),
+            (product, generator, provider) -> writeObject(generator, provider, "updatedAt", product.getUpdatedAt())),
+    UPDATED_BY("updatedBy", "p.updatedBy",
+            (product, value) -> product.setUpdatedBy((String) value),
+            (product, generator, provider) -> writeString(generator, provider, "updatedBy", product.getUpdatedBy())),
+    DELETED("deleted", "p.isDeleted",
+            (product, value) -> product.setDeleted((Boolean) value),
+            (product, generator, provider) -> generator.writeBooleanField("deleted", product.isDeleted()));
+
+    @FunctionalInterface
+    interface FieldWriter {
+        void write(Product product, JsonGenerator generator, SerializerProvider provider) throws IOException;
+    }
+
+    private final String fieldName;
+    private final String path;
+    private final BiConsumer<Product, Object> setter;
+    private final FieldWriter writer;
+
+    ProductField(String fieldName, String path, BiConsumer<Product, Object> setter, FieldWriter writer) {
+        this.fieldName = fieldName;
+        this.path = path;
+        this.setter = setter;
+        this.writer = writer;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    void set(Product product, Object value) {
+        setter.accept(product, value);
+    }
+
+    void write(Product product, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        writer.write(product, generator, provider);
+    }
+
+    private static void writeString(JsonGenerator generator, SerializerProvider provider,
+                                    String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        } else {
+            writeNull(generator, provider, name);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializerProvider provider,
+                                    String name, Long value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(name, value);
+        } else {
+            writeNull(generator, provider, name);
+        }
+    }
+
+    // dates and the category go through the configured serializers (date format etc.)
+    private static void writeObject(JsonGenerator generator, SerializerProvider provider,
+                                    String name, Object value) throws IOException {
+        if (value != null) {
+            provider.defaultSerializeField(name, value, generator);
+        } else {
+            writeNull(generator, provider, name);
+        }
+    }
+
+    private static void writeNull(JsonGenerator generator, SerializerProvider provider,
+                                  String name) throws IOException {
+        if (!BinaryFormatConfiguration.leavesOutNulls(provider)) {
+            generator.writeNullField(name);
+        }
+    }
+}
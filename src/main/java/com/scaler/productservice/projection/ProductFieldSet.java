@@ -0,0 +1,134 @@
+package com.scaler.productservice.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.scaler.productservice.exceptions.InvalidFieldsException;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+public final class ProductFieldSet {
+
+    /*
+    A set of ProductFields, e.g. from ?fields=id,title,price, together with
+    everything that depends only on the set: the fields in output order and
+    the JPQL select clause. There are only 2^12 possible sets, so every set is
+    built once and then shared (see of()): a request for a field set that was
+    seen before parses the parameter and does one map lookup, the rest is done.
+    The id is part of every set, a product without its id is of no use.
+     */
+
+    private static final ProductField[] ALL_FIELDS = ProductField.values();
+    private static final Map<String, ProductField> FIELDS_BY_NAME = new HashMap<>();
+    private static final ConcurrentMap<Integer, ProductFieldSet> SETS = new ConcurrentHashMap<>();
+
+    static {
+        for (ProductField field : ALL_FIELDS) {
+            FIELDS_BY_NAME.put(field.getFieldName().toLowerCase(Locale.ROOT), field);
+        }
+    }
+
+    public static final ProductFieldSet ALL = of((1 << ALL_FIELDS.length) - 1);
+
+    // bit n is set when ProductField with ordinal n is in the set
+    private final int mask;
+    private final ProductField[] fields;
+    private final String selectClause;
+    private final String names;
+
+    private ProductFieldSet(int mask) {
+        this.mask = mask;
+        this.fields = Arrays.stream(ALL_FIELDS)
+                .filter(field -> (mask & bit(field)) != 0)
+                .toArray(ProductField[]::new);
+        this.selectClause = Arrays.stream(fields)
+                .map(ProductField::getPath)
+                .collect(Collectors.joining(", "));
+        this.names = Arrays.stream(fields)
+                .map(ProductField::getFieldName)
+                .collect(Collectors.joining(","));
+    }
+
+    /*
+    Parses a comma separated list of field names (case insensitive, blanks
+    ignored). An unknown name is the client's mistake: InvalidFieldsException
+     */
+    public static ProductFieldSet parse(String fieldNames) {
+        int mask = bit(ProductField.ID);
+        for (String name : fieldNames.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            ProductField field = FIELDS_BY_NAME.get(trimmed.toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new InvalidFieldsException("Unknown field " + trimmed + ", choose from "
+                        + Arrays.stream(ALL_FIELDS).map(ProductField::getFieldName).collect(Collectors.joining(",")));
+            }
+            mask |= bit(field);
+        }
+        return of(mask);
+    }
+
+    private static ProductFieldSet of(int mask) {
+        return SETS.computeIfAbsent(mask, ProductFieldSet::new);
+    }
+
+    private static int bit(ProductField field) {
+        return 1 << field.ordinal();
+    }
+
+    // This set plus some more fields, e.g. the ones a query needs for itself
+    public ProductFieldSet with(ProductField... more) {
+        int withMask = mask;
+        for (ProductField field : more) {
+            withMask |= bit(field);
+        }
+        return withMask == mask ? this : of(withMask);
+    }
+
+    // "p.id, p.title, ..." for a query on "Product p", in ProductField order
+    public String getSelectClause() {
+        return selectClause;
+    }
+
+    // A detached Product from a row of the select clause above. The category
+    // id is turned into the category by the given lookup
+    public Product toProduct(Object[] row, LongFunction<Category> categories) {
+        Product product = new Product();
+        for (int i = 0; i < fields.length; i++) {
+            ProductField field = fields[i];
+            Object value = row[i];
+            if (field == ProductField.CATEGORY) {
+                product.setCategory(value == null ? null : categories.apply((Long) value));
+            } else if (value != null) {
+                field.set(product, value);
+            }
+        }
+        return product;
+    }
+
+    // Writes only the fields of this set, see ProductField
+    public void write(Product product, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(product);
+        for (ProductField field : fields) {
+            field.write(product, generator, provider);
+        }
+        generator.writeEndObject();
+    }
+
+    // The canonical form of the set, the same for any order or case of the names
+    @Override
+    public String toString() {
+        return names;
+    }
+}
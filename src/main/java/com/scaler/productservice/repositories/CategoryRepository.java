@@ -0,0 +1,18 @@
+package com.scaler.productservice.repositories;
+
+import com.scaler.productservice.models.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    Optional<Category> findByName(String name);
+
+    // One "where name in (...)" query for a whole batch of products
+    List<Category> findByNameIn(Collection<String> names);
+}
@@ -0,0 +1,21 @@
+package com.scaler.productservice.repositories;
+
+import com.scaler.productservice.models.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    // The primary key is the sequence number, so this is a range scan on it
+    @Query("select c from ProductChange c where c.seq > :since order by c.seq asc")
+    List<ProductChange> findChangesAfter(@Param("since") long since, Limit limit);
+
+    @Query("select max(c.seq) from ProductChange c")
+    Long findLatestSeq();
+}
@@ -0,0 +1,20 @@
+package com.scaler.productservice.repositories;
+
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductFieldSet;
+
+import java.util.List;
+import java.util.Optional;
+
+// Part of ProductRepository (a Spring Data fragment, see ProductFieldsRepositoryImpl):
+// the read queries for sparse fieldsets, which select only the columns of the
+// requested fields. Every row holds the values in fields.getSelectClause() order
+public interface ProductFieldsRepository {
+
+    Optional<Object[]> findFieldsById(ProductFieldSet fields, Long id);
+
+    // Same keyset pagination as the find*Page* queries of ProductRepository,
+    // the fields must contain the sort field
+    List<Object[]> findPageFields(ProductFieldSet fields, ProductSortField sortField, ProductCursor cursor, int limit);
+}
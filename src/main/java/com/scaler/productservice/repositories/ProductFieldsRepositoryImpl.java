@@ -0,0 +1,69 @@
+package com.scaler.productservice.repositories;
+
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductFieldSet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Optional;
+
+public class ProductFieldsRepositoryImpl implements ProductFieldsRepository {
+
+    /*
+    The select clause depends on the field set, so these queries are built
+    here instead of being declared with @Query. A field set always produces
+    the same JPQL string, and Hibernate keeps the parsed query in its query
+    plan cache under that string, so a field set is only parsed the first
+    time it is used. The where and order by clauses are the ones of the
+    keyset queries in ProductRepository.
+     */
+
+    private EntityManager entityManager;
+
+    @Autowired
+    public ProductFieldsRepositoryImpl(EntityManager entityManagerObj) {
+        this.entityManager = entityManagerObj;
+    }
+
+    @Override
+    public Optional<Object[]> findFieldsById(ProductFieldSet fields, Long id) {
+        return entityManager.createQuery("select " + fields.getSelectClause() + " from Product p where p.id = :id",
+                        Object[].class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Object[]> findPageFields(ProductFieldSet fields, ProductSortField sortField,
+                                         ProductCursor cursor, int limit) {
+        String select = "select " + fields.getSelectClause() + " from Product p ";
+        TypedQuery<Object[]> query = switch (sortField) {
+            case ID -> cursor == null
+                    ? entityManager.createQuery(select + "order by p.id asc", Object[].class)
+                    : entityManager.createQuery(select + "where p.id > :id order by p.id asc", Object[].class)
+                    .setParameter("id", cursor.getId());
+            case PRICE -> cursor == null
+                    ? entityManager.createQuery(select + "order by p.price asc, p.id asc", Object[].class)
+                    : entityManager.createQuery(select + "where p.price >= :price and (p.price > :price or p.id > :id) " +
+                            "order by p.price asc, p.id asc", Object[].class)
+                    .setParameter("price", cursor.getPrice())
+                    .setParameter("id", cursor.getId());
+            case UPDATED_AT -> cursor == null
+                    ? entityManager.createQuery(select + "order by p.updatedAt asc, p.id asc", Object[].class)
+                    : cursor.getUpdatedAt() == null
+                    // after a product without updatedAt, see findPageAfterNullUpdatedAt
+                    ? entityManager.createQuery(select + "where (p.updatedAt is null and p.id > :id) or " +
+                            "p.updatedAt is not null order by p.updatedAt asc, p.id asc", Object[].class)
+                    .setParameter("id", cursor.getId())
+                    : entityManager.createQuery(select + "where p.updatedAt >= :updatedAt and " +
+                            "(p.updatedAt > :updatedAt or p.id > :id) order by p.updatedAt asc, p.id asc", Object[].class)
+                    .setParameter("updatedAt", cursor.getUpdatedAt())
+                    .setParameter("id", cursor.getId());
+        };
+        return query.setMaxResults(limit).getResultList();
+    }
+}
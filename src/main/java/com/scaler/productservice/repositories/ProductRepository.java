@@ -0,0 +1,111 @@
+package com.scaler.productservice.repositories;
+
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductPriceRow;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductView;
+import com.scaler.productservice.models.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductFieldsRepository {
+
+    /*
+    Read paths return ProductView projections: one statement, no entity per row
+    and no lazy category loads afterwards (N+1). p.category.id is read straight
+    from the foreign key column, the category itself comes from CategoryDictionary.
+     */
+    String VIEW = "select new com.scaler.productservice.dtos.ProductView(" +
+            "p.id, p.title, p.price, p.description, p.imageUrl, p.category.id, p.updatedAt, p.version) " +
+            "from Product p ";
+
+    @Query(VIEW + "where p.id = :id")
+    Optional<ProductView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW + "order by p.id asc")
+    List<ProductView> findAllViews();
+
+    // Batch read: all requested products with a single "where id in (...)" query
+    @Query(VIEW + "where p.id in :ids")
+    List<ProductView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /*
+    Validators for conditional GETs (ETag / Last-Modified). They read a couple of
+    columns instead of the whole product, so a 304 Not Modified costs much less
+    than the full response. The catalog changes whenever a product is added or
+    deleted (count) or updated (updatedAt is set on every update).
+     */
+    @Query("select new com.scaler.productservice.dtos.ProductVersion(p.id, p.version, p.updatedAt) " +
+            "from Product p where p.id = :id")
+    Optional<ProductVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select new com.scaler.productservice.dtos.CatalogVersion(count(p), max(p.updatedAt)) from Product p")
+    CatalogVersion findCatalogVersion();
+
+    // Write paths need the managed entity. The entity graph fetches the category
+    // in the same select instead of leaving a lazy proxy behind
+    @EntityGraph(attributePaths = "category")
+    Optional<Product> findWithCategoryById(Long id);
+
+    @EntityGraph(attributePaths = "category")
+    List<Product> findWithCategoryByIdIn(Collection<Long> ids);
+
+    // Only what the catalog snapshot needs, read in id order a chunk at a time
+    @Query("select new com.scaler.productservice.dtos.ProductPriceRow(p.id, p.price, p.category.id) " +
+            "from Product p where p.id > :id order by p.id asc")
+    List<ProductPriceRow> findPriceRowsAfterId(@Param("id") long id, Limit limit);
+
+    // The ids we have or had: stored products, soft-deleted ones included
+    // (native, so Hibernate adds no is_deleted filter), and upstream products
+    // deleted here whose rows have been purged since
+    @Query(value = "select id from product where id in (:ids) " +
+            "union select id from deleted_upstream_product where id in (:ids)", nativeQuery = true)
+    List<Long> findStoredOrDeletedIds(@Param("ids") Collection<Long> ids);
+
+    /*
+    Keyset (seek) pagination queries. Instead of OFFSET n, which makes the
+    database read and throw away n rows, every query starts right after the
+    (sort value, id) of the last row of the previous page.
+    The conditions are written as "value >= x and (value > x or id > y)" so
+    that the leading range on the sort column is obvious to the optimizer and
+    it can range scan the (value, id) indexes declared on Product.
+     */
+
+    @Query(VIEW + "order by p.id asc")
+    List<ProductView> findFirstPageById(Limit limit);
+
+    @Query(VIEW + "where p.id > :id order by p.id asc")
+    List<ProductView> findPageAfterId(@Param("id") Long id, Limit limit);
+
+    @Query(VIEW + "order by p.price asc, p.id asc")
+    List<ProductView> findFirstPageByPrice(Limit limit);
+
+    @Query(VIEW + "where p.price >= :price and (p.price > :price or p.id > :id) " +
+            "order by p.price asc, p.id asc")
+    List<ProductView> findPageAfterPrice(@Param("price") double price, @Param("id") Long id, Limit limit);
+
+    @Query(VIEW + "order by p.updatedAt asc, p.id asc")
+    List<ProductView> findFirstPageByUpdatedAt(Limit limit);
+
+    @Query(VIEW + "where p.updatedAt >= :updatedAt and (p.updatedAt > :updatedAt or p.id > :id) " +
+            "order by p.updatedAt asc, p.id asc")
+    List<ProductView> findPageAfterUpdatedAt(@Param("updatedAt") Date updatedAt, @Param("id") Long id, Limit limit);
+
+    // The page after a product without updatedAt (rows written outside of JPA).
+    // "updatedAt >= null" matches nothing, so these need their own query. MySQL
+    // (and H2) sort nulls first in ascending order, like ProductSortField.UPDATED_AT:
+    // the rest of the null rows by id, then every row that has a timestamp
+    @Query(VIEW + "where (p.updatedAt is null and p.id > :id) or p.updatedAt is not null " +
+            "order by p.updatedAt asc, p.id asc")
+    List<ProductView> findPageAfterNullUpdatedAt(@Param("id") Long id, Limit limit);
+}
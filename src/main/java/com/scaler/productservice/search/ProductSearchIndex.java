@@ -0,0 +1,483 @@
+package com.scaler.productservice.search;
+
+import com.scaler.productservice.config.SearchProperties;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductSearchHit;
+import com.scaler.productservice.dtos.ProductSearchResult;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.service.ProductService;
+import com.scaler.productservice.service.ProductsChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+@Service("productSearchIndex") // This tells Spring to make this class a service
+public class ProductSearchIndex {
+
+    /*
+    An inverted index over the title, description and category name of every
+    product in our database: for every word (term) the ids of the products
+    that contain it. A query only touches the products of its words instead of
+    the whole catalog.
+    - Filled at startup by reading the catalog page by page, the pages are
+      indexed in parallel while the next one is read.
+    - Kept up to date with the ProductsChangedEvent that ProductChangeLog
+      publishes for every add, update and delete. After the commit the changed
+      products are read again and re-indexed (or removed).
+    - A read can reach the index after a newer one: the rebuild may index a
+      page read before a delete that refresh() has already removed. Every read
+      takes a number from a clock before it starts, and a delete leaves a
+      tombstone with the number of the read that found the product gone. A
+      product from an older read is not indexed again. Tombstones are dropped
+      once no read older than them is still being indexed.
+    - Queries take no locks: everything lives in concurrent maps. A query that
+      runs while a product is re-indexed can find it through an old term, so
+      every match is checked against the current document before it counts.
+    Terms are never removed from the dictionary, only their product ids. A
+    term that no product uses any more is skipped by the lookups.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // A word in the title says more about a product than one in the description
+    private static final float TITLE_WEIGHT = 3;
+    private static final float CATEGORY_WEIGHT = 2;
+    private static final float DESCRIPTION_WEIGHT = 1;
+
+    private ProductService store;
+    private TransactionTemplate transactionTemplate;
+    private SearchProperties properties;
+
+    private final Map<Long, IndexedProduct> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    // sorted, for the prefix lookups
+    private final ConcurrentSkipListSet<String> terms = new ConcurrentSkipListSet<>();
+
+    // Orders the reads that feed the index, see remove()
+    private final AtomicLong clock = new AtomicLong();
+    // product id -> clock of the read that found it deleted
+    private final Map<Long, Long> tombstones = new ConcurrentHashMap<>();
+    // clock of every read whose products are still being indexed
+    private final ConcurrentSkipListSet<Long> readsInFlight = new ConcurrentSkipListSet<>();
+
+    @Autowired
+    public ProductSearchIndex(@Qualifier("selfProductService") ProductService storeObj,
+                              PlatformTransactionManager transactionManagerObj,
+                              SearchProperties propertiesObj,
+                              MeterRegistry meterRegistryObj) {
+        this.store = storeObj;
+        // The changed products are read after the commit of the change. That
+        // needs a new transaction, and a read-write one, so it is not routed to
+        // a read replica that may not have the change yet
+        this.transactionTemplate = new TransactionTemplate(transactionManagerObj);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = propertiesObj;
+
+        Gauge.builder("product.search.documents", documents, Map::size)
+                .description("Products in the search index")
+                .register(meterRegistryObj);
+    }
+
+    // ---------------------------------------------------------------- indexing
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        int threads = properties.getRebuildThreads() > 0
+                ? properties.getRebuildThreads() : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int read = 0;
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            ProductCursor cursor = null;
+            do {
+                long readAt = beginRead();
+                ProductPage page;
+                try {
+                    page = store.getProductPage(ProductSortField.ID, cursor, properties.getRebuildPageSize());
+                } catch (RuntimeException e) {
+                    endRead(readAt);
+                    throw e;
+                }
+                List<Product> products = page.getProducts();
+                pending.add(executor.submit(() -> {
+                    try {
+                        products.forEach(product -> index(product, readAt));
+                    } finally {
+                        endRead(readAt);
+                    }
+                }));
+                read += products.size();
+                cursor = page.getNextCursor() == null || products.isEmpty()
+                        ? null : ProductCursor.after(ProductSortField.ID, products.get(products.size() - 1));
+            } while (cursor != null);
+            for (Future<?> future : pending) {
+                future.get();
+            }
+            log.info("Indexed {} products for search in {} ms", read, (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            // search then only knows the products that change from now on
+            log.error("Building the search index failed after {} products", read, e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        refresh(event.getProductIds());
+    }
+
+    // Reads the products again and indexes what is there now, the ones that
+    // are gone (deleted) are removed
+    public void refresh(Collection<Long> ids) {
+        long readAt = beginRead();
+        try {
+            ProductBatch batch = transactionTemplate.execute(status -> store.getProducts(ids));
+            batch.getProducts().forEach(product -> index(product, readAt));
+            batch.getNotFoundIds().forEach(id -> remove(id, readAt));
+        } catch (RuntimeException e) {
+            // the change itself is committed, only search does not know it yet
+            log.warn("Could not update {} products in the search index", ids.size(), e);
+        } finally {
+            endRead(readAt);
+        }
+    }
+
+    // Products that were just read
+    public void index(Product product) {
+        index(product, clock.incrementAndGet());
+    }
+
+    // readAt: the clock when the read of the product started
+    void index(Product product, long readAt) {
+        IndexedProduct document = IndexedProduct.of(product);
+        // compute runs one update per product at a time, updates of
+        // different products do not wait for each other
+        documents.compute(product.getId(), (id, old) -> {
+            Long removedAt = tombstones.get(id);
+            if (removedAt != null) {
+                if (removedAt > readAt) {
+                    // read before the product was deleted, it stays deleted
+                    return old;
+                }
+                tombstones.remove(id, removedAt);
+            }
+            if (old != null && old.isNewerThan(document)) {
+                // an older read of the product arrived late (the startup rebuild)
+                return old;
+            }
+            if (old != null) {
+                for (String term : old.weights.keySet()) {
+                    if (!document.weights.containsKey(term)) {
+                        unpost(term, id);
+                    }
+                }
+            }
+            for (String term : document.weights.keySet()) {
+                postings.computeIfAbsent(term, newTerm -> {
+                    terms.add(newTerm);
+                    return ConcurrentHashMap.newKeySet();
+                }).add(id);
+            }
+            return document;
+        });
+    }
+
+    public void remove(Long id) {
+        remove(id, clock.incrementAndGet());
+    }
+
+    // readAt: the clock when the read that found the product deleted started.
+    // The tombstone is written under the same lock as the document, so an
+    // index() of the product sees either the document or the tombstone
+    void remove(Long id, long readAt) {
+        documents.compute(id, (key, old) -> {
+            tombstones.merge(key, readAt, Math::max);
+            if (old != null) {
+                for (String term : old.weights.keySet()) {
+                    unpost(term, key);
+                }
+            }
+            return null;
+        });
+    }
+
+    // Taking the number and registering it is one step, so pruneTombstones()
+    // never misses a read that is older than a tombstone
+    synchronized long beginRead() {
+        long readAt = clock.incrementAndGet();
+        readsInFlight.add(readAt);
+        return readAt;
+    }
+
+    void endRead(long readAt) {
+        readsInFlight.remove(readAt);
+        if (!tombstones.isEmpty()) {
+            pruneTombstones();
+        }
+    }
+
+    // A tombstone only matters to reads that started before it
+    private void pruneTombstones() {
+        long oldestRead;
+        synchronized (this) {
+            oldestRead = readsInFlight.isEmpty() ? clock.get() + 1 : readsInFlight.first();
+        }
+        tombstones.entrySet().removeIf(tombstone -> tombstone.getValue() < oldestRead);
+    }
+
+    int tombstoneCount() {
+        return tombstones.size();
+    }
+
+    private void unpost(String term, Long id) {
+        Set<Long> ids = postings.get(term);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // ---------------------------------------------------------------- queries
+
+    /*
+    Every word of the query has to match (AND). The last word is matched as a
+    prefix unless the query ends with a space, so results show up while the
+    user is still typing. Score per word: weight of the field it was found in
+    times its inverse document frequency (rare words count more); a prefix
+    counts less the more of the word is still missing.
+    category, minPrice and maxPrice are optional filters.
+     */
+    public ProductSearchResult search(String query, String category, Double minPrice, Double maxPrice, int limit) {
+        ProductSearchResult result = new ProductSearchResult();
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return result;
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        // the terms every word stands for
+        List<List<String>> wordTerms = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            boolean prefix = lastIsPrefix && i == words.size() - 1;
+            List<String> matching = prefix ? termsStartingWith(words.get(i)) : List.of(words.get(i));
+            if (matching.isEmpty()) {
+                return result;
+            }
+            wordTerms.add(matching);
+        }
+
+        int total = documents.size();
+        // a min-heap of the best hits so far: keeping the top limit costs
+        // log(limit) per match instead of sorting all matches
+        Comparator<ProductSearchHit> byScore = Comparator.comparingDouble(ProductSearchHit::getScore)
+                .thenComparing(ProductSearchHit::getId, Comparator.reverseOrder());
+        PriorityQueue<ProductSearchHit> best = new PriorityQueue<>(byScore);
+        int totalHits = 0;
+        for (Long id : candidates(wordTerms)) {
+            IndexedProduct document = documents.get(id);
+            if (document == null || !document.passes(category, minPrice, maxPrice)) {
+                continue;
+            }
+            double score = 0;
+            for (int i = 0; i < words.size() && score >= 0; i++) {
+                double wordScore = -1;
+                for (String term : wordTerms.get(i)) {
+                    Float weight = document.weights.get(term);
+                    if (weight != null) {
+                        double coverage = (double) words.get(i).length() / term.length();
+                        wordScore = Math.max(wordScore, weight * coverage * idf(term, total));
+                    }
+                }
+                score = wordScore < 0 ? -1 : score + wordScore;
+            }
+            if (score < 0) {
+                // the document changed since it was found through this term
+                continue;
+            }
+            totalHits++;
+            best.add(document.toHit(score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<ProductSearchHit> hits = new ArrayList<>(best);
+        hits.sort(byScore.reversed());
+        result.setHits(hits);
+        result.setTotalHits(totalHits);
+        return result;
+    }
+
+    // Completions of the last word of the query, the most used terms first,
+    // e.g. "wireless mo" -> "wireless mouse", "wireless monitor"
+    public List<String> suggest(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        String start = String.join(" ", words.subList(0, words.size() - 1));
+        List<String> completions = new ArrayList<>(termsStartingWith(words.get(words.size() - 1)));
+        completions.sort(Comparator.comparingInt(this::documentFrequency).reversed());
+        return completions.stream()
+                .limit(limit)
+                .map(term -> start.isEmpty() ? term : start + " " + term)
+                .toList();
+    }
+
+    // The products to score: the ones of the word with the fewest products,
+    // every other word only narrows them down
+    private Set<Long> candidates(List<List<String>> wordTerms) {
+        List<String> rarest = null;
+        int rarestCount = Integer.MAX_VALUE;
+        for (List<String> matching : wordTerms) {
+            int count = 0;
+            for (String term : matching) {
+                count += documentFrequency(term);
+            }
+            if (count < rarestCount) {
+                rarest = matching;
+                rarestCount = count;
+            }
+        }
+        Set<Long> ids = new HashSet<>(rarestCount);
+        for (String term : rarest) {
+            ids.addAll(postings.getOrDefault(term, Set.of()));
+        }
+        return ids;
+    }
+
+    private List<String> termsStartingWith(String prefix) {
+        List<String> matching = new ArrayList<>();
+        for (String term : terms.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            if (documentFrequency(term) > 0) {
+                matching.add(term);
+                if (matching.size() >= properties.getMaxPrefixTerms()) {
+                    break;
+                }
+            }
+        }
+        return matching;
+    }
+
+    private int documentFrequency(String term) {
+        Set<Long> ids = postings.get(term);
+        return ids == null ? 0 : ids.size();
+    }
+
+    private double idf(String term, int total) {
+        return Math.log(1 + (double) total / Math.max(1, documentFrequency(term)));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // What the index keeps of a product: enough for a search hit, plus the
+    // weight of every term it contains
+    private static final class IndexedProduct {
+        private final Long id;
+        private final String title;
+        private final double price;
+        private final String category;
+        private final String imageUrl;
+        private final Long version;
+        private final Map<String, Float> weights;
+
+        private IndexedProduct(Product product, String category, Map<String, Float> weights) {
+            this.id = product.getId();
+            this.title = product.getTitle();
+            this.price = product.getPrice();
+            this.category = category;
+            this.imageUrl = product.getImageUrl();
+            this.version = product.getVersion();
+            this.weights = weights;
+        }
+
+        static IndexedProduct of(Product product) {
+            String category = product.getCategory() == null ? null : product.getCategory().getName();
+            Map<String, Float> weights = new HashMap<>();
+            for (String term : tokenize(product.getTitle())) {
+                weights.merge(term, TITLE_WEIGHT, Float::sum);
+            }
+            for (String term : tokenize(category)) {
+                weights.merge(term, CATEGORY_WEIGHT, Float::sum);
+            }
+            for (String term : tokenize(product.getDescription())) {
+                weights.merge(term, DESCRIPTION_WEIGHT, Float::sum);
+            }
+            return new IndexedProduct(product, category, weights);
+        }
+
+        boolean isNewerThan(IndexedProduct other) {
+            return version != null && other.version != null && version > other.version;
+        }
+
+        boolean passes(String categoryFilter, Double minPrice, Double maxPrice) {
+            return (categoryFilter == null || categoryFilter.equalsIgnoreCase(category))
+                    && (minPrice == null || price >= minPrice)
+                    && (maxPrice == null || price <= maxPrice);
+        }
+
+        ProductSearchHit toHit(double score) {
+            ProductSearchHit hit = new ProductSearchHit();
+            hit.setId(id);
+            hit.setTitle(title);
+            hit.setPrice(price);
+            hit.setCategory(category);
+            hit.setImageUrl(imageUrl);
+            hit.setScore(score);
+            return hit;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.scaler.productservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.scaler.productservice.config.ProductCacheProperties;
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductPages;
+import com.scaler.productservice.pagination.ProductSortField;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service("cachingProductService") // This tells Spring to make this class a service
+public class CachingProductService implements ProductService {
+
+    // This is a decorator: it implements ProductService itself, but every
+    // call is forwarded to another ProductService (the delegate) and the
+    // answers of the read methods are remembered in a Caffeine cache.
+    // Caffeine gives us a size bound with eviction, per-entry expiry,
+    // background refresh and hit/miss/eviction counters out of the box.
+
+    private static final String CATALOG_KEY = "all";
+
+    private ProductService delegate;
+    private LoadingCache<Long, CachedLookup> productCache;
+    private Cache<String, List<Product>> catalogCache;
+
+    @Autowired
+    public CachingProductService(@Qualifier("fakeStoreProductService") ProductService delegateObj,
+                                 ProductCacheProperties properties,
+                                 @Qualifier("upstreamExecutor") TaskExecutor refreshExecutor) {
+        this(delegateObj, properties, refreshExecutor, Ticker.systemTicker());
+    }
+
+    // The ticker is the clock of the expiry, tests pass one they can move forward
+    CachingProductService(ProductService delegateObj, ProductCacheProperties properties,
+                          TaskExecutor refreshExecutor, Ticker ticker) {
+        this.delegate = delegateObj;
+
+        // refreshAfterWrite keeps serving the old value while a reload runs in the
+        // background, so a hot product never blocks a request on the upstream call.
+        // Refreshes run on the upstream executor (virtual threads when they are enabled)
+        this.productCache = Caffeine.newBuilder()
+                .executor(refreshExecutor)
+                .ticker(ticker)
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new LookupExpiry(properties))
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .recordStats()
+                .build(this::load);
+
+        this.catalogCache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(properties.getCatalogTtl())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    // Called by Caffeine on a miss (and on background refresh)
+    private CachedLookup load(Long id) {
+        try {
+            Product product = delegate.getSingleProduct(id);
+            return product == null ? CachedLookup.MISSING : CachedLookup.found(product);
+        } catch (ProductDoesNotExistException exception) {
+            // Negative caching: we only remember that the id does not exist, so
+            // repeated lookups of a missing id do not call the upstream again
+            return CachedLookup.MISSING;
+        }
+    }
+
+    @Override
+    public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+        CachedLookup lookup = productCache.get(id);
+        if (lookup.isMissing()) {
+            // a new exception for every caller, so each gets its own message, but
+            // without a stack trace: that walk is what made cached misses expensive
+            throw ProductDoesNotExistException.withoutStackTrace("Product with id " + id + " does not exist");
+        }
+        return lookup.product();
+    }
+
+    @Override
+    public ProductBatch getProducts(Collection<Long> ids) {
+        // Answer what we can from the cache and send only the misses to the
+        // delegate, as one batch. Its answers are cached like single lookups
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>();
+        Set<Long> notFound = new HashSet<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            CachedLookup lookup = productCache.getIfPresent(id);
+            if (lookup == null) {
+                misses.add(id);
+            } else if (lookup.isMissing()) {
+                notFound.add(id);
+            } else {
+                found.put(id, lookup.product());
+            }
+        }
+        if (!misses.isEmpty()) {
+            ProductBatch loaded = delegate.getProducts(misses);
+            for (Product product : loaded.getProducts()) {
+                found.put(product.getId(), product);
+                productCache.put(product.getId(), CachedLookup.found(product));
+            }
+            for (Long id : loaded.getNotFoundIds()) {
+                notFound.add(id);
+                productCache.put(id, CachedLookup.MISSING);
+            }
+            // failed ids are not cached, the next request tries them again
+        }
+        return ProductBatch.of(uniqueIds, found, notFound);
+    }
+
+    // The validators are cheap and must be current, so they are never cached
+
+    @Override
+    public ProductVersion getProductVersion(Long id) {
+        return delegate.getProductVersion(id);
+    }
+
+    @Override
+    public CatalogVersion getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return catalogCache.get(CATALOG_KEY, key -> {
+            List<Product> products = delegate.getAllProducts();
+            return products == null ? List.of() : List.copyOf(products);
+        });
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        // Page through the cached catalog when there is one, otherwise let the
+        // delegate answer (a database can seek straight to the page)
+        List<Product> cached = catalogCache.getIfPresent(CATALOG_KEY);
+        if (cached != null) {
+            return ProductPages.slice(cached, sortField, cursor, size);
+        }
+        return delegate.getProductPage(sortField, cursor, size);
+    }
+
+    @Override
+    public void forEachProduct(Consumer<Product> consumer) {
+        // Serve a cached catalog if we have one, but never build one just for
+        // streaming: that would put the whole catalog in memory again
+        List<Product> cached = catalogCache.getIfPresent(CATALOG_KEY);
+        if (cached != null) {
+            cached.forEach(consumer);
+        } else {
+            delegate.forEachProduct(consumer);
+        }
+    }
+
+    // All the write methods go straight to the delegate and then throw away
+    // whatever we remembered for that id and the cached catalog
+
+    @Override
+    public Product addProduct(Product product) {
+        Product added = delegate.addProduct(product);
+        if (added != null && added.getId() != null) {
+            productCache.invalidate(added.getId());
+        }
+        catalogCache.invalidateAll();
+        return added;
+    }
+
+    @Override
+    public List<Product> addProducts(List<Product> products) {
+        List<Product> added = delegate.addProducts(products);
+        catalogCache.invalidateAll();
+        return added;
+    }
+
+    @Override
+    public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+        Product updated = delegate.updateProduct(id, product);
+        invalidate(id);
+        return updated;
+    }
+
+    @Override
+    public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+        Product replaced = delegate.replaceProduct(id, product);
+        invalidate(id);
+        return replaced;
+    }
+
+    @Override
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        Product deleted = delegate.deleteProduct(id);
+        invalidate(id);
+        return deleted;
+    }
+
+    private void invalidate(Long id) {
+        productCache.invalidate(id);
+        catalogCache.invalidateAll();
+    }
+
+    public CacheStats getProductCacheStats() {
+        return productCache.stats();
+    }
+
+    public CacheStats getCatalogCacheStats() {
+        return catalogCache.stats();
+    }
+
+    public long getProductCacheSize() {
+        return productCache.estimatedSize();
+    }
+
+    public long getCatalogCacheSize() {
+        return catalogCache.estimatedSize();
+    }
+
+    // A cache entry is either a product or MISSING, the id does not exist
+    private record CachedLookup(Product product) {
+        static final CachedLookup MISSING = new CachedLookup(null);
+
+        static CachedLookup found(Product product) {
+            return new CachedLookup(product);
+        }
+
+        boolean isMissing() {
+            return product == null;
+        }
+    }
+
+    // Found products live for expireAfterWrite, missing ids only for negativeTtl
+    private static class LookupExpiry implements Expiry<Long, CachedLookup> {
+        private final long expireNanos;
+        private final long negativeNanos;
+
+        LookupExpiry(ProductCacheProperties properties) {
+            this.expireNanos = properties.getExpireAfterWrite().toNanos();
+            this.negativeNanos = properties.getNegativeTtl().toNanos();
+        }
+
+        private long ttl(CachedLookup lookup) {
+            return lookup.isMissing() ? negativeNanos : expireNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Long id, CachedLookup lookup, long currentTime) {
+            return ttl(lookup);
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, CachedLookup lookup, long currentTime, long currentDuration) {
+            return ttl(lookup);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, CachedLookup lookup, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Category;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class CategoryDictionary {
+
+    /*
+    Categories are a handful of rows that almost never change, yet every product
+    we load or convert needs one. Instead of querying them we keep one instance
+    per category here, indexed by id and by name.
+    ConcurrentHashMap lets any number of request threads read without locking.
+    The stored instances are shared: every product read from the database or
+    converted from FakeStore points at the same Category of its name, no
+    allocation per product. They are detached and never merged, and callers
+    must not change them. A write that attaches a category to a persistence
+    context takes a copy() first (SelfProductService does), so nothing
+    Hibernate does to it reaches the other products.
+    A category registered inside a transaction is only added once that
+    transaction has committed. If it rolls back, the dictionary would otherwise
+    hand out an id that does not exist.
+     */
+
+    private final ConcurrentMap<Long, Category> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Category> byName = new ConcurrentHashMap<>();
+
+    // Called once at startup with all stored categories
+    public void preload(Collection<Category> categories) {
+        categories.forEach(this::register);
+    }
+
+    // Adds (or replaces) a stored category, e.g. right after it was inserted.
+    // Stores a copy, the caller keeps its own instance. Returns the shared one
+    public Category register(Category category) {
+        Category stored = copy(category);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(stored);
+                }
+            });
+        } else {
+            put(stored);
+        }
+        return stored;
+    }
+
+    private void put(Category category) {
+        if (category.getId() != null) {
+            byId.put(category.getId(), category);
+        }
+        if (category.getName() != null) {
+            byName.put(category.getName(), category);
+        }
+    }
+
+    public Category getById(Long id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    public Category getByName(String name) {
+        return name == null ? null : byName.get(name);
+    }
+
+    // Only the name, for callers that do not need a Category
+    public String getNameById(Long id) {
+        Category category = id == null ? null : byId.get(id);
+        return category == null ? null : category.getName();
+    }
+
+    // The category for this name. Names we have never seen (e.g. FakeStore
+    // categories that are not in our database) get an id-less instance once
+    public Category intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        return byName.computeIfAbsent(name, key -> {
+            Category category = new Category();
+            category.setName(key);
+            return category;
+        });
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    // A private instance of a category, for a write that attaches it to a
+    // persistence context
+    public static Category copy(Category category) {
+        if (category == null) {
+            return null;
+        }
+        Category copy = new Category();
+        copy.setId(category.getId());
+        copy.setName(category.getName());
+        copy.setCreatedAt(category.getCreatedAt());
+        copy.setCreatedBy(category.getCreatedBy());
+        copy.setUpdatedAt(category.getUpdatedAt());
+        copy.setUpdatedBy(category.getUpdatedBy());
+        copy.setDeleted(category.isDeleted());
+        return copy;
+    }
+}
@@ -0,0 +1,112 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.repositories.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class CategoryUpserter {
+
+    /*
+    Finds the stored categories for a set of names and creates the missing ones.
+    Two ingests (on this or another instance) that both bring a new category
+    used to both see it missing, both insert it, and the later one failed on
+    the unique name. Here:
+    1. the missing categories are inserted in their own short transaction,
+       which commits right away. A long ingest no longer holds an uncommitted
+       category row that every other ingest of that name has to wait for, and
+       its rollback does not take the category with it (a category nobody uses
+       yet is harmless)
+    2. when the insert hits the unique constraint anyway, another transaction
+       has just committed that category: the next attempt finds it by name
+    Only committed categories are registered in the CategoryDictionary.
+    The insert needs a second connection while the caller's transaction holds
+    one, but only for names the database has never seen.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryUpserter.class);
+
+    // a conflict means the other row is committed, the second attempt finds it
+    private static final int MAX_ATTEMPTS = 3;
+
+    private CategoryRepository categoryRepository;
+    private CategoryDictionary categoryDictionary;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CategoryUpserter(CategoryRepository categoryRepositoryObj,
+                            CategoryDictionary categoryDictionaryObj,
+                            PlatformTransactionManager transactionManagerObj) {
+        this.categoryRepository = categoryRepositoryObj;
+        this.categoryDictionary = categoryDictionaryObj;
+        this.transactionTemplate = new TransactionTemplate(transactionManagerObj);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // The stored category for every name, by name
+    public Map<String, Category> upsert(Collection<String> names) {
+        Map<String, Category> categories = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        for (String name : names) {
+            Category known = categoryDictionary.getByName(name);
+            // id-less instances are FakeStore categories we have never stored
+            if (known != null && known.getId() != null) {
+                categories.put(name, known);
+            } else {
+                unknown.add(name);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (Category category : findOrCreate(unknown)) {
+                categories.put(category.getName(), categoryDictionary.register(category));
+            }
+        }
+        return categories;
+    }
+
+    public Category upsert(String name) {
+        return upsert(Set.of(name)).get(name);
+    }
+
+    private List<Category> findOrCreate(Set<String> names) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    List<Category> categories = new ArrayList<>(categoryRepository.findByNameIn(names));
+                    Set<String> missing = new HashSet<>(names);
+                    categories.forEach(category -> missing.remove(category.getName()));
+                    List<Category> created = new ArrayList<>();
+                    for (String name : missing) {
+                        Category category = new Category();
+                        category.setName(name);
+                        created.add(category);
+                    }
+                    // flushed here, so a duplicate name fails inside the repository
+                    // call and comes out as a DataIntegrityViolationException
+                    categories.addAll(categoryRepository.saveAllAndFlush(created));
+                    return categories;
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Category in {} was created concurrently, reading it again", names);
+            }
+        }
+    }
+}
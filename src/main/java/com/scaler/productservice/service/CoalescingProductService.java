@@ -0,0 +1,156 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductFieldSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service("coalescingProductService") // This tells Spring to make this class a service
+public class CoalescingProductService implements ProductService {
+
+    // Another decorator around a ProductService. When a product goes viral,
+    // hundreds of requests for the same id arrive at the same moment and each
+    // of them would run its own database query. Here concurrent reads of the
+    // same id (or the same page) share one call to the delegate, see SingleFlight.
+    // (The FakeStore path does not need this: the Caffeine LoadingCache in
+    // CachingProductService already runs only one load per key at a time.)
+
+    private static final String CATALOG_KEY = "all";
+
+    private ProductService delegate;
+    private SingleFlight<Long, Product> productFlights = new SingleFlight<>();
+    // sparse reads (?fields=), keyed by id and field set
+    private SingleFlight<String, Product> sparseProductFlights = new SingleFlight<>();
+    private SingleFlight<String, ProductPage> pageFlights = new SingleFlight<>();
+    private SingleFlight<String, List<Product>> catalogFlights = new SingleFlight<>();
+
+    @Autowired
+    public CoalescingProductService(@Qualifier("selfProductService") ProductService delegateObj) {
+        this.delegate = delegateObj;
+    }
+
+    @Override
+    public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+        return productFlights.execute(id, () -> delegate.getSingleProduct(id));
+    }
+
+    @Override
+    public Product getSingleProduct(Long id, ProductFieldSet fields) throws ProductDoesNotExistException {
+        return sparseProductFlights.execute(id + ":" + fields, () -> delegate.getSingleProduct(id, fields));
+    }
+
+    @Override
+    public ProductBatch getProducts(Collection<Long> ids) {
+        // a batch is already a single query, and two carts rarely ask for the same ids
+        return delegate.getProducts(ids);
+    }
+
+    // The validators are single-row queries, not worth coalescing
+
+    @Override
+    public ProductVersion getProductVersion(Long id) {
+        return delegate.getProductVersion(id);
+    }
+
+    @Override
+    public CatalogVersion getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return catalogFlights.execute(CATALOG_KEY, delegate::getAllProducts);
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        String key = sortField + ":" + (cursor == null ? "" : cursor.encode()) + ":" + size;
+        return pageFlights.execute(key, () -> delegate.getProductPage(sortField, cursor, size));
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size,
+                                      ProductFieldSet fields) {
+        String key = sortField + ":" + (cursor == null ? "" : cursor.encode()) + ":" + size + ":" + fields;
+        return pageFlights.execute(key, () -> delegate.getProductPage(sortField, cursor, size, fields));
+    }
+
+    @Override
+    public void forEachProduct(Consumer<Product> consumer) {
+        // every caller streams to its own consumer, nothing to share
+        delegate.forEachProduct(consumer);
+    }
+
+    // Writes are not coalesced. They make a read that is still running out of
+    // date, so callers arriving after the write start a fresh read instead of
+    // joining the old one
+
+    @Override
+    public Product addProduct(Product product) {
+        Product added = delegate.addProduct(product);
+        forgetListings();
+        return added;
+    }
+
+    @Override
+    public List<Product> addProducts(List<Product> products) {
+        List<Product> added = delegate.addProducts(products);
+        forgetListings();
+        return added;
+    }
+
+    @Override
+    public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+        Product updated = delegate.updateProduct(id, product);
+        forget(id);
+        return updated;
+    }
+
+    @Override
+    public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+        Product replaced = delegate.replaceProduct(id, product);
+        forget(id);
+        return replaced;
+    }
+
+    @Override
+    public List<Long> applyWrites(List<ProductWrite> writes) {
+        // hand the whole batch to the delegate, it may write it in one go
+        List<Long> missing = delegate.applyWrites(writes);
+        writes.forEach(write -> productFlights.forget(write.getId()));
+        sparseProductFlights.forgetAll();
+        forgetListings();
+        return missing;
+    }
+
+    @Override
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        Product deleted = delegate.deleteProduct(id);
+        forget(id);
+        return deleted;
+    }
+
+    private void forget(Long id) {
+        productFlights.forget(id);
+        sparseProductFlights.forgetAll();
+        forgetListings();
+    }
+
+    private void forgetListings() {
+        catalogFlights.forget(CATALOG_KEY);
+        pageFlights.forgetAll();
+    }
+}
@@ -0,0 +1,160 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.PurgeProperties;
+import com.scaler.productservice.models.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service("deletedProductPurger") // This tells Spring to make this class a service
+public class DeletedProductPurger {
+
+    /*
+    Deleting a product only marks it as deleted (see the @SQLDelete on Product).
+    This job removes the marked rows for real once they are older than the
+    retention, so the table and its indexes do not keep growing.
+    It is careful not to get in the way of the requests:
+    - every batch is its own short transaction, locks are held for one batch only
+    - the batch is found through the (is_deleted, id) index, no table scan
+    - it pauses between batches and stops after maxBatchesPerRun
+    Metrics: product.purge.rows (removed rows), product.purge.batch (time per
+    batch), product.purge.backlog (deleted rows waiting) and product.purge.lag
+    (how long the oldest row is overdue, 0 when the purge keeps up).
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(DeletedProductPurger.class);
+
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private PurgeProperties properties;
+
+    private Counter purgedRows;
+    private Timer batchTimer;
+    private AtomicLong backlog = new AtomicLong();
+    private AtomicLong lagSeconds = new AtomicLong();
+
+    @Autowired
+    public DeletedProductPurger(EntityManager entityManagerObj,
+                                PlatformTransactionManager transactionManagerObj,
+                                PurgeProperties propertiesObj,
+                                MeterRegistry meterRegistryObj) {
+        this.entityManager = entityManagerObj;
+        this.transactionTemplate = new TransactionTemplate(transactionManagerObj);
+        this.properties = propertiesObj;
+
+        this.purgedRows = Counter.builder("product.purge.rows")
+                .description("Soft-deleted products removed from the database")
+                .register(meterRegistryObj);
+        this.batchTimer = Timer.builder("product.purge.batch")
+                .description("Time to remove one batch of soft-deleted products")
+                .register(meterRegistryObj);
+        Gauge.builder("product.purge.backlog", backlog, AtomicLong::get)
+                .description("Soft-deleted products that are still in the database")
+                .register(meterRegistryObj);
+        Gauge.builder("product.purge.lag", lagSeconds, AtomicLong::get)
+                .description("How long the oldest deleted product is overdue for purging")
+                .baseUnit("seconds")
+                .register(meterRegistryObj);
+    }
+
+    @Scheduled(initialDelayString = "${productservice.purge.interval:PT1M}",
+            fixedDelayString = "${productservice.purge.interval:PT1M}")
+    public void scheduledPurge() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            int purged = purge();
+            if (purged > 0) {
+                log.info("Purged {} deleted products, {} still waiting", purged, backlog.get());
+            }
+        } catch (RuntimeException e) {
+            // the next run tries again
+            log.error("Purging deleted products failed", e);
+        }
+    }
+
+    // Removes the products that were deleted longer than the retention ago
+    public int purge() {
+        return purgeDeletedBefore(new Date(System.currentTimeMillis() - properties.getRetention().toMillis()));
+    }
+
+    int purgeDeletedBefore(Date cutoff) {
+        int total = 0;
+        try {
+            for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+                Integer removed = batchTimer.record(() -> transactionTemplate.execute(status -> purgeBatch(cutoff)));
+                total += removed;
+                if (removed < properties.getBatchSize()) {
+                    break;
+                }
+                Thread.sleep(properties.getPauseBetweenBatches().toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            purgedRows.increment(total);
+            refreshBacklog(cutoff);
+        }
+        return total;
+    }
+
+    private int purgeBatch(Date cutoff) {
+        // Native SQL, because Hibernate adds "is_deleted = false" to every HQL query on Product
+        @SuppressWarnings("unchecked")
+        List<Number> ids = entityManager.createNativeQuery(
+                        "select id from product where is_deleted = true and updated_at < :cutoff order by id")
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(properties.getBatchSize())
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery("delete from product where is_deleted = true and id in (:ids)")
+                .setParameter("ids", ids.stream().map(Number::longValue).toList())
+                .unwrap(NativeQuery.class)
+                // tells Hibernate that only the product cache region is affected,
+                // otherwise a native delete empties the whole second-level cache
+                .addSynchronizedEntityClass(Product.class)
+                .executeUpdate();
+    }
+
+    private void refreshBacklog(Date cutoff) {
+        Object[] row = transactionTemplate.execute(status -> (Object[]) entityManager.createNativeQuery(
+                        "select count(*), min(updated_at) from product where is_deleted = true")
+                .getSingleResult());
+        backlog.set(((Number) row[0]).longValue());
+        Date oldest = toDate(row[1]);
+        long overdueMillis = oldest == null ? 0 : cutoff.getTime() - oldest.getTime();
+        lagSeconds.set(Math.max(0, overdueMillis / 1000));
+    }
+
+    private static Date toDate(Object value) {
+        if (value instanceof Date date) {
+            return date;
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return java.sql.Timestamp.valueOf(localDateTime);
+        }
+        return null;
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+}
@@ -0,0 +1,53 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.models.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FakeStoreProductConverter {
+
+    /*
+    Converts between our Product and the product of the FakeStore API.
+    Both FakeStore clients use it: FakeStoreProductService (RestTemplate) and
+    WebClientProductService (WebClient), so neither depends on the other.
+     */
+
+    // Known categories, so a FakeStore category we have stored gets its id
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    public FakeStoreProductConverter(CategoryDictionary categoryDictionaryObj) {
+        this.categoryDictionary = categoryDictionaryObj;
+    }
+
+    // method to convert productDto to normal product
+    public Product convertProductDtoToProduct(FakeStoreProductDto fakeStoreProductDto) {
+        Product product = new Product();
+        product.setId(fakeStoreProductDto.getId());
+        product.setTitle(fakeStoreProductDto.getTitle());
+        product.setPrice(fakeStoreProductDto.getPrice());
+        product.setImageUrl(fakeStoreProductDto.getImage());
+        product.setDescription(fakeStoreProductDto.getDescription());
+
+        // FakeStore only sends the category name. The dictionary gives us our
+        // stored category of that name (with its id), if we have one
+        product.setCategory(categoryDictionary.intern(fakeStoreProductDto.getCategory()));
+
+        return product;
+    }
+
+    // method to convert a given Product to product dto
+    public FakeStoreProductDto convertProductToProductDto(Product product) {
+        FakeStoreProductDto dto = new FakeStoreProductDto();
+        dto.setId(product.getId());
+        dto.setTitle(product.getTitle());
+        dto.setPrice(product.getPrice());
+        // a PATCH does not have to send the category
+        dto.setCategory(product.getCategory() == null ? null : product.getCategory().getName());
+        dto.setDescription(product.getDescription());
+        dto.setImage(product.getImageUrl());
+        return dto;
+    }
+}
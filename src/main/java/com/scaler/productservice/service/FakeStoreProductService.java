@@ -1,21 +1,45 @@
 package com.scaler.productservice.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.scaler.productservice.config.UpstreamClientProperties;
 import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
 import com.scaler.productservice.exceptions.ProductDoesNotExistException;
-import com.scaler.productservice.models.Category;
 import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductPages;
+import com.scaler.productservice.pagination.ProductSortField;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpMessageConverterExtractor;
 import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service("fakeStoreProductService") // This tells Spring to make this class a service
@@ -38,35 +62,46 @@ public class FakeStoreProductService implements ProductService{
 
     private RestTemplate restTemplate;
 
+    // <base-url>/products, the base URL comes from productservice.upstream.base-url
+    // so that tests and load tests can point us at a local stand-in
+    private String productsUrl;
+    // <base-url>/products/{id} as a URI template: the id is passed as a variable,
+    // so the http.client.requests metrics are tagged with the template and not
+    // with a new uri tag per product id
+    private String productItemUrl;
+
+    // Used to read the catalog one product at a time in forEachProduct()
+    private ObjectReader productDtoReader;
+
+    // DTO <-> Product, shared with WebClientProductService
+    private FakeStoreProductConverter converter;
+
+    // Runs the parallel lookups of getProducts()
+    private TaskExecutor upstreamExecutor;
+    private UpstreamClientProperties.Batch batchProperties;
+
 
     @Autowired
-    public FakeStoreProductService(RestTemplate restTemplateObj) {
+    public FakeStoreProductService(RestTemplate restTemplateObj, ObjectMapper objectMapper,
+                                   FakeStoreProductConverter converterObj,
+                                   @Qualifier("upstreamExecutor") TaskExecutor upstreamExecutorObj,
+                                   UpstreamClientProperties upstreamClientProperties) {
         this.restTemplate = restTemplateObj;
-    }
-
-    // method to convert productDto to normal product
-    public Product convertProductDtoToProduct(FakeStoreProductDto fakeStoreProductDto) {
-        Product product = new Product();
-        product.setId(fakeStoreProductDto.getId());
-        product.setTitle(fakeStoreProductDto.getTitle());
-        product.setPrice(fakeStoreProductDto.getPrice());
-        product.setImageUrl(fakeStoreProductDto.getImage());
-        product.setDescription(fakeStoreProductDto.getDescription());
-
-        // to set the category, you first have to create a new Object of Category class
-        // and on that Object you have to trigger setName() method of Category class
-        product.setCategory(new Category());
-        product.getCategory().setName(fakeStoreProductDto.getCategory());
-
-        return product;
+        this.productsUrl = upstreamClientProperties.getBaseUrl() + "/products";
+        this.productItemUrl = productsUrl + "/{id}";
+        this.productDtoReader = objectMapper.readerFor(FakeStoreProductDto.class);
+        this.converter = converterObj;
+        this.upstreamExecutor = upstreamExecutorObj;
+        this.batchProperties = upstreamClientProperties.getBatch();
     }
 
     // Get Single Product
     @Override
     public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
         FakeStoreProductDto productDto = restTemplate.getForObject(
-                 "https://fakestoreapi.com/products/" + id,
-                 FakeStoreProductDto.class
+                 productItemUrl,
+                 FakeStoreProductDto.class,
+                 id
         );
 
         if (productDto == null) {
@@ -77,7 +112,63 @@ public class FakeStoreProductService implements ProductService{
         // return is not getting called on a NULL object as
         // productDto can be NULL
         assert productDto != null;
-        return convertProductDtoToProduct(productDto);
+        return converter.convertProductDtoToProduct(productDto);
+    }
+
+    // Get many Products
+    @Override
+    public ProductBatch getProducts(Collection<Long> ids) {
+        /*
+        FakeStore has no "get these ids" API, so we still need one call per id,
+        but not one after the other. We start at most batch.max-concurrency workers
+        on the upstream executor. Each worker takes the next id from a shared
+        queue until the queue is empty, so no more than that many calls are in
+        flight for one batch and no thread sits waiting for a permit.
+        We wait at most batch.deadline for the workers. Ids that are not done by
+        then (or whose call failed) are reported in failedIds, the rest of the
+        batch is still returned.
+         */
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new ConcurrentHashMap<>();
+        Set<Long> notFound = ConcurrentHashMap.newKeySet();
+        Queue<Long> pending = new ConcurrentLinkedQueue<>(uniqueIds);
+        long deadline = System.nanoTime() + batchProperties.getDeadline().toNanos();
+
+        int workers = Math.min(batchProperties.getMaxConcurrency(), uniqueIds.size());
+        CountDownLatch finished = new CountDownLatch(workers);
+        Runnable worker = () -> {
+            try {
+                Long id;
+                while (System.nanoTime() < deadline && (id = pending.poll()) != null) {
+                    try {
+                        found.put(id, getSingleProduct(id));
+                    } catch (ProductDoesNotExistException e) {
+                        notFound.add(id);
+                    } catch (RuntimeException e) {
+                        // upstream error, timeout, open circuit...: this id ends up in failedIds
+                    }
+                }
+            } finally {
+                finished.countDown();
+            }
+        };
+        for (int i = 0; i < workers; i++) {
+            try {
+                upstreamExecutor.execute(worker);
+            } catch (TaskRejectedException e) {
+                // the executor is saturated, the workers that did start take over these ids
+                finished.countDown();
+            }
+        }
+
+        try {
+            finished.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // stop the workers from picking up more ids after the deadline
+        pending.clear();
+        return ProductBatch.of(uniqueIds, found, notFound);
     }
 
     // Get All Products
@@ -102,7 +193,7 @@ public class FakeStoreProductService implements ProductService{
          */
 
         /*FakeStoreProductDto[] dtoList = restTemplate.getForObject(
-                "https://fakestoreapi.com/products",
+                productsUrl,
                 FakeStoreProductDto[].class
         );
 
@@ -117,37 +208,61 @@ public class FakeStoreProductService implements ProductService{
         return productList;*/
 
         //Bard's implementation:
-        ResponseEntity<FakeStoreProductDto[]> response = restTemplate.getForEntity("https://fakestoreapi.com/products", FakeStoreProductDto[].class);
+        ResponseEntity<FakeStoreProductDto[]> response = restTemplate.getForEntity(productsUrl, FakeStoreProductDto[].class);
         FakeStoreProductDto[] dtos = response.getBody();
         return Arrays.stream(dtos)
-                .map(this::convertProductDtoToProduct)
+                .map(converter::convertProductDtoToProduct)
                 .collect(Collectors.toList());
     }
 
-    // method to convert a given Product to product dto
-    public FakeStoreProductDto convertProductToProductDto(Product product) {
-        FakeStoreProductDto dto = new FakeStoreProductDto();
-        // ... Map properties from Product to FakeStoreProductDto ...
-        dto.setId(product.getId());
-        dto.setTitle(product.getTitle());
-        dto.setPrice(product.getPrice());
-        dto.setCategory(product.getCategory().getName());
-        dto.setDescription(product.getDescription());
-        dto.setImage(product.getImageUrl());
-        return dto;
+    // Get a page of Products
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        // The FakeStore API cannot page or sort by itself, so we fetch the
+        // catalog and apply the same cursor rules in memory
+        return ProductPages.slice(getAllProducts(), sortField, cursor, size);
     }
 
+    // Stream All Products
+    @Override
+    public void forEachProduct(Consumer<Product> consumer) {
+        /*
+        getAllProducts() first reads the whole response into a FakeStoreProductDto[],
+        then copies it into a List<Product>, and the controller then writes the whole
+        list out again. Here we use restTemplate.execute() to get hold of the raw
+        response stream and let Jackson's JsonParser walk through the JSON array:
+        every element is read into a single dto, converted and handed to the consumer
+        before the next one is read. So only one product is in memory at a time.
+         */
+        restTemplate.execute(
+                productsUrl,
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                response -> {
+                    try (JsonParser parser = productDtoReader.createParser(response.getBody())) {
+                        if (parser.nextToken() != JsonToken.START_ARRAY) {
+                            throw new RestClientException("Expected a JSON array of products from FakeStore");
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            FakeStoreProductDto dto = productDtoReader.readValue(parser);
+                            consumer.accept(converter.convertProductDtoToProduct(dto));
+                        }
+                    }
+                    return null;
+                }
+        );
+    }
 
     // Add Product
     @Override
     public Product addProduct(Product product) {
-        FakeStoreProductDto dto = convertProductToProductDto(product);
+        FakeStoreProductDto dto = converter.convertProductToProductDto(product);
         FakeStoreProductDto responseProduct = restTemplate.postForObject(
-                "https://fakestoreapi.com/products",
+                productsUrl,
                 dto,
                 FakeStoreProductDto.class);
         assert responseProduct != null;
-        return convertProductDtoToProduct(responseProduct);
+        return converter.convertProductDtoToProduct(responseProduct);
     }
 
     // Update Product
@@ -160,7 +275,7 @@ public class FakeStoreProductService implements ProductService{
         restTemplate.patchForObject("https://fakestoreapi.com/products/" + product.getId(), dto, FakeStoreProductDto.class);
          */
         // The below code just captures the response body and not the entire response
-        FakeStoreProductDto dto = convertProductToProductDto(product);
+        FakeStoreProductDto dto = converter.convertProductToProductDto(product);
 //        FakeStoreProductDto responseDto = restTemplate.patchForObject(
 //                "https://fakestoreapi.com/products/" + id,
 //                dto,
@@ -193,14 +308,15 @@ public class FakeStoreProductService implements ProductService{
          The correct code would be like below:
          */
         ResponseEntity<FakeStoreProductDto> response = restTemplate.exchange(
-                "https://fakestoreapi.com/products/" + id,
+                productItemUrl,
                 HttpMethod.PATCH,
                 new HttpEntity<>(dto),
-                FakeStoreProductDto.class
+                FakeStoreProductDto.class,
+                id
         );
 
         FakeStoreProductDto responseDto = response.getBody();
-        return convertProductDtoToProduct(responseDto);
+        return converter.convertProductDtoToProduct(responseDto);
 
     }
 
@@ -217,7 +333,7 @@ public class FakeStoreProductService implements ProductService{
         his code.
          */
 
-        FakeStoreProductDto dto = convertProductToProductDto(product);
+        FakeStoreProductDto dto = converter.convertProductToProductDto(product);
 
         // my implementation as per what Naman has implemented
 //        RequestCallback requestCallback = restTemplate.httpEntityCallback(dto, FakeStoreProductDto.class);
@@ -226,13 +342,14 @@ public class FakeStoreProductService implements ProductService{
 
         // Bard's implementation
         ResponseEntity<FakeStoreProductDto> response = restTemplate.exchange(
-                "https://fakestoreapi.com/products/" + id,
+                productItemUrl,
                 HttpMethod.PUT,
                 new HttpEntity<>(dto),
-                FakeStoreProductDto.class
+                FakeStoreProductDto.class,
+                id
         );
         FakeStoreProductDto responseDto = response.getBody();
-        return convertProductDtoToProduct(responseDto);
+        return converter.convertProductDtoToProduct(responseDto);
 
         /*
         To test this via postman send the below JSON in the body
@@ -265,13 +382,14 @@ public class FakeStoreProductService implements ProductService{
 //        restTemplate.delete("https://fakestoreapi.com/products/" + id);
 
         ResponseEntity<FakeStoreProductDto> response = restTemplate.exchange(
-                "https://fakestoreapi.com/products/" + id,
+                productItemUrl,
                 HttpMethod.DELETE,
                 null,  // No request body for DELETE
-                FakeStoreProductDto.class
+                FakeStoreProductDto.class,
+                id
         );
         FakeStoreProductDto dto = response.getBody();
-        return convertProductDtoToProduct(dto);
+        return converter.convertProductDtoToProduct(dto);
 
     }
 
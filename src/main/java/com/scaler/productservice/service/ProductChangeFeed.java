@@ -0,0 +1,247 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.ProductChangeProperties;
+import com.scaler.productservice.dtos.ProductChangeDto;
+import com.scaler.productservice.dtos.ProductChangePage;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.models.ProductChange;
+import com.scaler.productservice.models.ProductChangeType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service("productChangeFeed") // This tells Spring to make this class a service
+public class ProductChangeFeed {
+
+    /*
+    Turns the entries of ProductChangeLog into what mirrors need: every change
+    comes with the current state of its product, looked up for the whole page
+    with one batch read. Also keeps the SSE connections of live subscribers:
+    the subscribers at the same position share one read of the log per
+    interval, so the database load does not grow with their number.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeFeed.class);
+
+    private ProductChangeLog changeLog;
+    private ProductService productService;
+    private ProductChangeProperties properties;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long lastHeartbeat = System.currentTimeMillis();
+    // The SSE pushes have a thread of their own. On Spring's scheduler a slow
+    // client would hold up the other scheduled jobs (purge, compaction, ...)
+    private final ScheduledExecutorService pusher;
+
+    @Autowired
+    public ProductChangeFeed(ProductChangeLog changeLogObj,
+                             @Qualifier("selfProductService") ProductService productServiceObj,
+                             ProductChangeProperties propertiesObj) {
+        this.changeLog = changeLogObj;
+        this.productService = productServiceObj;
+        this.properties = propertiesObj;
+        this.pusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = propertiesObj.getStreamPollInterval().toMillis();
+        pusher.scheduleWithFixedDelay(this::pushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pusher.shutdownNow();
+    }
+
+    public ProductChangePage getChanges(long since, int limit) {
+        return getChanges(since, limit, changeLog.getOldestSeq());
+    }
+
+    private ProductChangePage getChanges(long since, int limit, long oldestSeq) {
+        // read latestSeq first, so it is never ahead of what a mirror has seen
+        // when it bootstraps from it
+        long latestSeq = changeLog.getLatestSeq();
+        ProductChangePage page = new ProductChangePage();
+        page.setOldestSeq(oldestSeq);
+        if (since < oldestSeq) {
+            page.setResyncRequired(true);
+            page.setNextSince(since);
+            page.setLatestSeq(latestSeq);
+            return page;
+        }
+        List<ProductChange> changes = changeLog.getChangesAfter(since, limit);
+
+        page.setChanges(toDtos(changes));
+        page.setNextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+        page.setHasMore(changes.size() == limit);
+        page.setLatestSeq(Math.max(latestSeq, page.getNextSince()));
+        return page;
+    }
+
+    private List<ProductChangeDto> toDtos(List<ProductChange> changes) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (ProductChange change : changes) {
+            if (change.getChangeType() != ProductChangeType.DELETED) {
+                ids.add(change.getProductId());
+            }
+        }
+        Map<Long, Product> products = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Product product : productService.getProducts(ids).getProducts()) {
+                products.put(product.getId(), product);
+            }
+        }
+        return changes.stream().map(change -> {
+            ProductChangeDto dto = new ProductChangeDto();
+            dto.setSeq(change.getSeq());
+            dto.setProductId(change.getProductId());
+            dto.setChangeType(change.getChangeType());
+            dto.setChangedAt(change.getChangedAt());
+            dto.setProduct(products.get(change.getProductId()));
+            return dto;
+        }).toList();
+    }
+
+    // ---------------------------------------------------------------- SSE
+
+    public SseEmitter subscribe(long since) {
+        return subscribe(new SseEmitter(properties.getStreamTimeout().toMillis()), since);
+    }
+
+    // Streams the changes after since to an emitter the caller has made
+    public SseEmitter subscribe(SseEmitter emitter, long since) {
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /*
+    Hands every subscriber the entries it has not seen yet, one page per poll.
+    The log is read per position, not once from the subscriber furthest
+    behind: that one would keep every round on old seqs, and the subscribers
+    that are up to date would get nothing until it has caught up.
+    - subscribers at the same position share one read. After a round the
+      ones that are up to date all stand at the newest seq, so however many
+      there are, the live tail is read once
+    - a page that reaches the end of the log (not full) also serves every
+      subscriber further ahead
+    - one that is behind (a new subscriber with an old since) gets its own
+      read and catches up a page per poll, next to the others
+    - one whose position is below the oldest seq gets a "resync" event instead
+    Runs on the push thread, so sends to one slow client delay the others;
+    the stream is meant for a handful of mirrors, not for browsers
+     */
+    public void pushChanges() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        List<Subscriber> byPosition = new ArrayList<>(subscribers);
+        byPosition.sort(Comparator.comparingLong(subscriber -> subscriber.lastSeq));
+        long oldestSeq = changeLog.getOldestSeq();
+        Map<Long, ProductChangePage> pages = new HashMap<>();
+        ProductChangePage tail = null;
+        long tailFrom = Long.MAX_VALUE;
+        boolean heartbeat = System.currentTimeMillis() - lastHeartbeat >= properties.getStreamHeartbeat().toMillis();
+        for (Subscriber subscriber : byPosition) {
+            long from = subscriber.lastSeq;
+            ProductChangePage page = tail != null && tailFrom <= from ? tail : pages.get(from);
+            if (page == null) {
+                page = getChanges(from, properties.getMaxPageSize(), oldestSeq);
+                pages.put(from, page);
+                if (!page.isHasMore()) {
+                    tail = page;
+                    tailFrom = from;
+                }
+            }
+            if (page.isResyncRequired()) {
+                resync(subscriber, page);
+            } else {
+                push(subscriber, page.getChanges(), heartbeat);
+            }
+        }
+        if (heartbeat) {
+            lastHeartbeat = System.currentTimeMillis();
+        }
+    }
+
+    // Deletes the subscriber has not seen are compacted away: it gets one
+    // "resync" event (with latestSeq and oldestSeq) and the stream ends
+    private void resync(Subscriber subscriber, ProductChangePage page) {
+        subscribers.remove(subscriber);
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("resync").data(page));
+            subscriber.emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void push(Subscriber subscriber, List<ProductChangeDto> changes, boolean heartbeat) {
+        try {
+            for (ProductChangeDto change : changes) {
+                if (change.getSeq() > subscriber.lastSeq) {
+                    // the event id lets a client resume with the Last-Event-ID header
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.getSeq()))
+                            .name("change")
+                            .data(change));
+                    subscriber.lastSeq = change.getSeq();
+                }
+            }
+            if (heartbeat) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    // An exception would cancel the scheduled pushes
+    private void pushQuietly() {
+        try {
+            pushChanges();
+        } catch (RuntimeException e) {
+            log.error("Pushing product changes to the stream subscribers failed", e);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private volatile long lastSeq;
+
+        Subscriber(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+    }
+}
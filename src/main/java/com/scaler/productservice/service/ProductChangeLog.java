@@ -0,0 +1,334 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.ProductChangeProperties;
+import com.scaler.productservice.models.ProductChange;
+import com.scaler.productservice.models.ProductChangeType;
+import com.scaler.productservice.repositories.ProductChangeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service("productChangeLog") // This tells Spring to make this class a service
+public class ProductChangeLog {
+
+    /*
+    Append-only log of product changes (an outbox). SelfProductService records
+    every add, update and delete here in the same transaction as the change
+    itself, so the log never misses a committed change and never contains one
+    that was rolled back. Mirrors read it with GET /products/changes?since=<seq>
+    instead of downloading the whole catalog again.
+
+    A mirror remembers the seq it has read up to and never looks behind it
+    again, so seqs must become visible in order. An auto increment taken in the
+    transaction of the change does not do that: a long ingest takes its seqs
+    first, a short update that commits meanwhile takes higher ones, and a mirror
+    that reads the update has passed the ingest before it commits. So the seq
+    is handed out after the commit:
+    1. record() writes the entries to pending_product_change, in the transaction
+       of the change
+    2. the sequencer moves the committed pending entries to product_change,
+       where they get their seq. It holds the lock row of product_change_lock
+       until its transaction commits, so one sequencer runs at a time across
+       all instances, and everything it can see has committed: an entry that
+       commits later gets a higher seq
+    3. the sequencer is a thread of its own per instance. A commit that
+       recorded changes only wakes it up (many commits in a row make one run),
+       and it also runs every sequenceInterval for what an instance left
+       behind when it went down. Writes never touch the lock row and do not
+       wait for the sequencer, they are only seen by mirrors a moment later
+    The entries are written with JDBC batches through JdbcTemplate: it joins
+    the JPA transaction, and auto increment keys do not stop a JDBC batch the
+    way they stop Hibernate's batching (bulk ingest writes thousands at once).
+
+    Every recorded change is also published as a ProductsChangedEvent.
+
+    Compaction keeps the log from growing with every change: older entries
+    are dropped when a newer one exists for the same product, and tombstones
+    (DELETED) are dropped after the tombstone retention. Dropping a tombstone
+    raises the oldest seq (product_change_horizon): a mirror that has not
+    read up to it may have missed that delete and has to copy the catalog
+    again. Dropping older entries needs no such care, the newer entry of the
+    product comes later in the log anyway.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeLog.class);
+
+    private static final String INSERT_PENDING =
+            "insert into pending_product_change (product_id, change_type, changed_at) values (?, ?, ?)";
+    private static final String INSERT =
+            "insert into product_change (product_id, change_type, changed_at) values (?, ?, ?)";
+    private static final long LOCK_ID = 1L;
+    private static final long HORIZON_ID = 1L;
+
+    private ProductChangeRepository productChangeRepository;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    // sequencePending() always runs in transactions of its own, whoever calls it
+    private TransactionTemplate sequencerTemplate;
+    private ProductChangeProperties properties;
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ScheduledExecutorService sequencer;
+    // set while a run is queued, so a burst of commits does not queue one run each
+    private final AtomicBoolean sequencingRequested = new AtomicBoolean();
+
+    @Autowired
+    public ProductChangeLog(ProductChangeRepository productChangeRepositoryObj,
+                            JdbcTemplate jdbcTemplateObj,
+                            PlatformTransactionManager transactionManagerObj,
+                            ProductChangeProperties propertiesObj,
+                            ApplicationEventPublisher eventPublisherObj) {
+        this.productChangeRepository = productChangeRepositoryObj;
+        this.jdbcTemplate = jdbcTemplateObj;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplateObj);
+        this.transactionTemplate = new TransactionTemplate(transactionManagerObj);
+        this.sequencerTemplate = new TransactionTemplate(transactionManagerObj);
+        this.sequencerTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = propertiesObj;
+        this.eventPublisher = eventPublisherObj;
+        this.sequencer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-sequencer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = propertiesObj.getSequenceInterval().toMillis();
+        sequencer.scheduleWithFixedDelay(this::sequenceQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sequencer.shutdownNow();
+    }
+
+    // Must be called inside the transaction that changes the products
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ProductChangeType changeType, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = productIds.stream()
+                .map(id -> new Object[]{id, changeType.name(), now})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_PENDING, rows);
+        wakeSequencerAfterCommit();
+        // in-process listeners (the search index) hear about it after the commit
+        eventPublisher.publishEvent(new ProductsChangedEvent(changeType, List.copyOf(productIds)));
+    }
+
+    // Once per transaction, however many changes it records
+    private void wakeSequencerAfterCommit() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeSequencer();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(ProductChangeLog.this);
+            }
+        });
+    }
+
+    private void wakeSequencer() {
+        if (!sequencingRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sequencer.execute(() -> {
+                // cleared before the run, so a commit during the run queues the next one
+                sequencingRequested.set(false);
+                sequenceQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down, the entries stay pending for the next sequencer
+            sequencingRequested.set(false);
+        }
+    }
+
+    /*
+    Moves the committed pending entries to product_change, oldest first,
+    sequenceBatchSize per transaction. Returns how many were moved.
+    The pending entries are read without locking them: uncommitted ones are
+    simply not seen (instead of waiting for them), and the read comes after
+    the lock, so it sees everything that committed before we got the lock.
+     */
+    public int sequencePending() {
+        int batchSize = properties.getSequenceBatchSize();
+        int total = 0;
+        while (true) {
+            Integer moved = sequencerTemplate.execute(status -> {
+                lockSequencer();
+                List<Object[]> pending = jdbcTemplate.query("select id, product_id, change_type, changed_at " +
+                                "from pending_product_change order by id limit ?",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getString(3),
+                                rs.getTimestamp(4)},
+                        batchSize);
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                jdbcTemplate.batchUpdate(INSERT, pending.stream()
+                        .map(row -> new Object[]{row[1], row[2], row[3]})
+                        .toList());
+                namedJdbcTemplate.update("delete from pending_product_change where id in (:ids)",
+                        Map.of("ids", pending.stream().map(row -> row[0]).toList()));
+                return pending.size();
+            });
+            total += moved;
+            if (moved < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    // Held until the sequencer's transaction ends. The row is created on first use
+    private void lockSequencer() {
+        String lock = "select id from product_change_lock where id = ? for update";
+        if (!jdbcTemplate.queryForList(lock, Long.class, LOCK_ID).isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("insert into product_change_lock (id) values (?)", LOCK_ID);
+        } catch (DuplicateKeyException e) {
+            // another instance created it just now, wait for its lock
+            jdbcTemplate.queryForList(lock, Long.class, LOCK_ID);
+        }
+    }
+
+    // An exception would cancel the scheduled runs
+    private void sequenceQuietly() {
+        try {
+            sequencePending();
+        } catch (RuntimeException e) {
+            log.error("Handing out product change seqs failed", e);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ProductChangeType changeType, Long productId) {
+        record(changeType, List.of(productId));
+    }
+
+    // The entries after since, oldest first
+    @Transactional(readOnly = true)
+    public List<ProductChange> getChangesAfter(long since, int limit) {
+        return productChangeRepository.findChangesAfter(since, Limit.of(limit));
+    }
+
+    // The log is complete after this seq, 0 while no tombstone has been compacted away
+    @Transactional(readOnly = true)
+    public long getOldestSeq() {
+        List<Long> oldest = jdbcTemplate.queryForList(
+                "select oldest_seq from product_change_horizon where id = ?", Long.class, HORIZON_ID);
+        return oldest.isEmpty() ? 0 : oldest.get(0);
+    }
+
+    // The newest sequence number, 0 while the log is empty. Never below the
+    // oldest seq: the newest entries may have been tombstones compaction removed
+    @Transactional(readOnly = true)
+    public long getLatestSeq() {
+        Long latest = productChangeRepository.findLatestSeq();
+        return Math.max(latest == null ? 0 : latest, getOldestSeq());
+    }
+
+    @Scheduled(initialDelayString = "${productservice.changes.compaction-interval:PT5M}",
+            fixedDelayString = "${productservice.changes.compaction-interval:PT5M}")
+    public void scheduledCompaction() {
+        try {
+            int removed = compact();
+            if (removed > 0) {
+                log.info("Compacted the product change log, removed {} entries", removed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Compacting the product change log failed", e);
+        }
+    }
+
+    public int compact() {
+        long now = System.currentTimeMillis();
+        return compact(new Date(now - properties.getCompactAfter().toMillis()),
+                new Date(now - properties.getTombstoneRetention().toMillis()));
+    }
+
+    // Like DeletedProductPurger: small batches, each in its own short transaction
+    public int compact(Date compactBefore, Date tombstonesBefore) {
+        // entries that have a newer entry for the same product
+        int removed = removeInBatches("select c.seq from product_change c where c.changed_at < ? " +
+                "and exists (select 1 from product_change n where n.product_id = c.product_id and n.seq > c.seq) " +
+                "order by c.seq limit ?", compactBefore, false);
+        // tombstones, by now they are the last entry of their product
+        removed += removeInBatches("select c.seq from product_change c where c.changed_at < ? " +
+                "and c.change_type = 'DELETED' order by c.seq limit ?", tombstonesBefore, true);
+        return removed;
+    }
+
+    private int removeInBatches(String selectSeqs, Date cutoff, boolean tombstones) {
+        int batchSize = properties.getCompactionBatchSize();
+        int total = 0;
+        while (true) {
+            Integer removed = transactionTemplate.execute(status -> {
+                List<Long> seqs = jdbcTemplate.queryForList(selectSeqs, Long.class,
+                        new Timestamp(cutoff.getTime()), batchSize);
+                if (seqs.isEmpty()) {
+                    return 0;
+                }
+                if (tombstones) {
+                    // in the same transaction: no mirror sees the delete gone and the horizon not raised
+                    raiseHorizon(seqs.get(seqs.size() - 1));
+                }
+                return namedJdbcTemplate.update("delete from product_change where seq in (:seqs)",
+                        Map.of("seqs", seqs));
+            });
+            total += removed;
+            if (removed < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    // The row is created on first use, like the lock row
+    private void raiseHorizon(long seq) {
+        if (jdbcTemplate.update("update product_change_horizon set oldest_seq = ? where id = ? and oldest_seq < ?",
+                seq, HORIZON_ID, seq) > 0 || getOldestSeq() >= seq) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("insert into product_change_horizon (id, oldest_seq) values (?, ?)", HORIZON_ID, seq);
+        } catch (DuplicateKeyException e) {
+            // another instance created it just now
+            raiseHorizon(seq);
+        }
+    }
+}
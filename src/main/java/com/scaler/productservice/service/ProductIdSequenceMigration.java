@@ -0,0 +1,85 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProductIdSequenceMigration {
+
+    /*
+    Products created here get ids from Product.FIRST_LOCAL_ID on, the ids below
+    belong to the upstream catalog. @SequenceGenerator(initialValue) only applies
+    when ddl-auto creates product_seq, a database that had it before keeps
+    handing out low ids, which collide with the upstream ones. So on startup,
+    before any product is created:
+    - a real sequence (H2, MariaDB, PostgreSQL) below the first local id is
+      restarted there. Reading it takes one value, so every start skips up to
+      one allocation of ids (allocationSize) on these databases
+    - the table Hibernate uses instead on MySQL (product_seq.next_val) is
+      raised there
+    If that fails the application does not start: handing out ids that belong
+    to upstream products is worse than not running.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIdSequenceMigration.class);
+
+    private static final String SEQUENCE = "product_seq";
+
+    private JdbcTemplate jdbcTemplate;
+    private Dialect dialect;
+
+    // The EntityManagerFactory is only needed for the dialect, but also makes
+    // sure Hibernate has created or updated the schema before we look at it
+    @Autowired
+    public ProductIdSequenceMigration(JdbcTemplate jdbcTemplateObj, EntityManagerFactory entityManagerFactoryObj) {
+        this.jdbcTemplate = jdbcTemplateObj;
+        this.dialect = entityManagerFactoryObj.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Long next;
+        try {
+            next = dialect.getSequenceSupport().supportsSequences() ? raiseSequence() : raiseTable();
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Could not raise " + SEQUENCE + " to " + Product.FIRST_LOCAL_ID
+                    + ", new products would get ids of upstream products. Raise it before starting", e);
+        }
+        if (next == null || next < Product.FIRST_LOCAL_ID) {
+            throw new IllegalStateException(SEQUENCE + " is at " + next + ", below " + Product.FIRST_LOCAL_ID
+                    + ": new products would get ids of upstream products. Raise it before starting");
+        }
+    }
+
+    // Returns the value the sequence is at now
+    private Long raiseSequence() {
+        Long next = jdbcTemplate.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE), Long.class);
+        if (next != null && next >= Product.FIRST_LOCAL_ID) {
+            return next;
+        }
+        log.warn("{} is at {}, restarting it at {}", SEQUENCE, next, Product.FIRST_LOCAL_ID);
+        jdbcTemplate.execute("alter sequence " + SEQUENCE + " restart with " + Product.FIRST_LOCAL_ID);
+        return jdbcTemplate.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE), Long.class);
+    }
+
+    // The where clause leaves it alone when another instance raised it meanwhile
+    private Long raiseTable() {
+        int raised = jdbcTemplate.update("update " + SEQUENCE + " set next_val = ? where next_val < ?",
+                Product.FIRST_LOCAL_ID, Product.FIRST_LOCAL_ID);
+        if (raised > 0) {
+            log.warn("Raised {} to {}", SEQUENCE, Product.FIRST_LOCAL_ID);
+        }
+        return jdbcTemplate.queryForObject("select min(next_val) from " + SEQUENCE, Long.class);
+    }
+}
@@ -1,16 +1,112 @@
 package com.scaler.productservice.service;
 
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductWrite;
 import com.scaler.productservice.exceptions.ProductDoesNotExistException;
 import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductFieldSet;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ProductService {
 
     Product getSingleProduct(Long id) throws ProductDoesNotExistException;
     Product addProduct(Product product);
     List<Product> getAllProducts();
-    Product updateProduct(Long id, Product product);
-    Product replaceProduct(Long id, Product product);
-    Product deleteProduct(Long id);
+    // One page of the catalog in sortField order, starting after the cursor (null for the first page)
+    ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size);
+    Product updateProduct(Long id, Product product) throws ProductDoesNotExistException;
+    Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException;
+    Product deleteProduct(Long id) throws ProductDoesNotExistException;
+
+    // Adds many products in one call. Services that can write in bulk override
+    // this, the default simply adds them one by one.
+    default List<Product> addProducts(List<Product> products) {
+        return products.stream()
+                .map(this::addProduct)
+                .toList();
+    }
+
+    // Hands every product of the catalog to the consumer, one at a time.
+    // Implementations that can read their source incrementally override this,
+    // so the whole catalog never has to be held in memory at once.
+    default void forEachProduct(Consumer<Product> consumer) {
+        List<Product> products = getAllProducts();
+        if (products != null) {
+            products.forEach(consumer);
+        }
+    }
+
+    // Applies many PATCH / PUT writes at once (see WriteBehindProductService).
+    // Services that can write in bulk override this, the default applies them
+    // one by one. Returns the ids of the products that do not exist (any more)
+    default List<Long> applyWrites(List<ProductWrite> writes) {
+        List<Long> missing = new ArrayList<>();
+        for (ProductWrite write : writes) {
+            try {
+                if (write.isReplace()) {
+                    replaceProduct(write.getId(), write.getProduct());
+                } else {
+                    updateProduct(write.getId(), write.getProduct());
+                }
+            } catch (ProductDoesNotExistException e) {
+                missing.add(write.getId());
+            }
+        }
+        return missing;
+    }
+
+    // Looks up many products at once. An id that does not exist does not fail
+    // the whole batch, it is reported in notFoundIds. Services that can read
+    // many products in one go override this, the default asks for them one by one.
+    default ProductBatch getProducts(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>();
+        Set<Long> notFound = new HashSet<>();
+        for (Long id : uniqueIds) {
+            try {
+                found.put(id, getSingleProduct(id));
+            } catch (ProductDoesNotExistException e) {
+                notFound.add(id);
+            }
+        }
+        return ProductBatch.of(uniqueIds, found, notFound);
+    }
+
+    // Sparse fieldsets (?fields=): the products only have to carry the given
+    // fields, the response leaves out all others anyway. Services that can read
+    // just those columns override these, the default reads whole products
+    default Product getSingleProduct(Long id, ProductFieldSet fields) throws ProductDoesNotExistException {
+        return getSingleProduct(id);
+    }
+
+    default ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size,
+                                       ProductFieldSet fields) {
+        return getProductPage(sortField, cursor, size);
+    }
+
+    // Cheap validators for conditional GETs, so the controller can answer
+    // 304 Not Modified without loading the product or the page.
+    // null means the service cannot tell without loading the data itself
+    // (or the product does not exist), the controller then loads it as usual.
+    default ProductVersion getProductVersion(Long id) {
+        return null;
+    }
+
+    default CatalogVersion getCatalogVersion() {
+        return null;
+    }
 }
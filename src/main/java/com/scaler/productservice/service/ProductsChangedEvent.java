@@ -0,0 +1,17 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.ProductChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ProductsChangedEvent {
+    // Published by ProductChangeLog for every change it records, inside the
+    // transaction of the change. Listen with @TransactionalEventListener to
+    // only hear about committed changes
+    private ProductChangeType changeType;
+    private List<Long> productIds;
+}
@@ -0,0 +1,17 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Product;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveProductService {
+
+    // Same operations as ProductService, but nothing here blocks the calling thread.
+    // A missing product is signalled as a ProductDoesNotExistException error on the Mono.
+    Mono<Product> getSingleProduct(Long id);
+    Mono<Product> addProduct(Product product);
+    Flux<Product> getAllProducts();
+    Mono<Product> updateProduct(Long id, Product product);
+    Mono<Product> replaceProduct(Long id, Product product);
+    Mono<Product> deleteProduct(Long id);
+}
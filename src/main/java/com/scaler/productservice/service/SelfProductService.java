@@ -1,40 +1,540 @@
 package com.scaler.productservice.service;
 
+import com.scaler.productservice.config.IngestProperties;
+import com.scaler.productservice.config.PaginationProperties;
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductView;
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.exceptions.BulkIngestTooLargeException;
 import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.exceptions.ProductVersionMismatchException;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.DeletedUpstreamProduct;
 import com.scaler.productservice.models.Product;
+import com.scaler.productservice.models.ProductChangeType;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductPages;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.projection.ProductField;
+import com.scaler.productservice.projection.ProductFieldSet;
+import com.scaler.productservice.repositories.CategoryRepository;
+import com.scaler.productservice.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service("selfProductService") // This tells Spring to make this class a service
 public class SelfProductService implements ProductService {
+
+    // This service keeps the products in our own database (MySQL) through
+    // Spring Data JPA repositories instead of calling a third party API
+
+    // updatedBy of products copied from the upstream catalog. Our own writes set
+    // LOCAL_EDIT, from then on the upstream snapshot no longer overwrites them
+    public static final String UPSTREAM = "upstream";
+    public static final String LOCAL_EDIT = "local";
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private EntityManager entityManager;
+    private IngestProperties ingestProperties;
+    private CategoryDictionary categoryDictionary;
+    private ProductChangeLog changeLog;
+    private PaginationProperties paginationProperties;
+    private CategoryUpserter categoryUpserter;
+
+    @Autowired
+    public SelfProductService(ProductRepository productRepositoryObj,
+                              CategoryRepository categoryRepositoryObj,
+                              EntityManager entityManagerObj,
+                              IngestProperties ingestPropertiesObj,
+                              CategoryDictionary categoryDictionaryObj,
+                              ProductChangeLog changeLogObj,
+                              PaginationProperties paginationPropertiesObj,
+                              CategoryUpserter categoryUpserterObj) {
+        this.productRepository = productRepositoryObj;
+        this.categoryRepository = categoryRepositoryObj;
+        this.entityManager = entityManagerObj;
+        this.ingestProperties = ingestPropertiesObj;
+        this.categoryDictionary = categoryDictionaryObj;
+        this.changeLog = changeLogObj;
+        this.paginationProperties = paginationPropertiesObj;
+        this.categoryUpserter = categoryUpserterObj;
+    }
+
+    // Load all categories once, so that reads never have to query them
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void preloadCategories() {
+        categoryDictionary.preload(categoryRepository.findAll());
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
-        return null;
+        return productRepository.findViewById(id)
+                .map(this::toProduct)
+                .orElseThrow(() -> new ProductDoesNotExistException("Product with id " + id + " does not exist"));
+    }
+
+    // The managed entity (with its category) for the write methods
+    private Product getManagedProduct(Long id) throws ProductDoesNotExistException {
+        return productRepository.findWithCategoryById(id)
+                .orElseThrow(() -> new ProductDoesNotExistException("Product with id " + id + " does not exist"));
+    }
+
+    // Conditional write (If-Match, or a version in the request body): the caller
+    // sends the version it has seen. We compare it with the entity we load anyway,
+    // so no extra read is needed. A change committed between this check and our
+    // UPDATE is caught by Hibernate's "where version = ?" (optimistic locking)
+    private void checkVersion(Product existing, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new ProductVersionMismatchException("Product with id " + existing.getId()
+                    + " has been changed, it is at version " + existing.getVersion());
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public ProductVersion getProductVersion(Long id) {
+        return productRepository.findVersionById(id).orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogVersion getCatalogVersion() {
+        return productRepository.findCatalogVersion();
+    }
+
+    @Override
+    @Transactional
     public Product addProduct(Product product) {
-        return null;
+        // the id is always generated by us
+        product.setId(null);
+        product.setCategory(resolveCategory(product.getCategory()));
+        Product saved = productRepository.save(product);
+        // every change is also written to the change log, in the same transaction
+        changeLog.record(ProductChangeType.CREATED, saved.getId());
+        return saved;
     }
 
+    /*
+    Bulk ingest. Compared to calling addProduct() in a loop this:
+    1. runs everything in one transaction instead of one per product
+    2. looks up the categories of a whole chunk with a single "name in (...)"
+       query and inserts the missing ones together, instead of one select per product
+    3. lets Hibernate send the INSERTs as JDBC batches (hibernate.jdbc.batch_size,
+       order_inserts), which only works because Product ids come from a pooled
+       sequence and not from auto increment
+    4. flushes and clears the persistence context after every chunk so that
+       Hibernate does not keep thousands of managed entities around
+     */
     @Override
+    @Transactional
+    public List<Product> addProducts(List<Product> products) {
+        if (products.size() > ingestProperties.getMaxProductsPerRequest()) {
+            throw new BulkIngestTooLargeException("At most " + ingestProperties.getMaxProductsPerRequest()
+                    + " products can be ingested per request");
+        }
+        List<Product> saved = new ArrayList<>(products.size());
+        int chunkSize = ingestProperties.getChunkSize();
+        for (int from = 0; from < products.size(); from += chunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + chunkSize, products.size()));
+            Map<String, Category> categories = upsertCategories(chunk);
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Product product : chunk) {
+                product.setId(null);
+                if (product.getCategory() != null) {
+                    product.setCategory(categories.get(product.getCategory().getName()));
+                }
+                entityManager.persist(product);
+                saved.add(product);
+                ids.add(product.getId());
+            }
+            changeLog.record(ProductChangeType.CREATED, ids);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return saved;
+    }
+
+    // Loads all categories used by the chunk in one query and creates the missing ones.
+    // The products are persisted, so they get copies, not the dictionary's instances
+    private Map<String, Category> upsertCategories(List<Product> chunk) {
+        Set<String> names = chunk.stream()
+                .map(Product::getCategory)
+                .filter(Objects::nonNull)
+                .map(Category::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Category> categories = new HashMap<>();
+        categoryUpserter.upsert(names).forEach((name, category) ->
+                categories.put(name, CategoryDictionary.copy(category)));
+        return categories;
+    }
+
+    // Finds the stored category with this name, or stores it if it is new.
+    // A copy, like above: the caller attaches it to its product
+    private Category resolveCategory(Category category) {
+        if (category == null || category.getName() == null) {
+            return null;
+        }
+        return CategoryDictionary.copy(categoryUpserter.upsert(category.getName()));
+    }
+
+    private Product toProduct(ProductView view) {
+        return view.toProduct(view.getCategoryId() == null ? null : category(view.getCategoryId()));
+    }
+
+    private Category category(long categoryId) {
+        Category category = categoryDictionary.getById(categoryId);
+        if (category == null) {
+            // only happens for a category created by another instance since our preload
+            category = categoryRepository.findById(categoryId)
+                    .map(categoryDictionary::register)
+                    .orElse(null);
+        }
+        return category;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        return null;
+        return toProducts(productRepository.findAllViews());
     }
 
+    /*
+    Walks the catalog in id order, one chunk at a time, with the same keyset
+    queries as the ID pages (where id > last id of the previous chunk). Only one
+    chunk is in memory at once, and every chunk is its own short read-only
+    transaction (the repository's), so a slow client does not keep a
+    transaction and a connection open for the whole response.
+    Not a snapshot: a product added during the walk is included if its id is
+    beyond the current chunk, a product deleted before its chunk is read is not.
+     */
     @Override
-    public Product updateProduct(Long id, Product product) {
-        return null;
+    public void forEachProduct(Consumer<Product> consumer) {
+        Limit chunk = Limit.of(paginationProperties.getStreamChunkSize());
+        List<ProductView> rows = productRepository.findFirstPageById(chunk);
+        while (!rows.isEmpty()) {
+            for (ProductView row : rows) {
+                consumer.accept(toProduct(row));
+            }
+            if (rows.size() < chunk.max()) {
+                return;
+            }
+            rows = productRepository.findPageAfterId(rows.get(rows.size() - 1).getId(), chunk);
+        }
     }
 
     @Override
-    public Product replaceProduct(Long id, Product product) {
-        return null;
+    @Transactional(readOnly = true)
+    public ProductBatch getProducts(Collection<Long> ids) {
+        // One IN query for the whole batch. Every id that did not come back does not exist
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>();
+        if (!uniqueIds.isEmpty()) {
+            for (ProductView view : productRepository.findViewsByIdIn(uniqueIds)) {
+                found.put(view.getId(), toProduct(view));
+            }
+        }
+        Set<Long> notFound = new HashSet<>(uniqueIds);
+        notFound.removeAll(found.keySet());
+        return ProductBatch.of(uniqueIds, found, notFound);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        // We ask for one row more than the page size, that row only tells us
+        // whether a next page exists (see ProductPages.fromLookahead)
+        Limit limit = Limit.of(size + 1);
+        List<ProductView> rows = switch (sortField) {
+            case ID -> cursor == null
+                    ? productRepository.findFirstPageById(limit)
+                    : productRepository.findPageAfterId(cursor.getId(), limit);
+            case PRICE -> cursor == null
+                    ? productRepository.findFirstPageByPrice(limit)
+                    : productRepository.findPageAfterPrice(cursor.getPrice(), cursor.getId(), limit);
+            case UPDATED_AT -> cursor == null
+                    ? productRepository.findFirstPageByUpdatedAt(limit)
+                    : findPageAfterUpdatedAt(cursor, limit);
+        };
+        return ProductPages.fromLookahead(toProducts(rows), sortField, size);
+    }
+
+    // A page can end on a product without updatedAt, "updatedAt > null" would
+    // then silently end the listing there
+    private List<ProductView> findPageAfterUpdatedAt(ProductCursor cursor, Limit limit) {
+        if (cursor.getUpdatedAt() == null) {
+            return productRepository.findPageAfterNullUpdatedAt(cursor.getId(), limit);
+        }
+        return productRepository.findPageAfterUpdatedAt(cursor.getUpdatedAt(), cursor.getId(), limit);
+    }
+
+    /*
+    Sparse fieldsets are pushed down into the query: only the columns of the
+    requested fields are selected and only those are set on the products.
+    Besides the requested fields we read what the response needs for itself:
+    version and updatedAt for the ETag and Last-Modified of a product, the
+    sort field for the cursor of the next page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Product getSingleProduct(Long id, ProductFieldSet fields) throws ProductDoesNotExistException {
+        ProductFieldSet read = fields.with(ProductField.VERSION, ProductField.UPDATED_AT);
+        return productRepository.findFieldsById(read, id)
+                .map(row -> read.toProduct(row, this::category))
+                .orElseThrow(() -> new ProductDoesNotExistException("Product with id " + id + " does not exist"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size,
+                                      ProductFieldSet fields) {
+        ProductFieldSet read = switch (sortField) {
+            case ID -> fields;
+            case PRICE -> fields.with(ProductField.PRICE);
+            case UPDATED_AT -> fields.with(ProductField.UPDATED_AT);
+        };
+        List<Object[]> rows = productRepository.findPageFields(read, sortField, cursor, size + 1);
+        List<Product> products = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            products.add(read.toProduct(row, this::category));
+        }
+        return ProductPages.fromLookahead(products, sortField, size);
+    }
+
+    private List<Product> toProducts(List<ProductView> views) {
+        List<Product> products = new ArrayList<>(views.size());
+        for (ProductView view : views) {
+            products.add(toProduct(view));
+        }
+        return products;
+    }
+
+    @Override
+    @Transactional
+    public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+        // PATCH: only the fields that were sent are changed
+        Product existing = getManagedProduct(id);
+        checkVersion(existing, product.getVersion());
+        applyPatch(existing, product);
+        changeLog.record(ProductChangeType.UPDATED, id);
+        // no save() needed, the changes of a managed entity are flushed on commit.
+        // The commit also increments the version, before the controller gets the product
+        return existing;
+    }
+
+    @Override
+    @Transactional
+    public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+        // PUT: every field is overwritten
+        Product existing = getManagedProduct(id);
+        checkVersion(existing, product.getVersion());
+        applyReplacement(existing, product);
+        changeLog.record(ProductChangeType.UPDATED, id);
+        return existing;
+    }
+
+    /*
+    Flush of the write-behind queue. Instead of one transaction (and one select)
+    per product, all entities are loaded with a single "where id in (...)" query
+    and changed in one transaction. On commit Hibernate sends the UPDATEs as
+    JDBC batches (hibernate.jdbc.batch_size, order_updates, batch_versioned_data)
+     */
+    @Override
+    @Transactional
+    public List<Long> applyWrites(List<ProductWrite> writes) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (ProductWrite write : writes) {
+            ids.add(write.getId());
+        }
+        Map<Long, Product> existing = new HashMap<>();
+        for (Product product : productRepository.findWithCategoryByIdIn(ids)) {
+            existing.put(product.getId(), product);
+        }
+        List<Long> missing = new ArrayList<>();
+        for (ProductWrite write : writes) {
+            Product product = existing.get(write.getId());
+            if (product == null) {
+                missing.add(write.getId());
+            } else if (write.isReplace()) {
+                applyReplacement(product, write.getProduct());
+            } else {
+                applyPatch(product, write.getProduct());
+            }
+        }
+        changeLog.record(ProductChangeType.UPDATED, existing.keySet());
+        return missing;
+    }
+
+    /*
+    Copies products of the upstream catalog into our database, with their
+    upstream ids (see TieredProductService). Per product:
+    - not stored yet: inserted
+    - stored and never changed here: updated if upstream has changed it
+    - changed here: kept, our change wins
+    - deleted here: skipped, our delete wins. Also after the purger has
+      removed the row, deleteProduct() keeps a DeletedUpstreamProduct for it
+    Returns the stored products, the deleted ones are missing from the list.
+     */
+    @Transactional
+    public List<Product> importProducts(List<Product> products) {
+        Map<Long, Product> upstream = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product.getId() != null) {
+                upstream.put(product.getId(), product);
+            }
+        }
+        if (upstream.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> stored = new HashSet<>(productRepository.findStoredOrDeletedIds(upstream.keySet()));
+        Map<Long, Product> active = new HashMap<>();
+        for (Product product : productRepository.findWithCategoryByIdIn(upstream.keySet())) {
+            active.put(product.getId(), product);
+        }
+        List<Product> imported = new ArrayList<>();
+        List<Long> created = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+        List<Product> inserts = new ArrayList<>();
+        for (Product source : upstream.values()) {
+            Product existing = active.get(source.getId());
+            if (existing != null) {
+                if (UPSTREAM.equals(existing.getUpdatedBy()) && differs(existing, source)) {
+                    applyReplacement(existing, source);
+                    existing.setUpdatedBy(UPSTREAM);
+                    updated.add(existing.getId());
+                }
+                imported.add(existing);
+            } else if (!stored.contains(source.getId())) {
+                Product product = new Product();
+                product.setId(source.getId());
+                applyReplacement(product, source);
+                product.setUpdatedBy(UPSTREAM);
+                inserts.add(product);
+                imported.add(product);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            // the pending updates first (new categories are already committed
+            // by CategoryUpserter, the inserts can refer to them)
+            entityManager.flush();
+            for (Product product : inserts) {
+                insertImported(product);
+                created.add(product.getId());
+            }
+        }
+        changeLog.record(ProductChangeType.CREATED, created);
+        changeLog.record(ProductChangeType.UPDATED, updated);
+        return imported;
+    }
+
+    /*
+    A native INSERT, because persist() refuses a versioned entity whose
+    generated id is already set: Hibernate takes it for a detached entity.
+    Like the purger, it tells Hibernate that only Product is affected
+     */
+    private void insertImported(Product product) {
+        Date now = new Date();
+        entityManager.createNativeQuery("insert into product (id, title, price, category_id, description, " +
+                        "image_url, version, created_at, created_by, updated_at, updated_by, is_deleted) " +
+                        "values (:id, :title, :price, :categoryId, :description, :imageUrl, 0, :now, :by, :now, :by, false)")
+                .setParameter("id", product.getId())
+                .setParameter("title", product.getTitle())
+                .setParameter("price", product.getPrice())
+                .setParameter("categoryId", product.getCategory() == null ? null : product.getCategory().getId())
+                .setParameter("description", product.getDescription())
+                .setParameter("imageUrl", product.getImageUrl())
+                .setParameter("now", now)
+                .setParameter("by", UPSTREAM)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Product.class)
+                .executeUpdate();
+        product.setVersion(0L);
+        product.setCreatedAt(now);
+        product.setCreatedBy(UPSTREAM);
+        product.setUpdatedAt(now);
+    }
+
+    private static boolean differs(Product stored, Product source) {
+        String storedCategory = stored.getCategory() == null ? null : stored.getCategory().getName();
+        String sourceCategory = source.getCategory() == null ? null : source.getCategory().getName();
+        return !Objects.equals(stored.getTitle(), source.getTitle())
+                || stored.getPrice() != source.getPrice()
+                || !Objects.equals(stored.getDescription(), source.getDescription())
+                || !Objects.equals(stored.getImageUrl(), source.getImageUrl())
+                || !Objects.equals(storedCategory, sourceCategory);
+    }
+
+    private void applyPatch(Product existing, Product patch) {
+        existing.setUpdatedBy(LOCAL_EDIT);
+        if (patch.getTitle() != null) {
+            existing.setTitle(patch.getTitle());
+        }
+        // price is a primitive, so "not sent" arrives as 0
+        if (patch.getPrice() != 0) {
+            existing.setPrice(patch.getPrice());
+        }
+        if (patch.getDescription() != null) {
+            existing.setDescription(patch.getDescription());
+        }
+        if (patch.getImageUrl() != null) {
+            existing.setImageUrl(patch.getImageUrl());
+        }
+        if (patch.getCategory() != null) {
+            existing.setCategory(resolveCategory(patch.getCategory()));
+        }
+    }
+
+    private void applyReplacement(Product existing, Product replacement) {
+        existing.setUpdatedBy(LOCAL_EDIT);
+        existing.setTitle(replacement.getTitle());
+        existing.setPrice(replacement.getPrice());
+        existing.setDescription(replacement.getDescription());
+        existing.setImageUrl(replacement.getImageUrl());
+        existing.setCategory(resolveCategory(replacement.getCategory()));
     }
 
     @Override
-    public Product deleteProduct(Long id) {
-        return null;
+    @Transactional
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        Product existing = getManagedProduct(id);
+        productRepository.delete(existing);
+        if (id < Product.FIRST_LOCAL_ID) {
+            // an upstream id: remember the delete for good, the row itself is purged
+            DeletedUpstreamProduct deleted = new DeletedUpstreamProduct();
+            deleted.setId(id);
+            deleted.setDeletedAt(new Date());
+            entityManager.persist(deleted);
+        }
+        changeLog.record(ProductChangeType.DELETED, id);
+        return existing;
     }
 }
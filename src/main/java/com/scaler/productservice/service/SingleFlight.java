@@ -0,0 +1,81 @@
+package com.scaler.productservice.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class SingleFlight<K, V> {
+
+    /*
+    Request coalescing: while a fetch for a key is running, every other caller
+    asking for the same key waits for that fetch instead of starting its own.
+    When it finishes all of them get the same value (or the same exception)
+    and the key is forgotten, so the next call fetches fresh data again.
+    Nothing is cached here, this only merges calls that overlap in time.
+
+    The in-flight fetches live in a ConcurrentHashMap. putIfAbsent only locks
+    the one hash bin of the key, so callers for different ids never wait on
+    each other, and the first caller runs the fetch on its own thread.
+     */
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // A fetch that may throw a checked exception, e.g. ProductDoesNotExistException
+    @FunctionalInterface
+    public interface Fetch<V, E extends Exception> {
+        V get() throws E;
+    }
+
+    public <E extends Exception> V execute(K key, Fetch<V, E> fetch) throws E {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        // We are the first caller for this key: do the real fetch
+        try {
+            V value = fetch.get();
+            mine.complete(value);
+            return value;
+        } catch (Exception | Error exception) {
+            mine.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // Callers that arrive after this will start a new fetch, e.g. after the
+    // value was changed and the running fetch may already be out of date
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> running) throws E {
+        try {
+            return running.join();
+        } catch (CompletionException wrapper) {
+            // Rethrow what the fetch threw, not the CompletableFuture wrapper.
+            // The first caller's fetch for a key throws the same exception types
+            // as ours, so the cast below is safe
+            Throwable cause = wrapper.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service("tieredProductService") // This tells Spring to make this class a service
+@ConditionalOnProperty(prefix = "productservice.backend", name = "product-service", havingValue = "tieredProductService")
+public class TieredProductService implements ProductService {
+
+    /*
+    Our database first, the FakeStore catalog behind it.
+    - Reads are served from the database. A product we do not have is asked
+      from FakeStore and copied into the database on the way, so the next read
+      of it stays local. FakeStore being slow or down only hurts products we
+      have never seen.
+    - Listings (pages, the whole catalog) only read the database, which
+      UpstreamSnapshotSync keeps filled with a copy of the upstream catalog.
+    - Writes go to the database. A write to a product that only exists
+      upstream imports it first, so it can be changed (or deleted) here.
+    Upstream lookups go through the Caffeine cache, so an id that does not
+    exist anywhere is not asked from FakeStore on every request.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(TieredProductService.class);
+
+    private ProductService local;
+    private ProductService upstream;
+    private SelfProductService store;
+
+    @Autowired
+    public TieredProductService(@Qualifier("coalescingProductService") ProductService localObj,
+                                @Qualifier("cachingProductService") ProductService upstreamObj,
+                                SelfProductService storeObj) {
+        this.local = localObj;
+        this.upstream = upstreamObj;
+        this.store = storeObj;
+    }
+
+    @Override
+    public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+        try {
+            return local.getSingleProduct(id);
+        } catch (ProductDoesNotExistException missing) {
+            return fetchFromUpstream(id);
+        }
+    }
+
+    // Asks FakeStore and keeps a copy. Throws when the product does not exist
+    // upstream either, or when it was deleted here
+    private Product fetchFromUpstream(Long id) throws ProductDoesNotExistException {
+        Product product = upstream.getSingleProduct(id);
+        try {
+            if (store.importProducts(List.of(product)).isEmpty()) {
+                throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+            }
+        } catch (RuntimeException e) {
+            // we still have the product, it is only not stored for next time
+            log.warn("Could not store product {} from upstream", id, e);
+        }
+        return product;
+    }
+
+    @Override
+    public ProductBatch getProducts(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        ProductBatch localBatch = local.getProducts(uniqueIds);
+        if (localBatch.getNotFoundIds().isEmpty()) {
+            return localBatch;
+        }
+        Map<Long, Product> found = new HashMap<>();
+        for (Product product : localBatch.getProducts()) {
+            found.put(product.getId(), product);
+        }
+        // one batch request upstream for everything we did not have
+        ProductBatch upstreamBatch = upstream.getProducts(localBatch.getNotFoundIds());
+        Set<Long> notFound = new HashSet<>(upstreamBatch.getNotFoundIds());
+        if (!upstreamBatch.getProducts().isEmpty()) {
+            Set<Long> storedIds = importQuietly(upstreamBatch.getProducts());
+            for (Product product : upstreamBatch.getProducts()) {
+                if (storedIds == null || storedIds.contains(product.getId())) {
+                    found.put(product.getId(), product);
+                } else {
+                    notFound.add(product.getId());
+                }
+            }
+        }
+        return ProductBatch.of(uniqueIds, found, notFound);
+    }
+
+    // The ids that are stored now, null when storing failed
+    private Set<Long> importQuietly(List<Product> products) {
+        try {
+            Set<Long> storedIds = new HashSet<>();
+            for (Product product : store.importProducts(products)) {
+                storedIds.add(product.getId());
+            }
+            return storedIds;
+        } catch (RuntimeException e) {
+            log.warn("Could not store {} products from upstream", products.size(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return local.getAllProducts();
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        return local.getProductPage(sortField, cursor, size);
+    }
+
+    @Override
+    public void forEachProduct(Consumer<Product> consumer) {
+        local.forEachProduct(consumer);
+    }
+
+    @Override
+    public ProductVersion getProductVersion(Long id) {
+        return local.getProductVersion(id);
+    }
+
+    @Override
+    public CatalogVersion getCatalogVersion() {
+        return local.getCatalogVersion();
+    }
+
+    @Override
+    public Product addProduct(Product product) {
+        return local.addProduct(product);
+    }
+
+    @Override
+    public List<Product> addProducts(List<Product> products) {
+        return local.addProducts(products);
+    }
+
+    @Override
+    public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+        try {
+            return local.updateProduct(id, product);
+        } catch (ProductDoesNotExistException missing) {
+            fetchFromUpstream(id);
+            return local.updateProduct(id, product);
+        }
+    }
+
+    @Override
+    public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+        try {
+            return local.replaceProduct(id, product);
+        } catch (ProductDoesNotExistException missing) {
+            fetchFromUpstream(id);
+            return local.replaceProduct(id, product);
+        }
+    }
+
+    @Override
+    public List<Long> applyWrites(List<ProductWrite> writes) {
+        return local.applyWrites(writes);
+    }
+
+    @Override
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        try {
+            return local.deleteProduct(id);
+        } catch (ProductDoesNotExistException missing) {
+            // import it first, so there is a row to delete. Its DeletedUpstreamProduct
+            // keeps the snapshot from bringing it back, also after the row is purged
+            fetchFromUpstream(id);
+            return local.deleteProduct(id);
+        }
+    }
+}
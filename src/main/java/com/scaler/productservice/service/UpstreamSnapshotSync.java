@@ -0,0 +1,102 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.TieredProperties;
+import com.scaler.productservice.models.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service("upstreamSnapshotSync") // This tells Spring to make this class a service
+@ConditionalOnProperty(prefix = "productservice.backend", name = "product-service", havingValue = "tieredProductService")
+public class UpstreamSnapshotSync {
+
+    /*
+    Keeps the database of the tiered backend filled with a copy of the
+    upstream catalog:
+    - every snapshotInterval the whole FakeStore catalog is streamed
+      (forEachProduct, one product in memory at a time) and imported in
+      chunks, every chunk in its own transaction
+    - at startup, before the application reports itself ready, an empty
+      database gets a first snapshot and the hot products are loaded, so the
+      first requests after a deploy do not all go to FakeStore
+    Products deleted upstream are not deleted here: we cannot tell them apart
+    from the products that were only ever created here.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamSnapshotSync.class);
+
+    private ProductService upstream;
+    private ProductService tiered;
+    private SelfProductService store;
+    private TieredProperties properties;
+
+    @Autowired
+    public UpstreamSnapshotSync(@Qualifier("fakeStoreProductService") ProductService upstreamObj,
+                                @Qualifier("tieredProductService") ProductService tieredObj,
+                                SelfProductService storeObj,
+                                TieredProperties propertiesObj) {
+        this.upstream = upstreamObj;
+        this.tiered = tieredObj;
+        this.store = storeObj;
+        this.properties = propertiesObj;
+    }
+
+    // Spring Boot reports the application as ready (readiness probe) only
+    // after the ApplicationReadyEvent listeners have returned
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            if (properties.isSnapshotWhenEmpty() && store.getCatalogVersion().getProductCount() == 0) {
+                log.info("No products stored yet, taking a snapshot of the upstream catalog");
+                snapshot();
+            }
+            if (!properties.getHotProductIds().isEmpty()) {
+                // through the tiered service: missing hot products are imported in one batch
+                int loaded = tiered.getProducts(properties.getHotProductIds()).getProducts().size();
+                log.info("Warmed up {} of {} hot products", loaded, properties.getHotProductIds().size());
+            }
+        } catch (RuntimeException e) {
+            // FakeStore being down must not keep us from starting
+            log.warn("Warm-up from the upstream catalog failed", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${productservice.tiered.snapshot-interval:PT1H}",
+            fixedDelayString = "${productservice.tiered.snapshot-interval:PT1H}")
+    public void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Snapshot of the upstream catalog failed", e);
+        }
+    }
+
+    // Returns the number of products that were read from upstream
+    public int snapshot() {
+        long start = System.nanoTime();
+        List<Product> chunk = new ArrayList<>(properties.getSnapshotChunkSize());
+        int[] read = {0};
+        upstream.forEachProduct(product -> {
+            chunk.add(product);
+            read[0]++;
+            if (chunk.size() >= properties.getSnapshotChunkSize()) {
+                store.importProducts(chunk);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            store.importProducts(chunk);
+        }
+        log.info("Snapshot of {} upstream products took {} ms", read[0], (System.nanoTime() - start) / 1_000_000);
+        return read[0];
+    }
+}
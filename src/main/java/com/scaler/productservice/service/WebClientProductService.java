@@ -0,0 +1,92 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service("webClientProductService") // This tells Spring to make this class a service
+public class WebClientProductService implements ReactiveProductService {
+
+    // This is the non-blocking version of FakeStoreProductService.
+    // RestTemplate keeps the calling thread waiting for the whole round trip
+    // to the FakeStore API. WebClient instead registers a callback on a Netty
+    // event loop and gives the thread back, so a handful of event-loop threads
+    // can have thousands of upstream calls in flight at the same time.
+    // The WebClient goes through the same bulkhead, circuit breaker and
+    // timeouts as the RestTemplate (see UpstreamHttpClientFactory), and the
+    // DTO <-> Product conversion is the same FakeStoreProductConverter.
+
+    private WebClient webClient;
+    private FakeStoreProductConverter converter;
+
+    @Autowired
+    public WebClientProductService(@Qualifier("fakeStoreWebClient") WebClient webClientObj,
+                                   FakeStoreProductConverter converterObj) {
+        this.webClient = webClientObj;
+        this.converter = converterObj;
+    }
+
+    @Override
+    public Mono<Product> getSingleProduct(Long id) {
+        // FakeStore answers 200 with an empty body for an unknown id,
+        // which shows up here as an empty Mono
+        return webClient.get()
+                .uri("/products/{id}", id)
+                .retrieve()
+                .bodyToMono(FakeStoreProductDto.class)
+                .map(converter::convertProductDtoToProduct)
+                .switchIfEmpty(Mono.error(() ->
+                        new ProductDoesNotExistException("Product with id " + id + " does not exist")));
+    }
+
+    @Override
+    public Flux<Product> getAllProducts() {
+        return webClient.get()
+                .uri("/products")
+                .retrieve()
+                .bodyToFlux(FakeStoreProductDto.class)
+                .map(converter::convertProductDtoToProduct);
+    }
+
+    @Override
+    public Mono<Product> addProduct(Product product) {
+        return exchange(HttpMethod.POST, "/products", product);
+    }
+
+    @Override
+    public Mono<Product> updateProduct(Long id, Product product) {
+        return exchange(HttpMethod.PATCH, "/products/" + id, product);
+    }
+
+    @Override
+    public Mono<Product> replaceProduct(Long id, Product product) {
+        return exchange(HttpMethod.PUT, "/products/" + id, product);
+    }
+
+    @Override
+    public Mono<Product> deleteProduct(Long id) {
+        return webClient.delete()
+                .uri("/products/{id}", id)
+                .retrieve()
+                .bodyToMono(FakeStoreProductDto.class)
+                .map(converter::convertProductDtoToProduct);
+    }
+
+    private Mono<Product> exchange(HttpMethod method, String uri, Product product) {
+        // the conversion is deferred so that it runs on subscription like the call itself
+        return Mono.fromSupplier(() -> converter.convertProductToProductDto(product))
+                .flatMap(dto -> webClient.method(method)
+                        .uri(uri)
+                        .bodyValue(dto)
+                        .retrieve()
+                        .bodyToMono(FakeStoreProductDto.class))
+                .map(converter::convertProductDtoToProduct);
+    }
+}
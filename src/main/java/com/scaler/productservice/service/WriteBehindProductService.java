@@ -0,0 +1,602 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.WriteBehindProperties;
+import com.scaler.productservice.dtos.CatalogVersion;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductVersion;
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.exceptions.WriteQueueFullException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+@Service("writeBehindProductService") // This tells Spring to make this class a service
+@ConditionalOnProperty(prefix = "productservice.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindProductService implements ProductService {
+
+    /*
+    Write-behind decorator. A PATCH or PUT is not written to the database
+    right away: it is put in a bounded in-memory queue and acknowledged.
+    - Writes are coalesced per product id, a second write to a product that is
+      still waiting is merged into the first one (the last write wins per field),
+      so a product that is changed 100 times a second costs one UPDATE per flush.
+    - A background thread flushes the queue when batchSize products are waiting
+      or after flushInterval, whichever comes first. One flush is one transaction
+      and the UPDATEs go out as JDBC batches (see SelfProductService.applyWrites).
+    - When capacity products are waiting, writes wait for a flush to make room
+      (backpressure) and are rejected with 503 after offerTimeout.
+    - Reads put the waiting writes on top of what the delegate returns, so a
+      client always reads its own writes, even before they are flushed.
+    - A flush that fails because the database cannot be reached puts its
+      writes back in the queue, and the next flush waits longer after every
+      further failure (up to maxRetryBackoff). Meanwhile the queue fills up
+      and writers get their 503.
+    - A flush that fails for any other reason is split in halves until the
+      writes that cannot be stored (e.g. a title that violates a constraint)
+      are on their own. Those are dropped and logged, the others are stored.
+    - On shutdown the queue is drained before the database goes away.
+
+    What is NOT queued:
+    - addProduct: the client needs the generated id back, so it is written at once
+    - deleteProduct, and conditional writes (If-Match): they need the database
+      state, so the queue is flushed first and they are written at once
+    The price of all this: a write that was acknowledged is lost if the process
+    crashes before the next flush. That is why the mode is off by default.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindProductService.class);
+
+    // How often a read is retried when a flush finished while it was running
+    private static final int READ_ATTEMPTS = 3;
+
+    private ProductService delegate;
+    private WriteBehindProperties properties;
+
+    // Guards pending, flushing, flushEpoch and closed
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Only one flush runs at a time, writes that bypass the queue take it too
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // The waiting writes, at most one (merged) write per product id, oldest first
+    private final LinkedHashMap<Long, ProductWrite> pending = new LinkedHashMap<>();
+    // The writes of the running flush. Reads still see them until they are committed
+    private Map<Long, ProductWrite> flushing = new HashMap<>();
+    // pending + flushing, read without the lock by the fast path of the reads
+    private volatile int queued;
+    // Incremented after every flush, see read()
+    private volatile long flushEpoch;
+    private volatile boolean closed;
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Backoff after failed flushes. Only used by the flusher thread
+    private int failedFlushes;
+    private long retryAtNanos;
+    // Only changed by the thread holding flushLock
+    private volatile long droppedCount;
+
+    @Autowired
+    public WriteBehindProductService(@Qualifier("coalescingProductService") ProductService delegateObj,
+                                     WriteBehindProperties propertiesObj) {
+        this.delegate = delegateObj;
+        this.properties = propertiesObj;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = propertiesObj.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    @Override
+    public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+        return read(() -> delegate.getSingleProduct(id), this::overlay);
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+        return read(delegate::getAllProducts, this::overlay);
+    }
+
+    @Override
+    public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+        // The page is in the order of the stored values. A waiting price change
+        // shows up in the product, but moves it in the order only once it is flushed
+        return read(() -> delegate.getProductPage(sortField, cursor, size), page -> {
+            ProductPage overlaid = new ProductPage();
+            overlaid.setProducts(overlay(page.getProducts()));
+            overlaid.setNextCursor(page.getNextCursor());
+            return overlaid;
+        });
+    }
+
+    @Override
+    public ProductBatch getProducts(Collection<Long> ids) {
+        return read(() -> delegate.getProducts(ids), batch -> {
+            ProductBatch overlaid = new ProductBatch();
+            overlaid.setProducts(overlay(batch.getProducts()));
+            overlaid.setNotFoundIds(batch.getNotFoundIds());
+            overlaid.setFailedIds(batch.getFailedIds());
+            return overlaid;
+        });
+    }
+
+    @Override
+    public void forEachProduct(Consumer<Product> consumer) {
+        delegate.forEachProduct(product -> consumer.accept(queued == 0 ? product : overlay(product)));
+    }
+
+    // While a write is waiting the stored version is out of date. null makes
+    // the controller load the product (and build the ETag from its content)
+
+    @Override
+    public ProductVersion getProductVersion(Long id) {
+        if (isQueued(id)) {
+            return null;
+        }
+        return delegate.getProductVersion(id);
+    }
+
+    @Override
+    public CatalogVersion getCatalogVersion() {
+        return queued == 0 ? delegate.getCatalogVersion() : null;
+    }
+
+    /*
+    A read asks the delegate first and puts the waiting writes on top. A flush
+    that commits while the delegate is reading would make us miss its writes:
+    they are no longer in the queue, but the delegate may have read the old rows.
+    flushEpoch tells us that this happened, and we simply read again.
+     */
+    private <T, E extends Exception> T read(SingleFlight.Fetch<T, E> fetch, UnaryOperator<T> overlay) throws E {
+        for (int attempt = 1; ; attempt++) {
+            long epoch = flushEpoch;
+            T value = fetch.get();
+            if (value == null || (queued == 0 && epoch == flushEpoch)) {
+                return value;
+            }
+            lock.lock();
+            try {
+                if (epoch == flushEpoch || attempt == READ_ATTEMPTS) {
+                    return overlay.apply(value);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private List<Product> overlay(List<Product> products) {
+        List<Product> overlaid = new ArrayList<>(products.size());
+        for (Product product : products) {
+            overlaid.add(overlay(product));
+        }
+        return overlaid;
+    }
+
+    private Product overlay(Product stored) {
+        lock.lock();
+        try {
+            ProductWrite inFlush = flushing.get(stored.getId());
+            ProductWrite waiting = pending.get(stored.getId());
+            if (inFlush == null && waiting == null) {
+                return stored;
+            }
+            Product product = inFlush == null ? stored : applied(stored, inFlush);
+            return waiting == null ? product : applied(product, waiting);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isQueued(Long id) {
+        if (queued == 0) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return pending.containsKey(id) || flushing.containsKey(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- writes
+
+    @Override
+    public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+        return write(ProductWrite.of(id, product, false));
+    }
+
+    @Override
+    public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+        return write(ProductWrite.of(id, product, true));
+    }
+
+    private Product write(ProductWrite write) throws ProductDoesNotExistException {
+        if (write.getProduct().getVersion() != null) {
+            // a conditional write compares with the stored version, so everything
+            // that is waiting has to be stored first
+            return writeThrough(write);
+        }
+        // Reading the product first answers 404 for an unknown id right away, and
+        // gives us the full product for the response (a PATCH only has some fields).
+        // A read by id is much cheaper than a write transaction
+        Product current = getSingleProduct(write.getId());
+        if (!enqueue(write)) {
+            return writeThrough(write);
+        }
+        return applied(current, write);
+    }
+
+    private Product writeThrough(ProductWrite write) throws ProductDoesNotExistException {
+        flushLock.lock();
+        try {
+            flushAll();
+            return write.isReplace()
+                    ? delegate.replaceProduct(write.getId(), write.getProduct())
+                    : delegate.updateProduct(write.getId(), write.getProduct());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // false when we are shutting down and the write has to go to the delegate itself
+    private boolean enqueue(ProductWrite write) {
+        lock.lock();
+        try {
+            long nanos = properties.getOfferTimeout().toNanos();
+            // the writes of the running flush still take up room until they are committed
+            while (!closed && !pending.containsKey(write.getId())
+                    && pending.size() + flushing.size() >= properties.getCapacity()) {
+                if (nanos <= 0) {
+                    throw new WriteQueueFullException("Write queue is full (" + properties.getCapacity()
+                            + " products), try again later");
+                }
+                requestFlush();
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (closed) {
+                return false;
+            }
+            pending.merge(write.getId(), write, WriteBehindProductService::merged);
+            queued = pending.size() + flushing.size();
+            if (pending.size() >= properties.getBatchSize()) {
+                requestFlush();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteQueueFullException("Interrupted while waiting for room in the write queue");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Product addProduct(Product product) {
+        return delegate.addProduct(product);
+    }
+
+    @Override
+    public List<Product> addProducts(List<Product> products) {
+        return delegate.addProducts(products);
+    }
+
+    @Override
+    public List<Long> applyWrites(List<ProductWrite> writes) {
+        return delegate.applyWrites(writes);
+    }
+
+    @Override
+    public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+        // Holding the flush lock, no flush can write the product after we deleted it
+        flushLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (pending.remove(id) != null) {
+                    queued = pending.size() + flushing.size();
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return delegate.deleteProduct(id);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- flushing
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Runs on the flusher thread, a failure must not stop the scheduled flushes
+    private void flushQuietly() {
+        flushRequested.set(false);
+        if (failedFlushes > 0 && System.nanoTime() - retryAtNanos < 0) {
+            // backing off, the scheduled flush after retryAtNanos tries again
+            return;
+        }
+        flushLock.lock();
+        try {
+            flushAll();
+            failedFlushes = 0;
+        } catch (RuntimeException e) {
+            failedFlushes++;
+            long backoff = backoffMillis(failedFlushes);
+            retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+            log.error("Write-behind flush failed, {} products stay queued, next attempt in {} ms",
+                    queued, backoff, e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // flushInterval, doubled for every further failure, at most maxRetryBackoff
+    private long backoffMillis(int failures) {
+        long interval = properties.getFlushInterval().toMillis();
+        long backoff = interval << Math.min(failures - 1, 20);
+        return Math.min(backoff, properties.getMaxRetryBackoff().toMillis());
+    }
+
+    // Flushes batch after batch until the queue is empty. Caller holds flushLock
+    private void flushAll() {
+        while (flushBatch()) {
+            // next batch
+        }
+    }
+
+    // Writes up to batchSize waiting products, in one call to the delegate unless
+    // the batch has to be split. Returns false when there was nothing to write
+    private boolean flushBatch() {
+        List<ProductWrite> batch = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<ProductWrite> oldestFirst = pending.values().iterator();
+            while (oldestFirst.hasNext() && batch.size() < properties.getBatchSize()) {
+                ProductWrite write = oldestFirst.next();
+                oldestFirst.remove();
+                flushing.put(write.getId(), write);
+                batch.add(write);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        // ids of the writes that left the queue: stored or dropped
+        Set<Long> done = new HashSet<>();
+        try {
+            writeIsolatingFailures(batch, done);
+        } finally {
+            lock.lock();
+            try {
+                if (done.size() < batch.size()) {
+                    // Put the rest of the batch back in front of the writes that
+                    // arrived meanwhile, the next flush tries again
+                    requeue(batch.stream().filter(write -> !done.contains(write.getId())).toList());
+                }
+                flushing = new HashMap<>();
+                queued = pending.size();
+                flushEpoch++;
+                if (!done.isEmpty()) {
+                    // only wake writers when there is room, a failed flush made none
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /*
+    Writes the batch. When it fails for a reason that is not the database being
+    unreachable or busy, one of its writes may be the cause: the halves are
+    written separately, down to single writes. A single write that still fails
+    is dropped, so it does not hold back the queue forever. A transient failure
+    is thrown, the writes that are not in done yet are put back.
+     */
+    private void writeIsolatingFailures(List<ProductWrite> batch, Set<Long> done) {
+        try {
+            List<Long> missing = delegate.applyWrites(batch);
+            if (!missing.isEmpty()) {
+                // deleted (by another instance) before we got to write them
+                log.warn("Write-behind dropped writes to products that no longer exist: {}", missing);
+            }
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                droppedCount++;
+                log.error("Write-behind dropped the write to product {}, it cannot be stored",
+                        batch.get(0).getId(), e);
+                done.add(batch.get(0).getId());
+                return;
+            }
+            int half = batch.size() / 2;
+            writeIsolatingFailures(batch.subList(0, half), done);
+            writeIsolatingFailures(batch.subList(half, batch.size()), done);
+            return;
+        }
+        for (ProductWrite write : batch) {
+            done.add(write.getId());
+        }
+    }
+
+    // The database is down, busy or timed out: the same writes may succeed later
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void requeue(List<ProductWrite> batch) {
+        LinkedHashMap<Long, ProductWrite> newer = new LinkedHashMap<>(pending);
+        pending.clear();
+        for (ProductWrite write : batch) {
+            pending.put(write.getId(), write);
+        }
+        newer.forEach((id, write) -> pending.merge(id, write, WriteBehindProductService::merged));
+    }
+
+    // Spring calls this on shutdown, before the delegate and the database are closed
+    @PreDestroy
+    public void drain() {
+        lock.lock();
+        try {
+            closed = true;
+            // writers waiting for room write through from now on
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        long deadline = System.nanoTime() + properties.getDrainTimeout().toNanos();
+        flushLock.lock();
+        try {
+            while (queued > 0 && System.nanoTime() < deadline) {
+                try {
+                    flushAll();
+                } catch (RuntimeException e) {
+                    log.error("Write-behind drain failed, retrying", e);
+                    sleepQuietly();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (queued > 0) {
+            log.error("Write-behind drain timed out, {} product writes are lost", queued);
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueuedCount() {
+        return queued;
+    }
+
+    // Writes dropped because they could not be stored, see writeIsolatingFailures()
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // ---------------------------------------------------------------- merging
+
+    // A newer write to a product that is still waiting. A PUT replaces whatever
+    // was waiting, a PATCH is applied on top of it (and stays a PUT if it was one)
+    private static ProductWrite merged(ProductWrite older, ProductWrite newer) {
+        if (newer.isReplace()) {
+            return newer;
+        }
+        Product product = copyOf(older.getProduct());
+        patch(product, newer.getProduct());
+        return ProductWrite.of(older.getId(), product, older.isReplace());
+    }
+
+    // The product as it will be once the write is stored. The stored version no
+    // longer describes it, so it is left out (the ETag falls back to the content)
+    private static Product applied(Product base, ProductWrite write) {
+        Product product = copyOf(base);
+        if (write.isReplace()) {
+            Product replacement = write.getProduct();
+            product.setTitle(replacement.getTitle());
+            product.setPrice(replacement.getPrice());
+            product.setDescription(replacement.getDescription());
+            product.setImageUrl(replacement.getImageUrl());
+            product.setCategory(replacement.getCategory());
+        } else {
+            patch(product, write.getProduct());
+        }
+        product.setVersion(null);
+        return product;
+    }
+
+    // Same rules as SelfProductService.updateProduct: only the fields that were sent
+    private static void patch(Product product, Product patch) {
+        if (patch.getTitle() != null) {
+            product.setTitle(patch.getTitle());
+        }
+        if (patch.getPrice() != 0) {
+            product.setPrice(patch.getPrice());
+        }
+        if (patch.getDescription() != null) {
+            product.setDescription(patch.getDescription());
+        }
+        if (patch.getImageUrl() != null) {
+            product.setImageUrl(patch.getImageUrl());
+        }
+        if (patch.getCategory() != null) {
+            product.setCategory(patch.getCategory());
+        }
+    }
+
+    // Products returned by the delegate may be shared with other callers
+    // (CoalescingProductService), so we never change them in place
+    private static Product copyOf(Product source) {
+        Product product = new Product();
+        product.setId(source.getId());
+        product.setTitle(source.getTitle());
+        product.setPrice(source.getPrice());
+        product.setDescription(source.getDescription());
+        product.setImageUrl(source.getImageUrl());
+        product.setCategory(source.getCategory());
+        product.setVersion(source.getVersion());
+        product.setCreatedAt(source.getCreatedAt());
+        product.setCreatedBy(source.getCreatedBy());
+        product.setUpdatedAt(source.getUpdatedAt());
+        product.setUpdatedBy(source.getUpdatedBy());
+        return product;
+    }
+}
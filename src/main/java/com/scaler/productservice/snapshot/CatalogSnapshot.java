@@ -0,0 +1,268 @@
+package com.scaler.productservice.snapshot;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+public final class CatalogSnapshot {
+
+    /*
+    The catalog reduced to what price and category filters need, stored by
+    column in primitive arrays instead of one object per product:
+    - ids[row], prices[row] and categoryCodes[row] describe one product
+    - categoryCodes point into categoryNames (dictionary encoding), so a
+      category costs 4 bytes per product instead of a reference to a String
+    - byPrice lists the rows sorted by (price, id). A price range is two
+      binary searches, and walking it hands out the rows already sorted
+    That is 24 bytes per product, where a Product entity with its BaseModel
+    fields, strings and Hibernate snapshot takes a few hundred (see
+    getEstimatedBytes). Scans read the arrays directly, nothing is boxed.
+    A snapshot never changes after it is built: it is replaced as a whole
+    (see CatalogSnapshotService), so readers need no locks.
+     */
+
+    private static final int ANY_CATEGORY = -2;
+    private static final int NO_CATEGORY = -1;
+
+    private final long[] ids;
+    private final double[] prices;
+    private final int[] categoryCodes;
+    private final String[] categoryNames;
+    // lower case name -> code, for the case insensitive category filter
+    private final Map<String, Integer> codesByName;
+    private final int[] byPrice;
+    @Getter
+    private final Date builtAt;
+
+    private CatalogSnapshot(long[] ids, double[] prices, int[] categoryCodes, String[] categoryNames, Date builtAt) {
+        this.ids = ids;
+        this.prices = prices;
+        this.categoryCodes = categoryCodes;
+        this.categoryNames = categoryNames;
+        this.builtAt = builtAt;
+        this.codesByName = new HashMap<>();
+        for (int code = 0; code < categoryNames.length; code++) {
+            codesByName.put(categoryNames[code].toLowerCase(Locale.ROOT), code);
+        }
+        this.byPrice = sortByPrice(prices, ids);
+    }
+
+    public static CatalogSnapshot empty() {
+        return new Builder().build();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /*
+    The products that match the filters (all optional), in price order,
+    starting after the cursor (afterId null = from the start). At most limit
+    of them; hasMore tells whether there are more. totalMatches counts all
+    matches regardless of the cursor, on all CPUs once the range holds at
+    least parallelThreshold rows.
+     */
+    public Scan scan(String category, Double minPrice, Double maxPrice,
+                     Long afterId, double afterPrice, int limit, int parallelThreshold) {
+        int code = ANY_CATEGORY;
+        if (category != null) {
+            Integer known = codesByName.get(category.toLowerCase(Locale.ROOT));
+            if (known == null) {
+                return new Scan(new long[0], new double[0], false, 0);
+            }
+            code = known;
+        }
+        int from = minPrice == null ? 0 : firstAtLeast(minPrice);
+        int to = maxPrice == null ? byPrice.length : firstAbove(maxPrice);
+        long totalMatches = count(from, to, code, parallelThreshold);
+
+        int start = afterId == null ? from : Math.max(from, firstAfter(afterPrice, afterId));
+        long[] pageIds = new long[limit];
+        double[] pagePrices = new double[limit];
+        int found = 0;
+        boolean hasMore = false;
+        for (int i = start; i < to; i++) {
+            int row = byPrice[i];
+            if (code != ANY_CATEGORY && categoryCodes[row] != code) {
+                continue;
+            }
+            if (found == limit) {
+                hasMore = true;
+                break;
+            }
+            pageIds[found] = ids[row];
+            pagePrices[found] = prices[row];
+            found++;
+        }
+        return new Scan(Arrays.copyOf(pageIds, found), Arrays.copyOf(pagePrices, found), hasMore, totalMatches);
+    }
+
+    private long count(int from, int to, int code, int parallelThreshold) {
+        if (to <= from) {
+            return 0;
+        }
+        if (code == ANY_CATEGORY) {
+            return to - from;
+        }
+        IntStream range = IntStream.range(from, to);
+        if (to - from >= parallelThreshold) {
+            range = range.parallel();
+        }
+        return range.filter(i -> categoryCodes[byPrice[i]] == code).count();
+    }
+
+    // First position in byPrice with a price >= price
+    private int firstAtLeast(double price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(prices[byPrice[mid]], price) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position in byPrice with a price > price
+    private int firstAbove(double price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(prices[byPrice[mid]], price) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position in byPrice after (price, id), where the next page starts
+    private int firstAfter(double price, long id) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = byPrice[mid];
+            int byPriceOrder = Double.compare(prices[row], price);
+            if (byPriceOrder < 0 || (byPriceOrder == 0 && ids[row] <= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Rows sorted by (price, id) with a bottom-up merge sort on int[], a
+    // comparator over Integer[] would box every row
+    private static int[] sortByPrice(double[] prices, long[] ids) {
+        int n = prices.length;
+        int[] order = new int[n];
+        for (int row = 0; row < n; row++) {
+            order[row] = row;
+        }
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, n);
+                int left = low;
+                int right = mid;
+                int out = low;
+                while (left < mid && right < high) {
+                    int a = order[left];
+                    int b = order[right];
+                    int byPriceOrder = Double.compare(prices[b], prices[a]);
+                    if (byPriceOrder < 0 || (byPriceOrder == 0 && ids[b] < ids[a])) {
+                        buffer[out++] = b;
+                        right++;
+                    } else {
+                        buffer[out++] = a;
+                        left++;
+                    }
+                }
+                while (left < mid) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+
+    // What the snapshot occupies on the heap: the arrays (16 byte header each)
+    // plus the category names
+    public long getEstimatedBytes() {
+        long bytes = 4 * 16 + (long) ids.length * (8 + 8 + 4 + 4);
+        for (String name : categoryNames) {
+            bytes += 40 + name.length();
+        }
+        return bytes;
+    }
+
+    public double getBytesPerProduct() {
+        return ids.length == 0 ? 0 : (double) getEstimatedBytes() / ids.length;
+    }
+
+    @Getter
+    public static final class Scan {
+        private final long[] ids;
+        private final double[] prices;
+        private final boolean hasMore;
+        private final long totalMatches;
+
+        Scan(long[] ids, double[] prices, boolean hasMore, long totalMatches) {
+            this.ids = ids;
+            this.prices = prices;
+            this.hasMore = hasMore;
+            this.totalMatches = totalMatches;
+        }
+    }
+
+    // Collects the rows into growing arrays, build() trims them
+    public static final class Builder {
+        private long[] ids = new long[1024];
+        private double[] prices = new double[1024];
+        private int[] categoryCodes = new int[1024];
+        private int size;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> categoryNames = new ArrayList<>();
+
+        public Builder add(long id, double price, String categoryName) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+            }
+            ids[size] = id;
+            prices[size] = price;
+            categoryCodes[size] = categoryName == null ? NO_CATEGORY : codes.computeIfAbsent(categoryName, name -> {
+                categoryNames.add(name);
+                return categoryNames.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        public CatalogSnapshot build() {
+            return new CatalogSnapshot(Arrays.copyOf(ids, size), Arrays.copyOf(prices, size),
+                    Arrays.copyOf(categoryCodes, size), categoryNames.toArray(new String[0]), new Date());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.scaler.productservice.snapshot;
+
+import com.scaler.productservice.config.CatalogSnapshotProperties;
+import com.scaler.productservice.dtos.ProductPriceRow;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.repositories.CategoryRepository;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.CategoryDictionary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Service("catalogSnapshotService") // This tells Spring to make this class a service
+public class CatalogSnapshotService {
+
+    /*
+    Owns the current CatalogSnapshot. Every refreshInterval a new one is
+    built from three columns of the product table (read in id order, a chunk
+    at a time) and swapped in with a single volatile write: a request uses
+    either the old or the new snapshot, never half of each, and building
+    never blocks a reader.
+    Products changed after the last build show up with the next one, so
+    filtered listings can be up to refreshInterval behind.
+    Metrics: product.snapshot.products and product.snapshot.bytes
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private CategoryDictionary categoryDictionary;
+    private TransactionTemplate transactionTemplate;
+    private CatalogSnapshotProperties properties;
+
+    private volatile CatalogSnapshot current = CatalogSnapshot.empty();
+
+    @Autowired
+    public CatalogSnapshotService(ProductRepository productRepositoryObj,
+                                  CategoryRepository categoryRepositoryObj,
+                                  CategoryDictionary categoryDictionaryObj,
+                                  PlatformTransactionManager transactionManagerObj,
+                                  CatalogSnapshotProperties propertiesObj,
+                                  MeterRegistry meterRegistryObj) {
+        this.productRepository = productRepositoryObj;
+        this.categoryRepository = categoryRepositoryObj;
+        this.categoryDictionary = categoryDictionaryObj;
+        this.transactionTemplate = new TransactionTemplate(transactionManagerObj);
+        // read-only: the build may run on a read replica
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = propertiesObj;
+
+        Gauge.builder("product.snapshot.products", this, service -> service.current.size())
+                .description("Products in the columnar catalog snapshot")
+                .register(meterRegistryObj);
+        Gauge.builder("product.snapshot.bytes", this, service -> service.current.getEstimatedBytes())
+                .description("Estimated heap used by the columnar catalog snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistryObj);
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return current;
+    }
+
+    // See CatalogSnapshot.scan, afterId null for the first page
+    public CatalogSnapshot.Scan filter(String category, Double minPrice, Double maxPrice,
+                                       Long afterId, double afterPrice, int limit) {
+        return current.scan(category, minPrice, maxPrice, afterId, afterPrice, limit,
+                properties.getParallelScanThreshold());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialBuild() {
+        scheduledRebuild();
+    }
+
+    @Scheduled(initialDelayString = "${productservice.snapshot.refresh-interval:PT30S}",
+            fixedDelayString = "${productservice.snapshot.refresh-interval:PT30S}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // the old snapshot stays in use
+            log.error("Rebuilding the catalog snapshot failed", e);
+        }
+    }
+
+    public CatalogSnapshot rebuild() {
+        long start = System.nanoTime();
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long after = lastId;
+            List<ProductPriceRow> rows = transactionTemplate.execute(status ->
+                    productRepository.findPriceRowsAfterId(after, Limit.of(properties.getReadChunkSize())));
+            for (ProductPriceRow row : rows) {
+                builder.add(row.getId(), row.getPrice(), categoryName(row.getCategoryId()));
+            }
+            if (rows.size() < properties.getReadChunkSize()) {
+                break;
+            }
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+        CatalogSnapshot snapshot = builder.build();
+        current = snapshot;
+        log.debug("Built the catalog snapshot of {} products in {} ms, {} bytes ({} per product)",
+                snapshot.size(), (System.nanoTime() - start) / 1_000_000,
+                snapshot.getEstimatedBytes(), Math.round(snapshot.getBytesPerProduct()));
+        return snapshot;
+    }
+
+    private String categoryName(Long categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        String name = categoryDictionary.getNameById(categoryId);
+        if (name == null) {
+            // created by another instance since our startup
+            name = categoryRepository.findById(categoryId)
+                    .map(categoryDictionary::register)
+                    .map(Category::getName)
+                    .orElse(null);
+        }
+        return name;
+    }
+}
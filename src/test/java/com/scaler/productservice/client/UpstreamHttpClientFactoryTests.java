@@ -0,0 +1,187 @@
+package com.scaler.productservice.client;
+
+import com.scaler.productservice.config.UpstreamClientProperties;
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.support.FakeStoreStubServer;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamHttpClientFactoryTests {
+
+    private FakeStoreStubServer stub;
+    private UpstreamClientProperties properties;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new FakeStoreStubServer();
+        properties = new UpstreamClientProperties();
+        properties.setReadTimeout(Duration.ofMillis(300));
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    private RestTemplate createRestTemplate() {
+        return UpstreamHttpClientFactory.createRestTemplate(new RestTemplateBuilder(), properties);
+    }
+
+    @Test
+    void fetchesProductThroughPooledClient() {
+        FakeStoreProductDto dto = createRestTemplate()
+                .getForObject(stub.getBaseUrl() + "/products/7", FakeStoreProductDto.class);
+
+        assertThat(dto).isNotNull();
+        assertThat(dto.getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void slowUpstreamTimesOutInsteadOfHanging() {
+        stub.setLatencyMillis(2_000);
+        RestTemplate restTemplate = createRestTemplate();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> restTemplate.getForObject(stub.getBaseUrl() + "/products/1", FakeStoreProductDto.class))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1_500));
+    }
+
+    @Test
+    void routeOverrideReplacesDefaultReadTimeout() {
+        stub.setLatencyMillis(600);
+        UpstreamClientProperties.Route route = new UpstreamClientProperties.Route();
+        route.setReadTimeout(Duration.ofSeconds(2));
+        properties.getRoutes().put("localhost", route);
+
+        FakeStoreProductDto dto = createRestTemplate()
+                .getForObject(stub.getBaseUrl() + "/products/1", FakeStoreProductDto.class);
+
+        assertThat(dto).isNotNull();
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailures() {
+        stub.setFailureStatus(500);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(4);
+        properties.getCircuitBreaker().setSlidingWindowSize(4);
+        RestTemplate restTemplate = createRestTemplate();
+        String url = stub.getBaseUrl() + "/products/1";
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> restTemplate.getForObject(url, FakeStoreProductDto.class))
+                    .isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThatThrownBy(() -> restTemplate.getForObject(url, FakeStoreProductDto.class))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(stub.getRequestCount()).isEqualTo(4);
+    }
+
+    @Test
+    void bulkheadCapsConcurrentUpstreamCalls() throws Exception {
+        stub.setLatencyMillis(200);
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        RestTemplate restTemplate = createRestTemplate();
+        String url = stub.getBaseUrl() + "/products/1";
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<FakeStoreProductDto>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(executor.submit(() -> restTemplate.getForObject(url, FakeStoreProductDto.class)));
+        }
+
+        int rejected = 0;
+        for (Future<FakeStoreProductDto> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException exception) {
+                assertThat(exception.getCause()).isInstanceOf(BulkheadFullException.class);
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(rejected).isGreaterThan(0);
+        assertThat(stub.getMaxInFlight()).isLessThanOrEqualTo(2);
+    }
+
+    // The WebClient gets the same protections as the RestTemplate
+
+    private WebClient createWebClient() {
+        return UpstreamHttpClientFactory.createWebClient(WebClient.builder(), properties, stub.getBaseUrl());
+    }
+
+    private Mono<FakeStoreProductDto> getWithWebClient(WebClient webClient) {
+        return webClient.get().uri("/products/1").retrieve().bodyToMono(FakeStoreProductDto.class);
+    }
+
+    @Test
+    void webClientCircuitOpensAfterRepeatedFailures() {
+        stub.setFailureStatus(500);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(4);
+        properties.getCircuitBreaker().setSlidingWindowSize(4);
+        WebClient webClient = createWebClient();
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> getWithWebClient(webClient).block(Duration.ofSeconds(5)))
+                    .isInstanceOf(WebClientResponseException.class);
+        }
+        assertThatThrownBy(() -> getWithWebClient(webClient).block(Duration.ofSeconds(5)))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(stub.getRequestCount()).isEqualTo(4);
+    }
+
+    @Test
+    void webClientBulkheadCapsConcurrentUpstreamCalls() {
+        stub.setLatencyMillis(200);
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        WebClient webClient = createWebClient();
+
+        List<Object> results = Flux.range(0, 6)
+                .flatMap(i -> getWithWebClient(webClient)
+                        .cast(Object.class)
+                        .onErrorResume(BulkheadFullException.class, Mono::just), 6)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(results).hasAtLeastOneElementOfType(BulkheadFullException.class);
+        assertThat(stub.getMaxInFlight()).isLessThanOrEqualTo(2);
+        // every slot was given back once its body had been read
+        assertThat(getWithWebClient(webClient).block(Duration.ofSeconds(5))).isNotNull();
+    }
+
+    @Test
+    void webClientUsesTheRouteReadTimeout() {
+        stub.setLatencyMillis(600);
+        assertThatThrownBy(() -> getWithWebClient(createWebClient()).block(Duration.ofSeconds(5)))
+                .isInstanceOf(WebClientRequestException.class);
+
+        UpstreamClientProperties.Route route = new UpstreamClientProperties.Route();
+        route.setReadTimeout(Duration.ofSeconds(2));
+        properties.getRoutes().put("localhost", route);
+        assertThat(getWithWebClient(createWebClient()).block(Duration.ofSeconds(5))).isNotNull();
+    }
+}
@@ -0,0 +1,123 @@
+package com.scaler.productservice.client;
+
+import com.scaler.productservice.ProductServiceApplication;
+import com.scaler.productservice.support.FakeStoreStubServer;
+import com.scaler.productservice.support.LoadGenerator;
+import com.scaler.productservice.support.LoadReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("load")
+class VirtualThreadLoadTests {
+
+    /*
+    Runs the app twice, the way production runs it with
+    spring.threads.virtual.enabled=false and =true, against the same stub
+    upstream and the same burst of requests. Every request blocks its
+    thread in ProductController -> FakeStoreProductService on the
+    RestTemplate call to the stub:
+    - platform threads: Tomcat has TOMCAT_THREADS workers, so no more than
+      that many upstream calls are in flight, the rest of the burst waits in
+      the accept queue and p99 grows with the length of the queue
+    - virtual threads: every request gets its own thread, the upstream calls
+      of the whole burst overlap
+    The upstream latency is much larger than the CPU cost of a request,
+    otherwise the run measures the CPU and not the threading model.
+    The two apps run one after the other, each on its own random port.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadTests.class);
+
+    private static final int REQUESTS = 200;
+    private static final int TOMCAT_THREADS = 20;
+    private static final long LATENCY_MILLIS = 500;
+
+    private static final FakeStoreStubServer stub = startStub();
+
+    private final LoadGenerator generator = new LoadGenerator();
+
+    private static FakeStoreStubServer startStub() {
+        try {
+            return new FakeStoreStubServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void virtualThreadsKeepMoreUpstreamCallsInFlightAndAnswerSooner() throws Exception {
+        Run platform = run(false);
+        Run virtual = run(true);
+
+        log.info("{}{}", platform.report(), virtual.report());
+        log.info(String.format("%-17s %10s %18s%n%-17s %10.1f %18d%n%-17s %10.1f %18d",
+                "", "p99 ms", "max upstream calls",
+                "platform threads", platform.report().percentile(99), platform.maxInFlight(),
+                "virtual threads", virtual.report().percentile(99), virtual.maxInFlight()));
+
+        assertThat(platform.report().getErrors()).isZero();
+        assertThat(virtual.report().getErrors()).isZero();
+        assertThat(platform.maxInFlight()).isLessThanOrEqualTo(TOMCAT_THREADS);
+        assertThat(virtual.maxInFlight()).isGreaterThan(TOMCAT_THREADS);
+        // the platform burst is worked off TOMCAT_THREADS at a time, REQUESTS / TOMCAT_THREADS
+        // rounds of LATENCY_MILLIS; the virtual one is bound by the CPU instead
+        // (a local run on one CPU: p99 5.6 s with platform threads, 2.4 s with virtual ones)
+        assertThat(virtual.report().percentile(99)).isLessThan(platform.report().percentile(99));
+        // background upstream work follows the same switch
+        assertThat(platform.upstreamExecutor()).isNotInstanceOf(SimpleAsyncTaskExecutor.class);
+        assertThat(virtual.upstreamExecutor()).isInstanceOf(SimpleAsyncTaskExecutor.class);
+    }
+
+    private Run run(boolean virtualThreads) throws InterruptedException {
+        String name = virtualThreads ? "virtual threads" : "platform threads";
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(ProductServiceApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        // the platform thread limit, only virtual threads get past it
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "productservice.backend.product-service=fakeStoreProductService",
+                        "productservice.upstream.base-url=" + stub.getBaseUrl(),
+                        "productservice.upstream.max-connections-total=" + REQUESTS,
+                        "productservice.upstream.max-connections-per-route=" + REQUESTS,
+                        "productservice.upstream.bulkhead.enabled=false")
+                .run()) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            IntFunction<URI> requests = i -> URI.create(baseUrl + "/products/" + (i + 1));
+
+            // an unreported run without upstream latency first, so JIT compilation
+            // and connection setup do not end up in the percentiles
+            stub.setLatencyMillis(0);
+            generator.run("warm-up", requests, REQUESTS, Duration.ofSeconds(1));
+            stub.setLatencyMillis(LATENCY_MILLIS);
+            stub.resetMaxInFlight();
+
+            // all REQUESTS arrive within 200 ms, long before the first one is answered
+            LoadReport report = generator.run(name, requests, REQUESTS * 5, Duration.ofMillis(200));
+            return new Run(report, stub.getMaxInFlight(), app.getBean("upstreamExecutor", TaskExecutor.class));
+        }
+    }
+
+    private record Run(LoadReport report, int maxInFlight, TaskExecutor upstreamExecutor) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.exceptions.ProductVersionMismatchException;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long id;
+
+    @BeforeEach
+    void seed() {
+        Category category = new Category();
+        category.setName("conditional-category");
+        Product product = new Product();
+        product.setTitle("Conditional product");
+        product.setPrice(10);
+        product.setCategory(category);
+        id = productService.addProduct(product).getId();
+    }
+
+    @Test
+    void unchangedProductIsNotModifiedWithoutLoadingIt() throws Exception {
+        String eTag = mockMvc.perform(get("/products/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/products/" + id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        // only the version was read
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void catalogIsNotModifiedUntilAProductChanges() throws Exception {
+        String eTag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/products/update/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Changed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void catalogChangesWhenAProductIsDeleted() throws Exception {
+        String eTag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(delete("/products/delete/" + id))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void weakETagNeverMatchesAConditionalUpdate() throws Exception {
+        String eTag = mockMvc.perform(get("/products/" + id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/products/update/" + id)
+                        .header(HttpHeaders.IF_MATCH, "W/" + eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Weak\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/products/" + id))
+                .andExpect(jsonPath("$.title").value("Conditional product"))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+    @Test
+    void conditionalUpdateNeedsTheCurrentETag() throws Exception {
+        String eTag = mockMvc.perform(get("/products/" + id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String newETag = mockMvc.perform(patch("/products/update/" + id)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"First\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("First"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newETag).isNotEqualTo(eTag);
+
+        // a second client still holding the old ETag loses
+        mockMvc.perform(patch("/products/update/" + id)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Second\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/products/" + id))
+                .andExpect(jsonPath("$.title").value("First"))
+                .andExpect(header().string(HttpHeaders.ETAG, newETag));
+    }
+
+    @Test
+    void ifMatchListMatchesWhenOneOfItsETagsIsCurrent() throws Exception {
+        String eTag = mockMvc.perform(get("/products/" + id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/products/update/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"" + id + ".99\", W/\"x,y\", " + eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Listed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Listed"));
+
+        mockMvc.perform(patch("/products/update/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"" + id + ".99\", " + eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Stale\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void contentHashETagOfAProductWithoutVersionMatchesIfMatch() throws Exception {
+        // what FakeStore products look like: no version, the ETag is a hash of the content
+        Product upstream = new Product();
+        upstream.setId(7L);
+        upstream.setTitle("Upstream product");
+        upstream.setPrice(5);
+        String eTag = "\"" + ProductETags.of(upstream) + "\"";
+
+        assertThat(ProductETags.versionFrom(7L, eTag, () -> upstream)).isNull();
+        assertThat(ProductETags.versionFrom(7L, "\"7.3\"", () -> upstream)).isEqualTo(3L);
+
+        Product changed = new Product();
+        changed.setId(7L);
+        changed.setTitle("Changed upstream");
+        changed.setPrice(5);
+        assertThatThrownBy(() -> ProductETags.versionFrom(7L, eTag, () -> changed))
+                .isInstanceOf(ProductVersionMismatchException.class);
+        assertThatThrownBy(() -> ProductETags.versionFrom(7L, "W/" + eTag, () -> upstream))
+                .isInstanceOf(ProductVersionMismatchException.class);
+    }
+}
@@ -0,0 +1,202 @@
+package com.scaler.productservice.controllers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.config.BinaryFormatConfiguration;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ContentNegotiationTests {
+
+    /*
+    Talks to the real Tomcat with java.net.http, which neither adds nor
+    removes compression, so the body sizes are the bytes on the wire.
+    The wire size test streams a 10k product catalog in every format, with
+    and without gzip, and logs the sizes. The serialization CPU per format
+    is measured by ProductEncodingBenchmark (src/jmh).
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ContentNegotiationTests.class);
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    private static boolean seeded;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() {
+        if (!seeded) {
+            productService.addProducts(createProducts());
+            seeded = true;
+        }
+    }
+
+    @Test
+    void binaryEncodingsOfTheCatalogAreSmallerOnTheWire() throws Exception {
+        Map<String, ObjectMapper> formats = Map.of(
+                MediaType.APPLICATION_JSON_VALUE, objectMapper,
+                BinaryFormatConfiguration.SMILE_VALUE, BinaryFormatConfiguration.smileMapper(objectMapper),
+                BinaryFormatConfiguration.CBOR_VALUE, BinaryFormatConfiguration.cborMapper(objectMapper));
+        Map<String, Integer> plainSizes = new HashMap<>();
+        for (String format : List.of(MediaType.APPLICATION_JSON_VALUE, BinaryFormatConfiguration.SMILE_VALUE,
+                BinaryFormatConfiguration.CBOR_VALUE)) {
+            HttpResponse<byte[]> plain = get("/products/stream", format, false);
+            HttpResponse<byte[]> gzipped = get("/products/stream", format, true);
+
+            assertThat(plain.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(format);
+            assertThat(gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+            List<Map<String, Object>> products = formats.get(format).readValue(
+                    new GZIPInputStream(new ByteArrayInputStream(gzipped.body())), new TypeReference<>() {
+                    });
+            assertThat(products).hasSizeGreaterThanOrEqualTo(CATALOG_SIZE);
+            assertThat(gzipped.body().length).isLessThan(plain.body().length);
+
+            plainSizes.put(format, plain.body().length);
+            log.info(String.format("%-28s %,11d bytes, gzip %,10d bytes (%.0f / %.0f per product)",
+                    format, plain.body().length, gzipped.body().length,
+                    (double) plain.body().length / products.size(), (double) gzipped.body().length / products.size()));
+        }
+        int json = plainSizes.get(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(plainSizes.get(BinaryFormatConfiguration.SMILE_VALUE)).isLessThan(json);
+        assertThat(plainSizes.get(BinaryFormatConfiguration.CBOR_VALUE)).isLessThan(json);
+    }
+
+    @Test
+    void singleProductIsNegotiated() throws Exception {
+        Product product = productService.addProduct(createProduct(-1));
+
+        HttpResponse<byte[]> response = get("/products/" + product.getId(), BinaryFormatConfiguration.CBOR_VALUE, false);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        Product read = BinaryFormatConfiguration.cborMapper(objectMapper)
+                .readValue(response.body(), Product.class);
+        assertThat(read.getTitle()).isEqualTo(product.getTitle());
+        assertThat(read.getCategory().getName()).isEqualTo(product.getCategory().getName());
+    }
+
+    @Test
+    void onlyTheBinaryEncodingsLeaveOutNullFields() throws Exception {
+        Product product = createProduct(-2);
+        product.setDescription(null);
+        product = productService.addProduct(product);
+        String path = "/products/" + product.getId();
+
+        JsonNode json = objectMapper.readTree(get(path, MediaType.APPLICATION_JSON_VALUE, false).body());
+        JsonNode smile = BinaryFormatConfiguration.smileMapper(objectMapper)
+                .readTree(get(path, BinaryFormatConfiguration.SMILE_VALUE, false).body());
+        JsonNode sparse = objectMapper.readTree(get(path + "?fields=title,description", MediaType.APPLICATION_JSON_VALUE, false).body());
+
+        assertThat(json.has("description")).isTrue();
+        assertThat(json.get("description").isNull()).isTrue();
+        assertThat(sparse.get("description").isNull()).isTrue();
+        assertThat(smile.has("description")).isFalse();
+        assertThat(smile.get("title").asText()).isEqualTo(product.getTitle());
+    }
+
+    @Test
+    void schemaDeclaresEverySerializedField() throws Exception {
+        HttpResponse<byte[]> response = get("/schemas/product.schema.json", MediaType.APPLICATION_JSON_VALUE, false);
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode definitions = objectMapper.readTree(response.body()).get("$defs");
+
+        // every field set, so nothing is left out as null
+        Product product = createProduct(1);
+        product.setId(1L);
+        product.setVersion(0L);
+        product.setCreatedBy("schema");
+        product.setUpdatedBy("schema");
+        product.setCreatedAt(new Date());
+        product.setUpdatedAt(new Date());
+        product.getCategory().setId(1L);
+        product.getCategory().setCreatedBy("schema");
+        product.getCategory().setUpdatedBy("schema");
+        product.getCategory().setCreatedAt(new Date());
+        product.getCategory().setUpdatedAt(new Date());
+        JsonNode serialized = objectMapper.valueToTree(product);
+
+        assertThat(fieldNames(serialized))
+                .isEqualTo(fieldNames(definitions.get("product").get("properties")));
+        assertThat(fieldNames(serialized.get("category")))
+                .isEqualTo(fieldNames(definitions.get("category").get("properties")));
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, boolean gzip) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT, accept);
+        if (gzip) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        Iterator<String> iterator = node.fieldNames();
+        iterator.forEachRemaining(names::add);
+        return names;
+    }
+
+    private static List<Product> createProducts() {
+        List<Product> products = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            products.add(createProduct(i));
+        }
+        return products;
+    }
+
+    private static Product createProduct(int i) {
+        Category category = new Category();
+        category.setName("negotiation-" + Math.abs(i % 20));
+
+        Product product = new Product();
+        product.setTitle("Fjallraven - Foldsack No. " + i + " Backpack, Fits 15 Laptops");
+        product.setPrice(109.95 + i % 500);
+        product.setDescription("Your perfect pack for everyday use and walks in the forest. "
+                + "Stash your laptop (up to 15 inches) in the padded sleeve, your everyday");
+        product.setImageUrl("https://fakestoreapi.com/img/" + i + "_AC_SL1500_.jpg");
+        product.setCategory(category);
+        return product;
+    }
+}
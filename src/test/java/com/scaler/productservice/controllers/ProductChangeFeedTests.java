@@ -0,0 +1,230 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.dtos.ProductChangeDto;
+import com.scaler.productservice.dtos.ProductChangePage;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.models.ProductChangeType;
+import com.scaler.productservice.service.ProductChangeFeed;
+import com.scaler.productservice.service.ProductChangeLog;
+import com.scaler.productservice.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// no scheduled sequencer runs or pushes during the tests, the tests run them,
+// and small pages, so a subscriber is easily a page behind
+@SpringBootTest(properties = {
+        "productservice.changes.sequence-interval=1h",
+        "productservice.changes.stream-poll-interval=1h",
+        "productservice.changes.max-page-size=2"
+})
+@AutoConfigureMockMvc
+class ProductChangeFeedTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeFeed changeFeed;
+
+    @Autowired
+    private ProductChangeLog changeLog;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void everyChangeIsInTheFeedInOrder() throws Exception {
+        long since = changeLog.getLatestSeq();
+        Long kept = productService.addProduct(product("kept")).getId();
+        productService.updateProduct(kept, product("kept, renamed"));
+        Long deleted = productService.addProduct(product("deleted")).getId();
+        productService.deleteProduct(deleted);
+        // the sequencer thread would do it a moment later
+        changeLog.sequencePending();
+
+        ProductChangePage page = changeFeed.getChanges(since, 100);
+
+        assertThat(page.getChanges()).extracting(ProductChangeDto::getChangeType).containsExactly(
+                ProductChangeType.CREATED, ProductChangeType.UPDATED,
+                ProductChangeType.CREATED, ProductChangeType.DELETED);
+        assertThat(page.getChanges()).extracting(ProductChangeDto::getProductId)
+                .containsExactly(kept, kept, deleted, deleted);
+        // the changes carry the current product, a deleted one has none
+        assertThat(page.getChanges().get(0).getProduct().getTitle()).isEqualTo("kept, renamed");
+        assertThat(page.getChanges().get(2).getProduct()).isNull();
+        assertThat(page.getNextSince()).isEqualTo(page.getChanges().get(3).getSeq());
+        assertThat(page.getLatestSeq()).isGreaterThanOrEqualTo(page.getNextSince());
+
+        // paging with limit and since
+        mockMvc.perform(get("/products/changes").param("since", Long.toString(since)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andExpect(jsonPath("$.nextSince").value(page.getChanges().get(1).getSeq()));
+        mockMvc.perform(get("/products/changes").param("since", Long.toString(page.getNextSince())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes").isEmpty())
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void changeThatCommitsLateComesAfterTheSeqsAMirrorHasAlreadyRead() throws Exception {
+        long since = changeLog.getLatestSeq();
+
+        // a long ingest records its change first, but commits last
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Long> longTransaction = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    Long id = productService.addProduct(product("long")).getId();
+                    recorded.countDown();
+                    await(commit);
+                    return id;
+                }));
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        Long shortId = productService.addProduct(product("short")).getId();
+        changeLog.sequencePending();
+
+        // the mirror reads the short one and moves past it
+        ProductChangePage first = changeFeed.getChanges(since, 100);
+        assertThat(first.getChanges()).extracting(ProductChangeDto::getProductId).containsExactly(shortId);
+
+        commit.countDown();
+        Long longId = longTransaction.get(10, TimeUnit.SECONDS);
+        changeLog.sequencePending();
+
+        // ...and still gets the long one on its next call
+        ProductChangePage next = changeFeed.getChanges(first.getNextSince(), 100);
+        assertThat(next.getChanges()).extracting(ProductChangeDto::getProductId).containsExactly(longId);
+    }
+
+    @Test
+    void commitsWakeTheSequencerWithoutWaitingForIt() throws Exception {
+        long since = changeLog.getLatestSeq();
+        Long id = productService.addProduct(product("woken")).getId();
+
+        // sequenced on the sequencer thread, there is no scheduled run in this test
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<ProductChangeDto> changes = List.of();
+        while (changes.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            changes = changeFeed.getChanges(since, 100).getChanges();
+        }
+        assertThat(changes).extracting(ProductChangeDto::getProductId).containsExactly(id);
+    }
+
+    @Test
+    void subscriberFarBehindDoesNotHoldUpTheLiveOnes() throws Exception {
+        long since = changeLog.getLatestSeq();
+        for (int i = 0; i < 3; i++) {
+            productService.addProduct(product("backlog " + i));
+        }
+        changeLog.sequencePending();
+        RecordingEmitter behind = new RecordingEmitter();
+        RecordingEmitter live = new RecordingEmitter();
+        changeFeed.subscribe(behind, since);
+        changeFeed.subscribe(live, changeLog.getLatestSeq());
+
+        Long newest = productService.addProduct(product("newest")).getId();
+        changeLog.sequencePending();
+        changeFeed.pushChanges();
+
+        assertThat(live.productIds).containsExactly(newest);
+        // a page of the backlog per push
+        assertThat(behind.productIds).hasSize(2).doesNotContain(newest);
+    }
+
+    @Test
+    void compactionKeepsTheNewestEntryPerProductAndDropsOldTombstones() throws Exception {
+        long since = changeLog.getLatestSeq();
+        Long kept = productService.addProduct(product("compacted")).getId();
+        productService.updateProduct(kept, product("compacted twice"));
+        Long deleted = productService.addProduct(product("tombstone")).getId();
+        productService.deleteProduct(deleted);
+        changeLog.sequencePending();
+
+        // compact everything, but keep the tombstones
+        changeLog.compact(in(1000), in(-60_000));
+        List<ProductChangeDto> compacted = changeFeed.getChanges(since, 100).getChanges();
+        assertThat(compacted).extracting(ProductChangeDto::getChangeType)
+                .containsExactly(ProductChangeType.UPDATED, ProductChangeType.DELETED);
+
+        long tombstoneSeq = compacted.get(1).getSeq();
+        changeLog.compact(in(1000), in(1000));
+        // the delete is gone, a mirror at since has to copy the catalog again
+        ProductChangePage missedDelete = changeFeed.getChanges(since, 100);
+        assertThat(missedDelete.isResyncRequired()).isTrue();
+        assertThat(missedDelete.getChanges()).isEmpty();
+        assertThat(missedDelete.getOldestSeq()).isEqualTo(tombstoneSeq);
+        mockMvc.perform(get("/products/changes").param("since", Long.toString(since)))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.resyncRequired").value(true))
+                .andExpect(jsonPath("$.latestSeq").value(missedDelete.getLatestSeq()));
+
+        // one that has read past the delete lost nothing
+        ProductChangePage upToDate = changeFeed.getChanges(tombstoneSeq, 100);
+        assertThat(upToDate.isResyncRequired()).isFalse();
+        mockMvc.perform(get("/products/changes").param("since", Long.toString(tombstoneSeq)))
+                .andExpect(status().isOk());
+        // a new mirror does not ask with since
+        mockMvc.perform(get("/products/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.oldestSeq").value(tombstoneSeq));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Date in(long millis) {
+        return new Date(System.currentTimeMillis() + millis);
+    }
+
+    private static Product product(String title) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setPrice(12);
+        return product;
+    }
+
+    // Keeps the changes it is sent instead of writing them to a response
+    private static class RecordingEmitter extends SseEmitter {
+        final List<Long> productIds = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof ProductChangeDto change) {
+                    productIds.add(change.getProductId());
+                }
+            }
+        }
+    }
+}
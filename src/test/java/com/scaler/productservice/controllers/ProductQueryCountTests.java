@@ -0,0 +1,188 @@
+package com.scaler.productservice.controllers;
+
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.ProductService;
+import com.scaler.productservice.snapshot.CatalogSnapshotService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductQueryCountTests {
+
+    /*
+    Guards against N+1 queries: a product detail and a batch request must each
+    run exactly one SQL statement, a list page two (the page and the catalog
+    version for its ETag), no matter how many products and categories are involved.
+     */
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    private Statistics statistics;
+    private Long firstId;
+
+    @BeforeEach
+    void seed() {
+        productRepository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Category category = new Category();
+            category.setName("query-count-category-" + (i % 6));
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setPrice(10 + i);
+            product.setCategory(category);
+            products.add(product);
+        }
+        firstId = productService.addProducts(products).get(0).getId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listPageRunsTwoStatements() throws Exception {
+        mockMvc.perform(get("/products").param("size", "20").param("sort", "price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(20))
+                .andExpect(jsonPath("$.products[0].category.name").exists());
+
+        // the page itself plus the catalog version for the ETag
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void detailRunsOneStatement() throws Exception {
+        mockMvc.perform(get("/products/" + firstId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category.name").exists());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void sparseFieldsetIsPushedDownIntoTheQuery() throws Exception {
+        mockMvc.perform(get("/products/" + firstId).param("fields", "title,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(firstId))
+                .andExpect(jsonPath("$.title").value("Product 0"))
+                .andExpect(jsonPath("$.price").value(10))
+                .andExpect(jsonPath("$.category").doesNotExist())
+                .andExpect(jsonPath("$.version").doesNotExist());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        // version and updatedAt are read for the ETag and Last-Modified only
+        assertThat(statistics.getQueries())
+                .contains("select p.id, p.title, p.price, p.version, p.updatedAt from Product p where p.id = :id");
+
+        mockMvc.perform(get("/products").param("fields", "title").param("sort", "price").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(20))
+                .andExpect(jsonPath("$.products[0].title").value("Product 0"))
+                .andExpect(jsonPath("$.products[0].price").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").exists());
+
+        mockMvc.perform(get("/products/" + firstId).param("fields", "title,weight"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batchRunsOneStatementAndReportsMissingIds() throws Exception {
+        mockMvc.perform(get("/products")
+                        .param("ids", firstId + "," + (firstId + 1) + ",-1," + firstId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(2))
+                .andExpect(jsonPath("$.products[0].id").value(firstId))
+                .andExpect(jsonPath("$.notFoundIds[0]").value(-1))
+                .andExpect(jsonPath("$.failedIds").isEmpty());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void filteredListingReadsOnlyThePageFromTheDatabase() throws Exception {
+        catalogSnapshotService.rebuild();
+        statistics.clear();
+
+        // query-count-category-1 holds the products 1, 7, 13, 19 and 25 (prices 11, 17, 23, 29, 35)
+        mockMvc.perform(get("/products/filter?category=query-count-category-1&minPrice=15&maxPrice=30&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(2))
+                .andExpect(jsonPath("$.products[0].price").value(17))
+                .andExpect(jsonPath("$.products[1].price").value(23))
+                .andExpect(jsonPath("$.totalMatches").value(3))
+                .andExpect(jsonPath("$.nextCursor").exists());
+
+        // the filter ran on the snapshot, only the page was read
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void filteredListingLeavesOutProductsThatNoLongerMatch() throws Exception {
+        catalogSnapshotService.rebuild();
+        // after the snapshot was built, the product priced 17 (index 7) gets too expensive
+        Product patch = new Product();
+        patch.setPrice(99);
+        productService.updateProduct(firstId + 7, patch);
+
+        mockMvc.perform(get("/products/filter?category=query-count-category-1&minPrice=15&maxPrice=30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(2))
+                .andExpect(jsonPath("$.products[0].price").value(23))
+                .andExpect(jsonPath("$.products[1].price").value(29));
+    }
+
+    @Test
+    void writeBehindFlushLoadsWithOneSelectAndBatchesTheUpdates() {
+        List<ProductWrite> writes = new ArrayList<>();
+        for (long id = firstId; id < firstId + 10; id++) {
+            Product patch = new Product();
+            patch.setTitle("Flushed " + id);
+            writes.add(ProductWrite.of(id, patch, false));
+        }
+        writes.add(ProductWrite.of(-1L, new Product(), false));
+
+        assertThat(productService.applyWrites(writes)).containsExactly(-1L);
+
+        // one "where id in (...)" select and one UPDATE statement sent as a JDBC batch,
+        // plus the select of the search index that reads the changed products after the commit
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(productRepository.findById(firstId + 9).orElseThrow().getTitle())
+                .isEqualTo("Flushed " + (firstId + 9));
+    }
+}
@@ -0,0 +1,252 @@
+package com.scaler.productservice.controllers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "productservice.backend.product-service=streamTestProductService",
+        "productservice.pagination.stream-chunk-size=" + ProductStreamTests.CHUNK_SIZE
+})
+class ProductStreamTests {
+
+    /*
+    GET /products/stream against the database backend, through the real Tomcat.
+    The controller uses a thin wrapper around selfProductService that can be
+    told to fail after a number of products, like a database connection that
+    breaks half way through the catalog.
+     */
+
+    static final int CHUNK_SIZE = 50;
+    private static final int CATALOG_SIZE = 230;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private FailingStreamBackend backend;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private List<Long> ids;
+
+    @BeforeEach
+    void seed() {
+        productRepository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Category category = new Category();
+            category.setName("stream-" + i % 5);
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setPrice(i);
+            product.setDescription("A product that is long enough to fill the response buffer quickly");
+            product.setCategory(category);
+            products.add(product);
+        }
+        ids = productService.addProducts(products).stream().map(Product::getId).toList();
+    }
+
+    @AfterEach
+    void reset() {
+        backend.failAfter(-1);
+    }
+
+    @Test
+    void jsonArrayHasTheWholeCatalogInIdOrder() throws Exception {
+        HttpResponse<String> response = get(MediaType.APPLICATION_JSON_VALUE);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(MediaType.APPLICATION_JSON_VALUE);
+        List<Product> products = objectMapper.readValue(response.body(), new TypeReference<>() {
+        });
+        assertThat(products).extracting(Product::getId).isEqualTo(ids);
+        assertThat(products.get(0).getCategory().getName()).isEqualTo("stream-0");
+    }
+
+    @Test
+    void ndjsonHasOneProductPerLine() throws Exception {
+        HttpResponse<String> response = get(MediaType.APPLICATION_NDJSON_VALUE);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(MediaType.APPLICATION_NDJSON_VALUE);
+        List<Long> streamed = new ArrayList<>();
+        for (String line : response.body().split("\n")) {
+            streamed.add(objectMapper.readValue(line, Product.class).getId());
+        }
+        assertThat(streamed).isEqualTo(ids);
+        assertThat(response.body()).endsWith("}\n");
+    }
+
+    @Test
+    void databaseIsReadOneChunkAtATime() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(get(MediaType.APPLICATION_NDJSON_VALUE).statusCode()).isEqualTo(200);
+
+        // 230 products in chunks of 50: the first chunk, then four seeks past the last id
+        assertThat(executions(statistics, ProductRepository.VIEW + "order by p.id asc")).isEqualTo(1);
+        assertThat(executions(statistics, ProductRepository.VIEW + "where p.id > :id order by p.id asc")).isEqualTo(4);
+    }
+
+    @Test
+    void failureInTheFirstChunkAlsoBreaksTheTransfer() {
+        // Spring sends the 200 and the headers before the first product is read,
+        // so even an early failure cannot become an error status any more
+        backend.failAfter(3);
+
+        assertThatThrownBy(() -> get(MediaType.APPLICATION_JSON_VALUE)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void failureHalfWayBreaksTheJsonArray() {
+        backend.failAfter(CATALOG_SIZE - 10);
+
+        // the connection is aborted instead of ending the chunked body normally,
+        // so the client sees a broken transfer and not a shorter catalog
+        assertThatThrownBy(() -> get(MediaType.APPLICATION_JSON_VALUE)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void failureHalfWayBreaksTheNdjsonStream() {
+        backend.failAfter(CATALOG_SIZE - 10);
+
+        // every line written so far is a complete product, only the aborted
+        // transfer tells the client that lines are missing
+        assertThatThrownBy(() -> get(MediaType.APPLICATION_NDJSON_VALUE)).isInstanceOf(IOException.class);
+    }
+
+    private static long executions(Statistics statistics, String query) {
+        return statistics.getQueryStatistics(query).getExecutionCount();
+    }
+
+    private HttpResponse<String> get(String accept) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/stream"))
+                .header(HttpHeaders.ACCEPT, accept)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @TestConfiguration
+    static class StreamTestConfiguration {
+        @Bean("streamTestProductService")
+        FailingStreamBackend streamTestProductService(@Qualifier("selfProductService") ProductService delegate) {
+            return new FailingStreamBackend(delegate);
+        }
+    }
+
+    // selfProductService, except that forEachProduct can be made to fail after failAfter products
+    static class FailingStreamBackend implements ProductService {
+        private final AtomicInteger failAfter = new AtomicInteger(-1);
+        private final ProductService delegate;
+
+        FailingStreamBackend(ProductService delegate) {
+            this.delegate = delegate;
+        }
+
+        // a method and not the field: the bean is a proxy (ProductServiceMetricsAspect)
+        void failAfter(int products) {
+            failAfter.set(products);
+        }
+
+        @Override
+        public void forEachProduct(Consumer<Product> consumer) {
+            AtomicInteger handedOut = new AtomicInteger();
+            delegate.forEachProduct(product -> {
+                if (handedOut.getAndIncrement() == failAfter.get()) {
+                    throw new IllegalStateException("Connection to the database lost");
+                }
+                consumer.accept(product);
+            });
+        }
+
+        @Override
+        public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+            return delegate.getSingleProduct(id);
+        }
+
+        @Override
+        public ProductBatch getProducts(Collection<Long> ids) {
+            return delegate.getProducts(ids);
+        }
+
+        @Override
+        public Product addProduct(Product product) {
+            return delegate.addProduct(product);
+        }
+
+        @Override
+        public List<Product> getAllProducts() {
+            return delegate.getAllProducts();
+        }
+
+        @Override
+        public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+            return delegate.getProductPage(sortField, cursor, size);
+        }
+
+        @Override
+        public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+            return delegate.updateProduct(id, product);
+        }
+
+        @Override
+        public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+            return delegate.replaceProduct(id, product);
+        }
+
+        @Override
+        public Product deleteProduct(Long id) throws ProductDoesNotExistException {
+            return delegate.deleteProduct(id);
+        }
+    }
+}
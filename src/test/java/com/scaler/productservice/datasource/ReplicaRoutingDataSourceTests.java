@@ -0,0 +1,97 @@
+package com.scaler.productservice.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTests {
+
+    /*
+    Two embedded H2 databases stand in for the primary and the replica. They are
+    not replicated, each one only knows its own name, so every query tells us
+    which database it was routed to.
+     */
+
+    private JdbcDataSource primary;
+    private JdbcDataSource replica;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("routing-primary");
+        replica = database("routing-replica");
+        routing = new ReplicaRoutingDataSource(primary, List.of(replica), 60_000, 1);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        assertThat(readOnlyNode()).isEqualTo("routing-replica");
+        assertThat(readWriteNode()).isEqualTo("routing-primary");
+    }
+
+    @Test
+    void readsAfterACommittedWriteStayOnThePrimary() {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set writes = writes + 1"));
+
+        assertThat(readOnlyNode()).isEqualTo("routing-primary");
+
+        ReadYourWrites.clear();
+        assertThat(readOnlyNode()).isEqualTo("routing-replica");
+    }
+
+    @Test
+    void unhealthyReplicaIsSkipped() {
+        replica.setURL("jdbc:h2:mem:routing-replica;IFEXISTS=TRUE;ACCESS_MODE_DATA=r;INIT=this is not sql");
+        routing.checkReplicas();
+
+        assertThat(routing.isHealthy(0)).isFalse();
+        assertThat(readOnlyNode()).isEqualTo("routing-primary");
+    }
+
+    private String readOnlyNode() {
+        return readOnly.execute(status -> node());
+    }
+
+    private String readWriteNode() {
+        return readWrite.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("create table if not exists node (name varchar(50), writes int)");
+        setup.update("delete from node");
+        setup.update("insert into node values (?, 0)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,274 @@
+package com.scaler.productservice.inheritancedemo;
+
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+abstract class InheritanceStrategy {
+
+    /*
+    One of the User/Mentor/Instructor mappings in inheritancedemo, seen through
+    the operations InheritanceStrategyBenchmarkTests measures. Every operation
+    is written the way an application would naturally write it for that
+    mapping, e.g. a query on the base type of a @MappedSuperclass has to ask
+    every subtype table itself because User is not an entity there.
+    Ids are assigned by the caller (none of the demo entities generates them)
+    and are unique across the whole hierarchy.
+     */
+
+    static final List<InheritanceStrategy> ALL = List.of(
+            new SingleTable(), new JoinedTable(), new TablePerClass(), new MappedSuperclass());
+
+    abstract String getName();
+
+    // child tables first, so they can be emptied in this order
+    abstract List<String> getTables();
+
+    // even ids become mentors, odd ids instructors
+    abstract Object newUser(long id);
+
+    // all users (of any type) with an id in [from, to]
+    abstract List<?> findPage(Session session, long from, long to);
+
+    // all users with this email, there is no index on it
+    abstract List<?> findByEmail(Session session, String email);
+
+    // a user of unknown type by id
+    abstract Object findUser(Session session, long id);
+
+    // a mentor by id
+    abstract Object findMentor(Session session, long id);
+
+    static String name(long id) {
+        return "User " + id;
+    }
+
+    static String email(long id) {
+        return "user" + id + "@example.com";
+    }
+
+    static double rating(long id) {
+        return 1 + id % 5;
+    }
+
+    static class SingleTable extends InheritanceStrategy {
+        @Override
+        String getName() {
+            return "single table";
+        }
+
+        @Override
+        List<String> getTables() {
+            return List.of("st_user");
+        }
+
+        @Override
+        Object newUser(long id) {
+            com.scaler.productservice.inheritancedemo.singletable.User user;
+            if (id % 2 == 0) {
+                var mentor = new com.scaler.productservice.inheritancedemo.singletable.Mentor();
+                mentor.setAverageRating(rating(id));
+                user = mentor;
+            } else {
+                var instructor = new com.scaler.productservice.inheritancedemo.singletable.Instructor();
+                instructor.setAverageRating(rating(id));
+                user = instructor;
+            }
+            user.setId(id);
+            user.setName(name(id));
+            user.setEmail(email(id));
+            return user;
+        }
+
+        @Override
+        List<?> findPage(Session session, long from, long to) {
+            return session.createQuery("select u from st_user u where u.id between :from and :to", Object.class)
+                    .setParameter("from", from).setParameter("to", to).getResultList();
+        }
+
+        @Override
+        List<?> findByEmail(Session session, String email) {
+            return session.createQuery("select u from st_user u where u.email = :email", Object.class)
+                    .setParameter("email", email).getResultList();
+        }
+
+        @Override
+        Object findUser(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.singletable.User.class, id);
+        }
+
+        @Override
+        Object findMentor(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.singletable.Mentor.class, id);
+        }
+    }
+
+    static class JoinedTable extends InheritanceStrategy {
+        @Override
+        String getName() {
+            return "joined table";
+        }
+
+        @Override
+        List<String> getTables() {
+            return List.of("jt_mentor", "jt_instructor", "jt_user");
+        }
+
+        @Override
+        Object newUser(long id) {
+            com.scaler.productservice.inheritancedemo.joinedtable.User user;
+            if (id % 2 == 0) {
+                var mentor = new com.scaler.productservice.inheritancedemo.joinedtable.Mentor();
+                mentor.setAverageRating(rating(id));
+                user = mentor;
+            } else {
+                var instructor = new com.scaler.productservice.inheritancedemo.joinedtable.Instructor();
+                instructor.setAverageRating(rating(id));
+                user = instructor;
+            }
+            user.setId(id);
+            user.setName(name(id));
+            user.setEmail(email(id));
+            return user;
+        }
+
+        @Override
+        List<?> findPage(Session session, long from, long to) {
+            return session.createQuery("select u from jt_user u where u.id between :from and :to", Object.class)
+                    .setParameter("from", from).setParameter("to", to).getResultList();
+        }
+
+        @Override
+        List<?> findByEmail(Session session, String email) {
+            return session.createQuery("select u from jt_user u where u.email = :email", Object.class)
+                    .setParameter("email", email).getResultList();
+        }
+
+        @Override
+        Object findUser(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.joinedtable.User.class, id);
+        }
+
+        @Override
+        Object findMentor(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.joinedtable.Mentor.class, id);
+        }
+    }
+
+    static class TablePerClass extends InheritanceStrategy {
+        @Override
+        String getName() {
+            return "table per class";
+        }
+
+        @Override
+        List<String> getTables() {
+            return List.of("tpc_mentor", "tpc_instructor", "tpc_user");
+        }
+
+        @Override
+        Object newUser(long id) {
+            com.scaler.productservice.inheritancedemo.tableperclass.User user;
+            if (id % 2 == 0) {
+                var mentor = new com.scaler.productservice.inheritancedemo.tableperclass.Mentor();
+                mentor.setAverageRating(rating(id));
+                user = mentor;
+            } else {
+                var instructor = new com.scaler.productservice.inheritancedemo.tableperclass.Instructor();
+                instructor.setAverageRating(rating(id));
+                user = instructor;
+            }
+            user.setId(id);
+            user.setName(name(id));
+            user.setEmail(email(id));
+            return user;
+        }
+
+        @Override
+        List<?> findPage(Session session, long from, long to) {
+            return session.createQuery("select u from tpc_user u where u.id between :from and :to", Object.class)
+                    .setParameter("from", from).setParameter("to", to).getResultList();
+        }
+
+        @Override
+        List<?> findByEmail(Session session, String email) {
+            return session.createQuery("select u from tpc_user u where u.email = :email", Object.class)
+                    .setParameter("email", email).getResultList();
+        }
+
+        @Override
+        Object findUser(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.tableperclass.User.class, id);
+        }
+
+        @Override
+        Object findMentor(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.tableperclass.Mentor.class, id);
+        }
+    }
+
+    // User is no entity here: every "any user" operation asks each subtype table
+    static class MappedSuperclass extends InheritanceStrategy {
+        @Override
+        String getName() {
+            return "mapped superclass";
+        }
+
+        @Override
+        List<String> getTables() {
+            return List.of("msc_mentor", "msc_instructor");
+        }
+
+        @Override
+        Object newUser(long id) {
+            com.scaler.productservice.inheritancedemo.mappedsuperclass.User user;
+            if (id % 2 == 0) {
+                var mentor = new com.scaler.productservice.inheritancedemo.mappedsuperclass.Mentor();
+                mentor.setAverageRating(rating(id));
+                user = mentor;
+            } else {
+                var instructor = new com.scaler.productservice.inheritancedemo.mappedsuperclass.Instructor();
+                instructor.setAverageRating(rating(id));
+                user = instructor;
+            }
+            user.setId(id);
+            user.setName(name(id));
+            user.setEmail(email(id));
+            return user;
+        }
+
+        @Override
+        List<?> findPage(Session session, long from, long to) {
+            List<Object> users = new ArrayList<>();
+            for (String entity : List.of("msc_mentor", "msc_instructor")) {
+                users.addAll(session.createQuery("select u from " + entity + " u where u.id between :from and :to",
+                                Object.class)
+                        .setParameter("from", from).setParameter("to", to).getResultList());
+            }
+            return users;
+        }
+
+        @Override
+        List<?> findByEmail(Session session, String email) {
+            List<Object> users = new ArrayList<>();
+            for (String entity : List.of("msc_mentor", "msc_instructor")) {
+                users.addAll(session.createQuery("select u from " + entity + " u where u.email = :email", Object.class)
+                        .setParameter("email", email).getResultList());
+            }
+            return users;
+        }
+
+        @Override
+        Object findUser(Session session, long id) {
+            Object mentor = findMentor(session, id);
+            return mentor != null ? mentor
+                    : session.find(com.scaler.productservice.inheritancedemo.mappedsuperclass.Instructor.class, id);
+        }
+
+        @Override
+        Object findMentor(Session session, long id) {
+            return session.find(com.scaler.productservice.inheritancedemo.mappedsuperclass.Mentor.class, id);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.scaler.productservice.inheritancedemo;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+class InheritanceStrategyBenchmarkTests {
+
+    /*
+    Compares the JPA inheritance strategies of inheritancedemo (single table,
+    joined table, table per class and a @MappedSuperclass) on the embedded H2
+    database. Every strategy is seeded with the same users (half mentors, half
+    instructors) and then measured on:
+    - insert: rows per second, JDBC batched like our bulk ingest
+    - page: all users with an id in a range of 100, a query on the base type
+    - email: all users with a given email, a base type query without index
+    - user by id: a user whose type the caller does not know
+    - mentor by id: a subtype lookup
+    For every operation it logs the latency (p50 / p99 over the
+    iterations), the SQL Hibernate generated and how many rows H2 read to
+    answer it (EXPLAIN ANALYZE scanCount). The defaults keep the run short,
+    for a real measurement raise them, e.g.
+        ./mvnw -P performance-tests test -Dtest=InheritanceStrategyBenchmarkTests -Dinheritance.rows=1000000
+    -Dinheritance.iterations sets the number of measured calls per operation.
+    It has only been run with the 10k default so far, the 1M range is untried
+    (heap and run time included). The numbers are H2 in memory: they show how
+    the strategies compare, the absolute latencies of MySQL over the network
+    are higher.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(InheritanceStrategyBenchmarkTests.class);
+
+    private static final int ROWS = Integer.getInteger("inheritance.rows", 10_000);
+    private static final int ITERATIONS = Integer.getInteger("inheritance.iterations", 200);
+    // the first strategy would otherwise pay for the JIT compiling Hibernate
+    private static final int WARMUP_ROWS = 2_000;
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int PAGE_SIZE = 100;
+    private static final int FLUSH_SIZE = 1_000;
+    private static final int COMMIT_SIZE = 10_000;
+
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareInheritanceStrategies() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        for (InheritanceStrategy strategy : InheritanceStrategy.ALL) {
+            benchmark(sessionFactory, strategy, Math.min(ROWS, WARMUP_ROWS), WARMUP_ITERATIONS);
+        }
+
+        StringBuilder report = new StringBuilder(String.format(
+                "%nInheritance strategies, %,d users, %d iterations per operation%n", ROWS, ITERATIONS));
+        for (InheritanceStrategy strategy : InheritanceStrategy.ALL) {
+            report.append(benchmark(sessionFactory, strategy, ROWS, ITERATIONS));
+        }
+        log.info("{}", report);
+    }
+
+    private String benchmark(SessionFactory sessionFactory, InheritanceStrategy strategy, int rows, int iterations) {
+        List<String> statements = new ArrayList<>();
+        try (Session session = sessionFactory.withOptions()
+                .statementInspector(sql -> {
+                    statements.add(sql);
+                    return sql;
+                })
+                .openSession()) {
+            strategy.getTables().forEach(table -> jdbcTemplate.update("delete from " + table));
+
+            long start = System.nanoTime();
+            seed(session, strategy, rows);
+            double rowsPerSecond = rows / ((System.nanoTime() - start) / 1e9);
+            StringBuilder report = new StringBuilder(String.format(
+                    "%n%s: insert %,.0f rows/s%n", strategy.getName(), rowsPerSecond));
+            for (String sql : new LinkedHashSet<>(statements)) {
+                report.append("  ").append(sql).append('\n');
+            }
+
+            Measurement measurement = new Measurement(session, statements, new Random(42), rows, iterations);
+            report.append(measurement.run("page",
+                    id -> new Object[]{id, id + PAGE_SIZE - 1},
+                    id -> assertThat(strategy.findPage(session, id, id + PAGE_SIZE - 1)).hasSize(PAGE_SIZE)));
+            report.append(measurement.run("email",
+                    id -> new Object[]{InheritanceStrategy.email(id)},
+                    id -> assertThat(strategy.findByEmail(session, InheritanceStrategy.email(id))).hasSize(1)));
+            report.append(measurement.run("user by id",
+                    id -> new Object[]{id},
+                    id -> assertThat(strategy.findUser(session, id)).isNotNull()));
+            report.append(measurement.run("mentor by id",
+                    id -> new Object[]{id - id % 2},
+                    // mentors have even ids
+                    id -> assertThat(strategy.findMentor(session, id - id % 2)).isNotNull()));
+            return report.toString();
+        }
+    }
+
+    // Mentors and instructors in id order, a flush every FLUSH_SIZE rows
+    // (one JDBC batch per table and 50 rows) and a commit every COMMIT_SIZE
+    private void seed(Session session, InheritanceStrategy strategy, int rows) {
+        Transaction transaction = session.beginTransaction();
+        for (long id = 1; id <= rows; id++) {
+            session.persist(strategy.newUser(id));
+            if (id % FLUSH_SIZE == 0) {
+                session.flush();
+                session.clear();
+            }
+            if (id % COMMIT_SIZE == 0) {
+                transaction.commit();
+                transaction = session.beginTransaction();
+            }
+        }
+        transaction.commit();
+        session.clear();
+    }
+
+    // Runs the operations of one strategy on random ids and reports them
+    private class Measurement {
+        private final Session session;
+        private final List<String> statements;
+        private final Random random;
+        private final int rows;
+        private final int iterations;
+
+        Measurement(Session session, List<String> statements, Random random, int rows, int iterations) {
+            this.session = session;
+            this.statements = statements;
+            this.random = random;
+            this.rows = rows;
+            this.iterations = iterations;
+        }
+
+        String run(String operation, Function<Long, Object[]> parameters, LongCall call) {
+            // warm up the query plans, these calls are not measured
+            for (int i = 0; i < Math.min(iterations, WARMUP_ITERATIONS); i++) {
+                time(call, randomId());
+            }
+            long[] latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                latencies[i] = time(call, randomId());
+            }
+            Arrays.sort(latencies);
+
+            // one more call to see its SQL and how many rows each statement reads.
+            // An instructor (odd id): for "user by id" that is the expensive case
+            long id = randomId();
+            if (id % 2 == 0) {
+                id--;
+            }
+            statements.clear();
+            time(call, id);
+            Set<String> sqls = new LinkedHashSet<>(statements);
+            long rowsScanned = 0;
+            StringBuilder sqlLines = new StringBuilder();
+            for (String sql : sqls) {
+                rowsScanned += rowsScanned(sql, parameters.apply(id));
+                sqlLines.append("    ").append(sql).append('\n');
+            }
+            return String.format("  %-12s p50 %7.1f us  p99 %7.1f us  %d statement(s), %,d rows scanned%n%s",
+                    operation, percentile(latencies, 50), percentile(latencies, 99),
+                    sqls.size(), rowsScanned, sqlLines);
+        }
+
+        private long time(LongCall call, long id) {
+            // nothing may come from the first-level cache
+            session.clear();
+            long start = System.nanoTime();
+            Transaction transaction = session.beginTransaction();
+            call.run(id);
+            transaction.commit();
+            return System.nanoTime() - start;
+        }
+
+        // a random id of which the whole page exists
+        private long randomId() {
+            return 1 + random.nextInt(rows - PAGE_SIZE + 1);
+        }
+    }
+
+    // H2 runs the statement and adds to the plan how many rows it read per table
+    private long rowsScanned(String sql, Object[] parameters) {
+        int placeholders = (int) sql.chars().filter(c -> c == '?').count();
+        Object[] arguments = new Object[placeholders];
+        for (int i = 0; i < placeholders; i++) {
+            arguments[i] = parameters[i % parameters.length];
+        }
+        String plan = jdbcTemplate.queryForObject("explain analyze " + sql, String.class, arguments);
+        long scanned = 0;
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        while (matcher.find()) {
+            scanned += Long.parseLong(matcher.group(1));
+        }
+        return scanned;
+    }
+
+    // in microseconds
+    private static double percentile(long[] sortedLatencies, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e3;
+    }
+
+    @FunctionalInterface
+    private interface LongCall {
+        void run(long id);
+    }
+}
@@ -0,0 +1,14 @@
+package com.scaler.productservice.loadtest;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "productservice.backend.product-service=fakeStoreProductService")
+class FakeStoreBackendLoadTests extends ProductControllerLoadTestBase {
+
+    // Every request goes to the (stubbed) FakeStore API, no caching
+
+    @Override
+    protected String backendName() {
+        return "fakeStoreProductService";
+    }
+}
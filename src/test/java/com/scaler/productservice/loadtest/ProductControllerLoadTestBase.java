@@ -0,0 +1,106 @@
+package com.scaler.productservice.loadtest;
+
+import com.scaler.productservice.support.FakeStoreStubServer;
+import com.scaler.productservice.support.LoadGenerator;
+import com.scaler.productservice.support.LoadReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+abstract class ProductControllerLoadTestBase {
+
+    /*
+    End-to-end load test of the real app (Tomcat, ProductController and the
+    selected ProductService) on this machine only: the FakeStore API is replaced
+    by FakeStoreStubServer and the database by H2.
+    Every subclass runs the app against another ProductService bean
+    (productservice.backend.product-service) and logs throughput and
+    latency percentiles. Tagged "load", so only the performance-tests profile
+    runs them. The defaults keep the run short, for a real measurement raise
+    them, e.g.
+        ./mvnw -P performance-tests test -Dtest='*BackendLoadTests' -Dloadtest.rate=500 -Dloadtest.seconds=30
+    The upstream stub can be tuned with -Dloadtest.upstream-latency-ms and
+    -Dloadtest.upstream-error-rate.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ProductControllerLoadTestBase.class);
+
+    protected static final int CATALOG_SIZE = 1000;
+
+    private static final int RATE = Integer.getInteger("loadtest.rate", 50);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 3);
+
+    // one per test class: started before the app (whose base-url points at it)
+    // and stopped after the class
+    protected static FakeStoreStubServer stub;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = new FakeStoreStubServer();
+        stub.setCatalogSize(CATALOG_SIZE);
+        stub.setLatencyMillis(Long.getLong("loadtest.upstream-latency-ms", 20));
+        stub.setErrorRate(Double.parseDouble(System.getProperty("loadtest.upstream-error-rate", "0")));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void upstream(DynamicPropertyRegistry registry) {
+        registry.add("productservice.upstream.base-url", () -> stub.getBaseUrl());
+    }
+
+    // Makes sure the backend has a catalog and returns the ids to ask for.
+    // The stub knows the products 1..CATALOG_SIZE
+    protected List<Long> seed() {
+        return LongStream.rangeClosed(1, CATALOG_SIZE).boxed().toList();
+    }
+
+    protected abstract String backendName();
+
+    @Test
+    void sustainsTheTargetRate() throws Exception {
+        List<Long> ids = seed();
+        String baseUrl = "http://localhost:" + port;
+        LoadGenerator generator = new LoadGenerator();
+
+        // 9 out of 10 requests read one product, the 10th reads a page of 20
+        IntFunction<URI> requests = i -> i % 10 == 9
+                ? URI.create(baseUrl + "/products?size=20&sort=price")
+                : URI.create(baseUrl + "/products/" + ids.get(i % ids.size()));
+
+        // a short unreported run first, so JIT compilation and connection setup
+        // do not end up in the percentiles
+        generator.run("warm-up", requests, RATE, Duration.ofSeconds(1));
+        LoadReport report = generator.run(backendName(), requests, RATE, Duration.ofSeconds(SECONDS));
+        log.info("{}", report);
+
+        if (Double.parseDouble(System.getProperty("loadtest.upstream-error-rate", "0")) == 0) {
+            assertThat(report.getErrors()).isZero();
+        }
+        assertThat(report.getRequests()).isEqualTo(RATE * SECONDS);
+    }
+}
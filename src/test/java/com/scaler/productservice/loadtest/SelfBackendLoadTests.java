@@ -0,0 +1,46 @@
+package com.scaler.productservice.loadtest;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@TestPropertySource(properties = "productservice.backend.product-service=selfProductService")
+class SelfBackendLoadTests extends ProductControllerLoadTestBase {
+
+    // Every request is answered from our own database (H2 here)
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Override
+    protected List<Long> seed() {
+        productRepository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Category category = new Category();
+            category.setName("load-test-category-" + (i % 10));
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setPrice(10 + i);
+            product.setCategory(category);
+            products.add(product);
+        }
+        return productService.addProducts(products).stream().map(Product::getId).toList();
+    }
+
+    @Override
+    protected String backendName() {
+        return "selfProductService";
+    }
+}
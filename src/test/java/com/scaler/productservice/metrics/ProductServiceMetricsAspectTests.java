@@ -0,0 +1,70 @@
+package com.scaler.productservice.metrics;
+
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ProductServiceMetricsAspectTests {
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void timesServiceCallsPerImplementationAndOutcome() {
+        long listed = count("method", "getAllProducts", "outcome", "success");
+        long missing = count("method", "getSingleProduct", "exception", "ProductDoesNotExistException");
+
+        productService.getAllProducts();
+        assertThatThrownBy(() -> productService.getSingleProduct(-1L))
+                .isInstanceOf(ProductDoesNotExistException.class);
+
+        assertThat(count("method", "getAllProducts", "outcome", "success")).isEqualTo(listed + 1);
+        assertThat(count("method", "getSingleProduct", "exception", "ProductDoesNotExistException"))
+                .isEqualTo(missing + 1);
+    }
+
+    // Calls of SelfProductService recorded so far with these tags (the registry is shared between tests)
+    private long count(String... tags) {
+        Timer timer = meterRegistry.find(ProductServiceMetricsAspect.METRIC_NAME)
+                .tag("service", "SelfProductService")
+                .tags(tags)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void exposesPrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/products/-1")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("product_service_seconds_bucket")))
+                .andExpect(content().string(containsString("upstream_connections_max")))
+                .andExpect(content().string(containsString("hikaricp_connections")));
+    }
+}
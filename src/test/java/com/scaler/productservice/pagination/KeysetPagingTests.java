@@ -0,0 +1,121 @@
+package com.scaler.productservice.pagination;
+
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.projection.ProductFieldSet;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class KeysetPagingTests {
+
+    /*
+    Walks the database listings page by page, the way a client follows
+    nextCursor, and compares the result with the whole catalog sorted in
+    memory. The catalog has the awkward cases: equal prices, equal
+    timestamps, and rows without updatedAt (written outside of JPA). The
+    sparse listings (?fields=) have their own queries and are walked as well.
+     */
+
+    private static final int CATALOG_SIZE = 23;
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        productRepository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Category category = new Category();
+            category.setName("paging");
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setPrice(i % 5);
+            product.setCategory(category);
+            products.add(product);
+        }
+        List<Long> ids = productService.addProducts(products).stream().map(Product::getId).toList();
+        for (int i = 0; i < ids.size(); i++) {
+            Timestamp updatedAt = i % 4 == 0 ? null : new Timestamp(1_700_000_000_000L + i % 3);
+            jdbcTemplate.update("update product set updated_at = ? where id = ?", updatedAt, ids.get(i));
+        }
+    }
+
+    @Test
+    void everyListingVisitsEveryProductOnce() {
+        List<Product> catalog = productService.getAllProducts();
+        assertThat(catalog).anyMatch(product -> product.getUpdatedAt() == null);
+
+        for (ProductSortField sortField : ProductSortField.values()) {
+            List<Long> expected = catalog.stream().sorted(sortField.getComparator()).map(Product::getId).toList();
+
+            assertThat(walk(sortField)).as(sortField.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void sparseListingsVisitEveryProductOnce() {
+        List<Product> catalog = productService.getAllProducts();
+        ProductFieldSet fields = ProductFieldSet.parse("title");
+
+        for (ProductSortField sortField : ProductSortField.values()) {
+            List<Long> expected = catalog.stream().sorted(sortField.getComparator()).map(Product::getId).toList();
+
+            assertThat(walk(sortField, fields)).as(sortField.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void pageAfterAProductWithoutUpdatedAtContinuesTheListing() {
+        ProductPage first = productService.getProductPage(ProductSortField.UPDATED_AT, null, PAGE_SIZE);
+        assertThat(first.getProducts()).allMatch(product -> product.getUpdatedAt() == null);
+
+        ProductCursor cursor = ProductCursor.decode(first.getNextCursor(), ProductSortField.UPDATED_AT);
+        assertThat(cursor.getUpdatedAt()).isNull();
+        ProductPage second = productService.getProductPage(ProductSortField.UPDATED_AT, cursor, PAGE_SIZE);
+
+        // the other two null rows first, then the rows that have a timestamp
+        assertThat(second.getProducts()).extracting(product -> product.getUpdatedAt() == null)
+                .containsExactly(true, true, false, false);
+    }
+
+    private List<Long> walk(ProductSortField sortField) {
+        return walk(sortField, null);
+    }
+
+    // fields null: the full listing, otherwise the sparse one
+    private List<Long> walk(ProductSortField sortField, ProductFieldSet fields) {
+        List<Long> walked = new ArrayList<>();
+        ProductCursor cursor = null;
+        do {
+            ProductPage page = fields == null
+                    ? productService.getProductPage(sortField, cursor, PAGE_SIZE)
+                    : productService.getProductPage(sortField, cursor, PAGE_SIZE, fields);
+            page.getProducts().forEach(product -> walked.add(product.getId()));
+            cursor = page.getNextCursor() == null ? null : ProductCursor.decode(page.getNextCursor(), sortField);
+        } while (cursor != null);
+        return walked;
+    }
+}
@@ -0,0 +1,100 @@
+package com.scaler.productservice.pagination;
+
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.exceptions.InvalidPageRequestException;
+import com.scaler.productservice.models.Product;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCursorTests {
+
+    @Test
+    void everySortFieldSurvivesTheRoundTrip() {
+        Product product = product(7L, 0.1 + 0.2, new Date(1_700_000_000_123L));
+
+        for (ProductSortField sortField : ProductSortField.values()) {
+            ProductCursor cursor = roundTrip(sortField, product);
+
+            assertThat(cursor.getSortField()).isEqualTo(sortField);
+            assertThat(cursor.getId()).isEqualTo(7L);
+        }
+        assertThat(roundTrip(ProductSortField.PRICE, product).getPrice()).isEqualTo(0.1 + 0.2);
+        assertThat(roundTrip(ProductSortField.UPDATED_AT, product).getUpdatedAt()).isEqualTo(new Date(1_700_000_000_123L));
+    }
+
+    @Test
+    void missingUpdatedAtSurvivesTheRoundTrip() {
+        ProductCursor cursor = roundTrip(ProductSortField.UPDATED_AT, product(7L, 1, null));
+
+        assertThat(cursor.getUpdatedAt()).isNull();
+        assertThat(cursor.getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void productsWithoutIdHaveNoCursor() {
+        assertThatThrownBy(() -> ProductCursor.after(ProductSortField.ID, product(null, 1, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorsOfAnotherListingAreRejected() {
+        String token = ProductCursor.after(ProductSortField.PRICE, product(7L, 1, null)).encode();
+
+        assertThatThrownBy(() -> ProductCursor.decode(token, ProductSortField.ID))
+                .isInstanceOf(InvalidPageRequestException.class);
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String raw : List.of("PRICE::7", "PRICE:abc:7", "ID::", "NAME::7", "ID:7")) {
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            ProductSortField expected = raw.startsWith("ID") ? ProductSortField.ID : ProductSortField.PRICE;
+
+            assertThatThrownBy(() -> ProductCursor.decode(token, expected))
+                    .as(raw)
+                    .isInstanceOf(InvalidPageRequestException.class);
+        }
+        assertThatThrownBy(() -> ProductCursor.decode("not base64!", ProductSortField.ID))
+                .isInstanceOf(InvalidPageRequestException.class);
+    }
+
+    @Test
+    void inMemoryPagesWalkPastProductsWithoutUpdatedAt() {
+        // like the FakeStore catalog: no product has an updatedAt, a few do here
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            catalog.add(product(id, 1, id % 3 == 0 ? new Date(id) : null));
+        }
+
+        List<Long> walked = new ArrayList<>();
+        ProductCursor cursor = null;
+        do {
+            ProductPage page = ProductPages.slice(catalog, ProductSortField.UPDATED_AT, cursor, 3);
+            page.getProducts().forEach(product -> walked.add(product.getId()));
+            cursor = page.getNextCursor() == null ? null
+                    : ProductCursor.decode(page.getNextCursor(), ProductSortField.UPDATED_AT);
+        } while (cursor != null);
+
+        assertThat(walked).containsExactly(1L, 2L, 4L, 5L, 7L, 8L, 10L, 3L, 6L, 9L);
+    }
+
+    private static ProductCursor roundTrip(ProductSortField sortField, Product product) {
+        return ProductCursor.decode(ProductCursor.after(sortField, product).encode(), sortField);
+    }
+
+    private static Product product(Long id, double price, Date updatedAt) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(price);
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+}
@@ -0,0 +1,113 @@
+package com.scaler.productservice.search;
+
+import com.scaler.productservice.dtos.ProductSearchHit;
+import com.scaler.productservice.dtos.ProductSearchResult;
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductSearchIndexTests {
+
+    /*
+    The products go through selfProductService, so these tests also check that
+    the index follows every change. The made-up words keep the products of
+    other tests (same database) out of the results
+     */
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Test
+    void indexFollowsAddUpdateAndDelete() throws Exception {
+        Long id = productService.addProduct(product("Quorvex wireless mouse", "a quiet mouse", 25, "quorvexgear")).getId();
+
+        assertThat(ids(searchIndex.search("quorvex wire", null, null, null, 10))).containsExactly(id);
+        assertThat(ids(searchIndex.search("quorvexgear", null, null, null, 10))).containsExactly(id);
+
+        Product patch = new Product();
+        patch.setTitle("Quorvex keyboard");
+        productService.updateProduct(id, patch);
+
+        assertThat(searchIndex.search("quorvex wireless", null, null, null, 10).getHits()).isEmpty();
+        assertThat(ids(searchIndex.search("quorvex keyb", null, null, null, 10))).containsExactly(id);
+
+        productService.deleteProduct(id);
+
+        assertThat(searchIndex.search("quorvex", null, null, null, 10).getHits()).isEmpty();
+    }
+
+    @Test
+    void productReadBeforeItsDeleteIsNotIndexedAgain() throws Exception {
+        Long id = productService.addProduct(product("Brellix lantern", "camping", 15, null)).getId();
+
+        // the startup rebuild reads the product...
+        long readAt = searchIndex.beginRead();
+        Product readBeforeDelete = productService.getSingleProduct(id);
+        // ...the delete is committed and removed from the index...
+        productService.deleteProduct(id);
+        assertThat(searchIndex.search("brellix", null, null, null, 10).getHits()).isEmpty();
+        // ...and only then does the rebuild get to index its page
+        searchIndex.index(readBeforeDelete, readAt);
+        searchIndex.endRead(readAt);
+
+        assertThat(searchIndex.search("brellix", null, null, null, 10).getHits()).isEmpty();
+        // no read older than the tombstone is left
+        assertThat(searchIndex.tombstoneCount()).isZero();
+    }
+
+    @Test
+    void titleMatchesRankFirstAndFiltersApply() {
+        Long inDescription = productService.addProduct(product("Desk lamp", "pairs with the zintrax stand", 40, "zintraxhome")).getId();
+        Long inTitle = productService.addProduct(product("Zintrax stand", "adjustable", 60, "zintraxhome")).getId();
+        Long otherCategory = productService.addProduct(product("Zintrax cable", "two metres", 5, "zintraxparts")).getId();
+
+        ProductSearchResult all = searchIndex.search("zintrax", null, null, null, 10);
+        assertThat(all.getTotalHits()).isEqualTo(3);
+        assertThat(ids(all).get(0)).isIn(inTitle, otherCategory);
+        assertThat(ids(all).get(2)).isEqualTo(inDescription);
+
+        assertThat(ids(searchIndex.search("zintrax", "ZintraxHome", null, 50.0, 10))).containsExactly(inDescription);
+        assertThat(ids(searchIndex.search("zintrax", null, 50.0, null, 10))).containsExactly(inTitle);
+        assertThat(searchIndex.search("zintrax", null, null, null, 1).getHits()).hasSize(1);
+    }
+
+    @Test
+    void suggestCompletesTheLastWord() {
+        productService.addProduct(product("Vellumar notebook", "lined", 3, null));
+        productService.addProduct(product("Vellumar notepad", "squared", 2, null));
+        productService.addProduct(product("Vellumar notepad refill", "squared", 1, null));
+
+        assertThat(searchIndex.suggest("vellumar note", 10))
+                .containsExactly("vellumar notepad", "vellumar notebook");
+    }
+
+    private static List<Long> ids(ProductSearchResult result) {
+        return result.getHits().stream().map(ProductSearchHit::getId).toList();
+    }
+
+    private static Product product(String title, String description, double price, String categoryName) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setDescription(description);
+        product.setPrice(price);
+        if (categoryName != null) {
+            Category category = new Category();
+            category.setName(categoryName);
+            product.setCategory(category);
+        }
+        return product;
+    }
+}
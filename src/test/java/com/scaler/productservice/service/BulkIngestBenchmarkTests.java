@@ -0,0 +1,111 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+class BulkIngestBenchmarkTests {
+
+    /*
+    Ingests the same number of products once through addProduct() (one
+    transaction, one category lookup and one INSERT round trip per row) and
+    once through addProducts() (one transaction, one category query per chunk,
+    JDBC batched INSERTs) and logs rows/second for both. The rates depend on
+    the machine, so what is checked is why the batched path is faster: it
+    needs a fraction of the statements and transactions.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(BulkIngestBenchmarkTests.class);
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void batchedIngestNeedsAFractionOfTheStatements() {
+        // warm up both paths so the JIT does not favour the second one
+        productService.addProducts(createProducts(500, "warmup"));
+        createProducts(500, "warmup").forEach(productService::addProduct);
+        productRepository.deleteAllInBatch();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Product> singleRows = createProducts(ROWS, "single");
+        statistics.clear();
+        long start = System.nanoTime();
+        for (Product product : singleRows) {
+            productService.addProduct(product);
+        }
+        double singleRowsPerSecond = rowsPerSecond(start);
+        long singleStatements = statistics.getPrepareStatementCount();
+        long singleTransactions = statistics.getTransactionCount();
+
+        List<Product> batchRows = createProducts(ROWS, "batch");
+        statistics.clear();
+        start = System.nanoTime();
+        List<Product> saved = productService.addProducts(batchRows);
+        double batchRowsPerSecond = rowsPerSecond(start);
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        log.info(String.format("single-row ingest: %.0f rows/s, %d statements; batched ingest: %.0f rows/s, "
+                        + "%d statements (%.1fx)", singleRowsPerSecond, singleStatements,
+                batchRowsPerSecond, batchStatements, batchRowsPerSecond / singleRowsPerSecond));
+
+        assertThat(saved).hasSize(ROWS).allSatisfy(product -> assertThat(product.getId()).isNotNull());
+        assertThat(productRepository.count()).isEqualTo(2L * ROWS);
+        // one commit per chunk instead of one per row, and JDBC batches instead of statements per row
+        assertThat(statistics.getTransactionCount()).isLessThan(singleTransactions / 10);
+        assertThat(batchStatements).isLessThan(singleStatements / 10);
+    }
+
+    private static double rowsPerSecond(long start) {
+        return ROWS / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static List<Product> createProducts(int count, String prefix) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Category category = new Category();
+            category.setName("category-" + (i % 20));
+
+            Product product = new Product();
+            product.setTitle(prefix + " product " + i);
+            product.setPrice(1 + i % 500);
+            product.setDescription("Description of " + prefix + " product " + i);
+            product.setImageUrl("https://example.com/" + prefix + "/" + i + ".jpg");
+            product.setCategory(category);
+            products.add(product);
+        }
+        return products;
+    }
+}
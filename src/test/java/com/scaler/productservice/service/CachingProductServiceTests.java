@@ -0,0 +1,245 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.ProductCacheProperties;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingProductServiceTests {
+
+    /*
+    The cache runs on a clock the test moves forward (no sleeping). Background
+    refreshes are queued and only run when the test says so.
+     */
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private CountingBackend backend;
+    private CachingProductService service;
+
+    @BeforeEach
+    void setUp() {
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.setExpireAfterWrite(Duration.ofMinutes(10));
+        properties.setRefreshAfterWrite(Duration.ofMinutes(1));
+        properties.setNegativeTtl(Duration.ofSeconds(30));
+        properties.setCatalogTtl(Duration.ofSeconds(30));
+        backend = new CountingBackend();
+        backend.put(1L, "Pen");
+        backend.put(2L, "Ink");
+        service = new CachingProductService(backend, properties, refreshes::add, nanos::get);
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromTheCache() throws Exception {
+        service.getSingleProduct(1L);
+        assertThat(service.getSingleProduct(1L).getTitle()).isEqualTo("Pen");
+
+        assertThat(backend.singleCalls.get()).isEqualTo(1);
+        assertThat(service.getProductCacheStats().missCount()).isEqualTo(1);
+        assertThat(service.getProductCacheStats().hitCount()).isEqualTo(1);
+        assertThat(service.getProductCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws Exception {
+        service.getSingleProduct(1L);
+        advance(Duration.ofMinutes(11));
+        service.getSingleProduct(1L);
+
+        assertThat(backend.singleCalls.get()).isEqualTo(2);
+        assertThat(service.getProductCacheStats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void staleEntriesAreServedWhileTheyAreReloaded() throws Exception {
+        service.getSingleProduct(1L);
+        backend.put(1L, "Fountain pen");
+        advance(Duration.ofMinutes(2));
+
+        // the first call after refreshAfterWrite still gets the old product right away ...
+        assertThat(service.getSingleProduct(1L).getTitle()).isEqualTo("Pen");
+        assertThat(backend.singleCalls.get()).isEqualTo(1);
+        // ... and has started the reload in the background
+        runBackgroundTasks();
+        assertThat(backend.singleCalls.get()).isEqualTo(2);
+        assertThat(service.getSingleProduct(1L).getTitle()).isEqualTo("Fountain pen");
+        assertThat(backend.singleCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void missingIdsAreCachedForTheNegativeTtl() {
+        assertThatThrownBy(() -> service.getSingleProduct(9L)).isInstanceOf(ProductDoesNotExistException.class);
+        assertThatThrownBy(() -> service.getSingleProduct(9L)).isInstanceOf(ProductDoesNotExistException.class);
+        assertThat(backend.singleCalls.get()).isEqualTo(1);
+
+        backend.put(9L, "Paper");
+        advance(Duration.ofSeconds(31));
+        assertThat(catchTitle(9L)).isEqualTo("Paper");
+        assertThat(backend.singleCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void everyMissGetsItsOwnStacklessException() {
+        Throwable first = catchMissing(9L);
+        Throwable second = catchMissing(9L);
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(second).hasMessageContaining("9");
+        // the cached miss does not walk the stack
+        assertThat(second.getStackTrace()).isEmpty();
+    }
+
+    @Test
+    void writesInvalidateTheProductAndTheCatalog() throws Exception {
+        service.getSingleProduct(1L);
+        service.getAllProducts();
+
+        Product patch = new Product();
+        patch.setTitle("Fountain pen");
+        service.updateProduct(1L, patch);
+
+        assertThat(service.getSingleProduct(1L).getTitle()).isEqualTo("Fountain pen");
+        assertThat(service.getAllProducts()).extracting(Product::getTitle).contains("Fountain pen");
+        assertThat(backend.singleCalls.get()).isEqualTo(2);
+        assertThat(backend.catalogCalls.get()).isEqualTo(2);
+
+        service.deleteProduct(2L);
+        assertThatThrownBy(() -> service.getSingleProduct(2L)).isInstanceOf(ProductDoesNotExistException.class);
+        assertThat(service.getAllProducts()).hasSize(1);
+    }
+
+    @Test
+    void batchLookupsOnlySendTheMissesToTheBackend() throws Exception {
+        service.getSingleProduct(1L);
+
+        ProductBatch batch = service.getProducts(List.of(1L, 2L, 9L));
+
+        assertThat(batch.getProducts()).extracting(Product::getId).containsExactly(1L, 2L);
+        assertThat(batch.getNotFoundIds()).containsExactly(9L);
+        assertThat(backend.batchIds).containsExactly(List.of(2L, 9L));
+        // and their answers are cached like single lookups
+        service.getSingleProduct(2L);
+        assertThatThrownBy(() -> service.getSingleProduct(9L)).isInstanceOf(ProductDoesNotExistException.class);
+        assertThat(backend.singleCalls.get()).isEqualTo(1);
+    }
+
+    // the refresh, and Caffeine's own maintenance that also runs on the executor
+    private void runBackgroundTasks() {
+        while (!refreshes.isEmpty()) {
+            refreshes.remove(0).run();
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private String catchTitle(Long id) {
+        try {
+            return service.getSingleProduct(id).getTitle();
+        } catch (ProductDoesNotExistException e) {
+            return null;
+        }
+    }
+
+    private Throwable catchMissing(Long id) {
+        try {
+            service.getSingleProduct(id);
+            throw new AssertionError("Product " + id + " was found");
+        } catch (ProductDoesNotExistException e) {
+            return e;
+        }
+    }
+
+    // A backend with a map of products that counts how often it is asked
+    private static class CountingBackend implements ProductService {
+        final Map<Long, Product> products = new HashMap<>();
+        final AtomicInteger singleCalls = new AtomicInteger();
+        final AtomicInteger catalogCalls = new AtomicInteger();
+        final List<List<Long>> batchIds = new ArrayList<>();
+
+        synchronized void put(Long id, String title) {
+            Product product = new Product();
+            product.setId(id);
+            product.setTitle(title);
+            products.put(id, product);
+        }
+
+        @Override
+        public synchronized Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+            singleCalls.incrementAndGet();
+            Product product = products.get(id);
+            if (product == null) {
+                throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+            }
+            return product;
+        }
+
+        @Override
+        public synchronized ProductBatch getProducts(Collection<Long> ids) {
+            batchIds.add(List.copyOf(ids));
+            Map<Long, Product> found = new HashMap<>();
+            Set<Long> notFound = new HashSet<>();
+            for (Long id : ids) {
+                if (products.containsKey(id)) {
+                    found.put(id, products.get(id));
+                } else {
+                    notFound.add(id);
+                }
+            }
+            return ProductBatch.of(ids, found, notFound);
+        }
+
+        @Override
+        public Product addProduct(Product product) {
+            return product;
+        }
+
+        @Override
+        public synchronized List<Product> getAllProducts() {
+            catalogCalls.incrementAndGet();
+            return List.copyOf(products.values());
+        }
+
+        @Override
+        public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+            return null;
+        }
+
+        @Override
+        public synchronized Product updateProduct(Long id, Product product) {
+            put(id, product.getTitle());
+            return products.get(id);
+        }
+
+        @Override
+        public Product replaceProduct(Long id, Product product) {
+            return updateProduct(id, product);
+        }
+
+        @Override
+        public synchronized Product deleteProduct(Long id) {
+            return products.remove(id);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductSortField;
+import com.scaler.productservice.repositories.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CategoryDictionaryTests {
+
+    /*
+    The dictionary only knows committed categories, shares one instance per
+    category with the read paths while writes get copies, and once the
+    categories are known the services never query them again.
+     */
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void categoriesOfARolledBackTransactionAreNotRegistered() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            categoryDictionary.register(category(1_000_001L, "rolled-back"));
+            status.setRollbackOnly();
+        });
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                categoryDictionary.register(category(1_000_002L, "committed")));
+
+        assertThat(categoryDictionary.getByName("rolled-back")).isNull();
+        assertThat(categoryDictionary.getById(1_000_001L)).isNull();
+        assertThat(categoryDictionary.getByName("committed").getId()).isEqualTo(1_000_002L);
+    }
+
+    @Test
+    void readsShareOneInstanceAndWritesGetTheirOwn() throws Exception {
+        Category registered = category(1_000_003L, "kitchen");
+        Category shared = categoryDictionary.register(registered);
+        registered.setName("changed after register");
+
+        assertThat(categoryDictionary.getById(1_000_003L).getName()).isEqualTo("kitchen");
+        assertThat(categoryDictionary.getById(1_000_003L)).isSameAs(shared);
+        assertThat(categoryDictionary.getByName("kitchen")).isSameAs(shared);
+        assertThat(categoryDictionary.intern("kitchen")).isSameAs(shared);
+        assertThat(categoryDictionary.intern("never stored")).isSameAs(categoryDictionary.intern("never stored"));
+
+        Product first = productService.addProduct(product("Kettle", "shared-category"));
+        Product second = productService.addProduct(product("Toaster", "shared-category"));
+        Category stored = categoryDictionary.getByName("shared-category");
+        assertThat(first.getCategory().getId()).isEqualTo(stored.getId());
+        assertThat(first.getCategory()).isNotSameAs(stored);
+        assertThat(second.getCategory()).isNotSameAs(stored);
+        assertThat(productService.getSingleProduct(first.getId()).getCategory()).isSameAs(stored);
+    }
+
+    @Test
+    void readsAndIngestsRunNoCategoryQueriesAfterWarmUp() throws Exception {
+        productRepository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(product("Product " + i, "warm-up-" + i % 4));
+        }
+        Long id = productService.addProducts(products).get(0).getId();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        productService.getSingleProduct(id);
+        productService.getAllProducts();
+        productService.getProductPage(ProductSortField.PRICE, null, 10);
+        productService.getProducts(List.of(id, id + 1));
+        productService.forEachProduct(product -> {
+        });
+        productService.addProduct(product("Another", "warm-up-1"));
+        productService.addProducts(List.of(product("Bulk", "warm-up-2")));
+
+        EntityStatistics categories = statistics.getEntityStatistics(Category.class.getName());
+        assertThat(categories.getLoadCount()).isZero();
+        assertThat(categories.getFetchCount()).isZero();
+        assertThat(statistics.getQueries()).noneMatch(query -> query.contains("Category"));
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private static Product product(String title, String categoryName) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setPrice(1);
+        product.setCategory(category(null, categoryName));
+        return product;
+    }
+}
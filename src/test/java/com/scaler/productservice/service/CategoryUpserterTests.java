@@ -0,0 +1,124 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CategoryUpserterTests {
+
+    /*
+    Ingests that bring the same new category at the same time. Both must
+    succeed and end up with the one stored category of that name.
+     */
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void categoryCreatedByAnotherTransactionMeanwhileIsReused() throws Exception {
+        // another instance inserts the category between our lookup and our insert:
+        // its transaction is still open when the ingest starts, and commits later
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.update("insert into category (id, name, is_deleted) values (?, ?, false)",
+                            999_999L, "race");
+                    inserted.countDown();
+                    await(commit);
+                }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<List<Product>> ingest = CompletableFuture.supplyAsync(
+                () -> productService.addProducts(List.of(product("Pen", "race"))));
+        Thread.sleep(200);
+        commit.countDown();
+        other.get(10, TimeUnit.SECONDS);
+
+        List<Product> saved = ingest.get(10, TimeUnit.SECONDS);
+        assertThat(saved.get(0).getCategory().getId()).isEqualTo(999_999L);
+        assertThat(categoryCount("race")).isEqualTo(1);
+        assertThat(categoryDictionary.getByName("race").getId()).isEqualTo(999_999L);
+    }
+
+    @Test
+    void concurrentIngestsOfNewCategoriesAllSucceed() throws Exception {
+        int threads = 4;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<CompletableFuture<List<Product>>> ingests = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int t = thread;
+            ingests.add(CompletableFuture.supplyAsync(() -> {
+                await(start);
+                List<Product> products = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    products.add(product("Product " + t + "-" + i, "concurrent-" + i % 5));
+                }
+                return productService.addProducts(products);
+            }));
+        }
+
+        for (CompletableFuture<List<Product>> ingest : ingests) {
+            assertThat(ingest.get(30, TimeUnit.SECONDS)).hasSize(20);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(categoryCount("concurrent-" + i)).isEqualTo(1);
+        }
+    }
+
+    private int categoryCount(String name) {
+        return jdbcTemplate.queryForObject("select count(*) from category where name = ?", Integer.class, name);
+    }
+
+    private static Product product(String title, String categoryName) {
+        Category category = new Category();
+        category.setName(categoryName);
+        Product product = new Product();
+        product.setTitle(title);
+        product.setPrice(1);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingProductServiceTests {
+
+    /*
+    CALLERS threads ask for the same id at the same time. The backend blocks
+    until all of them had the chance to arrive, and must still be called only once.
+     */
+
+    private static final int CALLERS = 50;
+
+    private BlockingBackend backend;
+    private CoalescingProductService service;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        backend = new BlockingBackend();
+        service = new CoalescingProductService(backend);
+        pool = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersForOneIdShareOneBackendCall() throws Exception {
+        List<Future<Product>> results = startCallers(7L);
+        releaseBackendWhenCallersArrived();
+
+        for (Future<Product> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS).getId()).isEqualTo(7L);
+        }
+        assertThat(backend.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersShareTheException() throws Exception {
+        backend.missing = true;
+        List<Future<Product>> results = startCallers(8L);
+        releaseBackendWhenCallersArrived();
+
+        for (Future<Product> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(ProductDoesNotExistException.class);
+        }
+        assertThat(backend.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void differentIdsAndLaterCallsAreNotCoalesced() throws Exception {
+        backend.release.countDown();
+        service.getSingleProduct(1L);
+        service.getSingleProduct(2L);
+        service.getSingleProduct(1L);
+        assertThat(backend.calls.get()).isEqualTo(3);
+    }
+
+    private List<Future<Product>> startCallers(Long id) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Product>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return service.getSingleProduct(id);
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private void releaseBackendWhenCallersArrived() throws InterruptedException {
+        // the first caller is inside the backend, give the others time to join it
+        assertThat(backend.entered.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(500);
+        backend.release.countDown();
+    }
+
+    // A backend whose getSingleProduct() blocks until the test releases it
+    private static class BlockingBackend implements ProductService {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean missing;
+
+        @Override
+        public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+            calls.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (missing) {
+                throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+            }
+            Product product = new Product();
+            product.setId(id);
+            return product;
+        }
+
+        @Override
+        public Product addProduct(Product product) {
+            return product;
+        }
+
+        @Override
+        public List<Product> getAllProducts() {
+            return List.of();
+        }
+
+        @Override
+        public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+            return null;
+        }
+
+        @Override
+        public Product updateProduct(Long id, Product product) {
+            return product;
+        }
+
+        @Override
+        public Product replaceProduct(Long id, Product product) {
+            return product;
+        }
+
+        @Override
+        public Product deleteProduct(Long id) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.scaler.productservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scaler.productservice.config.UpstreamClientProperties;
+import com.scaler.productservice.dtos.ProductBatch;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FakeStoreBatchLookupTests {
+
+    /*
+    FakeStoreProductService.getProducts() fans the ids out to workers that each
+    call getSingleProduct(). The upstream call is replaced by one the test
+    controls, so concurrency, failures and the deadline need no HTTP server
+    and no timing luck.
+     */
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopThreads() throws InterruptedException {
+        threads.shutdownNow();
+        threads.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void noMoreThanMaxConcurrencyCallsAreInFlight() {
+        ScriptedUpstream service = new ScriptedUpstream(threads::execute, 3, Duration.ofSeconds(10));
+        service.delayMillis = 20;
+
+        ProductBatch batch = service.getProducts(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 1L));
+
+        assertThat(batch.getProducts()).extracting(Product::getId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L);
+        assertThat(service.maxInFlight.get()).isEqualTo(3);
+        // every id is asked for once, the duplicate too
+        assertThat(service.calls).hasSize(12);
+    }
+
+    @Test
+    void failedCallsEndUpInFailedIdsAndMissingProductsInNotFoundIds() {
+        ScriptedUpstream service = new ScriptedUpstream(threads::execute, 2, Duration.ofSeconds(10));
+        service.failing.add(3L);
+        service.missing.add(4L);
+
+        ProductBatch batch = service.getProducts(List.of(1L, 2L, 3L, 4L, 5L));
+
+        assertThat(batch.getProducts()).extracting(Product::getId).containsExactly(1L, 2L, 5L);
+        assertThat(batch.getNotFoundIds()).containsExactly(4L);
+        assertThat(batch.getFailedIds()).containsExactly(3L);
+    }
+
+    @Test
+    void deadlineAnswersWithoutWaitingForTheSlowCall() throws Exception {
+        ScriptedUpstream service = new ScriptedUpstream(threads::execute, 1, Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        service.blockOn(2L, release);
+
+        ProductBatch batch = service.getProducts(List.of(1L, 2L, 3L));
+
+        // the call for id 2 is still hanging when the batch comes back
+        assertThat(release.getCount()).isEqualTo(1);
+        assertThat(batch.getProducts()).extracting(Product::getId).containsExactly(1L);
+        assertThat(batch.getFailedIds()).containsExactly(2L, 3L);
+
+        release.countDown();
+        threads.shutdown();
+        assertThat(threads.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        // the worker stopped instead of going on with the rest of the batch
+        assertThat(service.calls).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void saturatedExecutorFailsTheBatchInsteadOfHanging() {
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("full");
+        };
+        ScriptedUpstream service = new ScriptedUpstream(rejecting, 4, Duration.ofSeconds(10));
+
+        ProductBatch batch = service.getProducts(List.of(1L, 2L));
+
+        assertThat(batch.getFailedIds()).containsExactly(1L, 2L);
+        assertThat(service.calls).isEmpty();
+    }
+
+    // FakeStoreProductService with getSingleProduct() answered by the test
+    private static class ScriptedUpstream extends FakeStoreProductService {
+        final Set<Long> calls = ConcurrentHashMap.newKeySet();
+        final Set<Long> failing = ConcurrentHashMap.newKeySet();
+        final Set<Long> missing = ConcurrentHashMap.newKeySet();
+        final Map<Long, CountDownLatch> blocked = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile long delayMillis;
+
+        ScriptedUpstream(TaskExecutor executor, int maxConcurrency, Duration deadline) {
+            super(new RestTemplate(), new ObjectMapper(), new FakeStoreProductConverter(new CategoryDictionary()),
+                    executor, properties(maxConcurrency, deadline));
+        }
+
+        void blockOn(Long id, CountDownLatch release) {
+            blocked.put(id, release);
+        }
+
+        @Override
+        public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+            calls.add(id);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                CountDownLatch release = blocked.get(id);
+                if (release != null) {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (failing.contains(id)) {
+                throw new ResourceAccessException("Read timed out");
+            }
+            if (missing.contains(id)) {
+                throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+            }
+            Product product = new Product();
+            product.setId(id);
+            return product;
+        }
+
+        private static UpstreamClientProperties properties(int maxConcurrency, Duration deadline) {
+            UpstreamClientProperties properties = new UpstreamClientProperties();
+            properties.getBatch().setMaxConcurrency(maxConcurrency);
+            properties.getBatch().setDeadline(deadline);
+            return properties;
+        }
+    }
+}
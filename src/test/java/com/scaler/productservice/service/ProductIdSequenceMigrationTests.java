@@ -0,0 +1,47 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.models.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductIdSequenceMigrationTests {
+
+    /*
+    A database from before the upstream import has product_seq at a low value.
+    The test database is H2, which has real sequences.
+     */
+
+    @Autowired
+    private ProductIdSequenceMigration migration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lowSequenceIsRaisedToTheFirstLocalId() {
+        jdbcTemplate.execute("alter sequence product_seq restart with 42");
+
+        migration.migrate();
+
+        assertThat(nextValue()).isGreaterThan(Product.FIRST_LOCAL_ID);
+    }
+
+    @Test
+    void sequenceAboveTheFirstLocalIdIsLeftAlone() {
+        jdbcTemplate.execute("alter sequence product_seq restart with " + (Product.FIRST_LOCAL_ID + 5_000));
+
+        migration.migrate();
+
+        // one value was read by the migration
+        assertThat(nextValue()).isEqualTo(Product.FIRST_LOCAL_ID + 5_000 + 50);
+    }
+
+    private long nextValue() {
+        return jdbcTemplate.queryForObject("select next value for product_seq", Long.class);
+    }
+}
@@ -0,0 +1,112 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.client.UpstreamHttpClientFactory;
+import com.scaler.productservice.config.UpstreamClientProperties;
+import com.scaler.productservice.dtos.FakeStoreProductDto;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.support.FakeStoreStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+class ReactiveVsBlockingConcurrencyTests {
+
+    /*
+    Both paths fetch the same number of products from a stub upstream that
+    takes LATENCY_MILLIS to answer. The blocking path (RestTemplate, as in
+    FakeStoreProductService) can only have as many calls in flight as it has
+    threads. The WebClient path keeps many calls in flight per event-loop thread.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveVsBlockingConcurrencyTests.class);
+
+    private static final int REQUESTS = 200;
+    private static final int BLOCKING_THREADS = 8;
+    private static final long LATENCY_MILLIS = 100;
+
+    private FakeStoreStubServer stub;
+    private UpstreamClientProperties properties;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new FakeStoreStubServer();
+        stub.setLatencyMillis(LATENCY_MILLIS);
+        properties = new UpstreamClientProperties();
+        properties.setMaxConnectionsTotal(REQUESTS);
+        properties.setMaxConnectionsPerRoute(REQUESTS);
+        properties.getBulkhead().setEnabled(false);
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void blockingPathIsLimitedToOneCallPerThread() throws Exception {
+        RestTemplate restTemplate = UpstreamHttpClientFactory.createRestTemplate(new RestTemplateBuilder(), properties);
+        ExecutorService executor = Executors.newFixedThreadPool(BLOCKING_THREADS);
+
+        long start = System.nanoTime();
+        List<Future<FakeStoreProductDto>> futures = new ArrayList<>();
+        for (long id = 1; id <= REQUESTS; id++) {
+            String url = stub.getBaseUrl() + "/products/" + id;
+            futures.add(executor.submit(() -> restTemplate.getForObject(url, FakeStoreProductDto.class)));
+        }
+        for (Future<FakeStoreProductDto> future : futures) {
+            assertThat(future.get()).isNotNull();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        executor.shutdown();
+
+        report("blocking", elapsed, BLOCKING_THREADS);
+        assertThat(stub.getMaxInFlight()).isLessThanOrEqualTo(BLOCKING_THREADS);
+    }
+
+    @Test
+    void reactivePathKeepsManyCallsInFlightPerThread() {
+        WebClient webClient = UpstreamHttpClientFactory.createWebClient(WebClient.builder(), properties, stub.getBaseUrl());
+        ReactiveProductService productService =
+                new WebClientProductService(webClient, new FakeStoreProductConverter(new CategoryDictionary()));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        long start = System.nanoTime();
+        List<Product> products = Flux.range(1, REQUESTS)
+                .flatMap(id -> productService.getSingleProduct((long) id), REQUESTS)
+                .doOnNext(product -> threads.add(Thread.currentThread().getName()))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        report("reactive", elapsed, threads.size());
+        assertThat(products).hasSize(REQUESTS);
+        // many more calls were waiting on the upstream than there were threads to wait on them
+        assertThat(stub.getMaxInFlight()).isGreaterThan(BLOCKING_THREADS * 2);
+        assertThat(stub.getMaxInFlight()).isGreaterThanOrEqualTo(threads.size() * 2);
+    }
+
+    private void report(String path, Duration elapsed, int threads) {
+        log.info(String.format("%s: %d requests in %d ms, max in flight %d on %d thread(s) = %.1f per thread",
+                path, REQUESTS, elapsed.toMillis(), stub.getMaxInFlight(), threads,
+                (double) stub.getMaxInFlight() / threads));
+    }
+}
@@ -0,0 +1,77 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class SoftDeleteTests {
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DeletedProductPurger purger;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void deleteHidesTheProductAndThePurgeRemovesTheRow() throws Exception {
+        Product product = new Product();
+        product.setTitle("soon gone");
+        product.setPrice(5);
+        Long id = productService.addProduct(product).getId();
+
+        productService.deleteProduct(id);
+
+        // every read path filters the deleted row, but it is still there
+        assertThatThrownBy(() -> productService.getSingleProduct(id))
+                .isInstanceOf(ProductDoesNotExistException.class);
+        assertThat(productRepository.findById(id)).isEmpty();
+        assertThat(productService.getProducts(List.of(id)).getNotFoundIds()).containsExactly(id);
+        assertThat(rowExists(id)).isTrue();
+
+        double purgedBefore = meterRegistry.get("product.purge.rows").counter().count();
+        // nothing is old enough with the default retention
+        purger.purge();
+        assertThat(rowExists(id)).isTrue();
+
+        purger.purgeDeletedBefore(new Date(System.currentTimeMillis() + 1000));
+
+        assertThat(rowExists(id)).isFalse();
+        assertThat(purger.getBacklog()).isZero();
+        assertThat(meterRegistry.get("product.purge.rows").counter().count()).isGreaterThan(purgedBefore);
+    }
+
+    private boolean rowExists(Long id) {
+        Number count = transactionTemplate.execute(status -> (Number) entityManager
+                .createNativeQuery("select count(*) from product where id = :id")
+                .setParameter("id", id)
+                .getSingleResult());
+        return count.longValue() == 1;
+    }
+}
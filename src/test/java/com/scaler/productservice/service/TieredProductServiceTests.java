@@ -0,0 +1,130 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.support.FakeStoreStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "productservice.backend.product-service=tieredProductService")
+class TieredProductServiceTests {
+
+    // The stub knows the products 1..CATALOG_SIZE, the startup snapshot copies them
+    private static final int CATALOG_SIZE = 20;
+
+    private static final FakeStoreStubServer stub = startStub();
+
+    @Autowired
+    @Qualifier("tieredProductService")
+    private ProductService tiered;
+
+    @Autowired
+    private SelfProductService store;
+
+    @Autowired
+    private UpstreamSnapshotSync snapshotSync;
+
+    @Autowired
+    private DeletedProductPurger purger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private static FakeStoreStubServer startStub() {
+        try {
+            FakeStoreStubServer server = new FakeStoreStubServer();
+            server.setCatalogSize(CATALOG_SIZE);
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void upstream(DynamicPropertyRegistry registry) {
+        registry.add("productservice.upstream.base-url", stub::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void snapshotAtStartupServesTheCatalogLocally() throws Exception {
+        int requestsBefore = stub.getRequestCount();
+
+        Product product = tiered.getSingleProduct(7L);
+
+        assertThat(product.getTitle()).isEqualTo("Product 7");
+        assertThat(store.getSingleProduct(7L).getId()).isEqualTo(7L);
+        assertThat(stub.getRequestCount()).isEqualTo(requestsBefore);
+    }
+
+    @Test
+    void missIsFetchedFromUpstreamAndKeptUnderItsUpstreamId() throws Exception {
+        // a product that was added upstream after the snapshot
+        stub.setCatalogSize(CATALOG_SIZE + 10);
+        long id = CATALOG_SIZE + 5;
+
+        assertThat(tiered.getSingleProduct(id).getTitle()).isEqualTo("Product " + id);
+
+        assertThat(store.getSingleProduct(id).getId()).isEqualTo(id);
+        int requestsBefore = stub.getRequestCount();
+        tiered.getSingleProduct(id);
+        assertThat(stub.getRequestCount()).isEqualTo(requestsBefore);
+    }
+
+    @Test
+    void localEditsAndDeletesWinOverTheSnapshot() throws Exception {
+        Product patch = new Product();
+        patch.setTitle("edited here");
+        tiered.updateProduct(3L, patch);
+        tiered.deleteProduct(4L);
+
+        snapshotSync.snapshot();
+
+        assertThat(tiered.getSingleProduct(3L).getTitle()).isEqualTo("edited here");
+        assertThatThrownBy(() -> tiered.getSingleProduct(4L))
+                .isInstanceOf(ProductDoesNotExistException.class);
+    }
+
+    @Test
+    void deletedProductStaysDeletedAfterItsRowIsPurged() throws Exception {
+        tiered.deleteProduct(5L);
+        // a retention that has passed for every deleted row
+        purger.purgeDeletedBefore(new Date(System.currentTimeMillis() + 60_000));
+        assertThat(productRepository.findStoredOrDeletedIds(List.of(5L))).containsExactly(5L);
+
+        assertThatThrownBy(() -> tiered.getSingleProduct(5L))
+                .isInstanceOf(ProductDoesNotExistException.class);
+        snapshotSync.snapshot();
+        assertThatThrownBy(() -> tiered.getSingleProduct(5L))
+                .isInstanceOf(ProductDoesNotExistException.class);
+        assertThatThrownBy(() -> store.getSingleProduct(5L))
+                .isInstanceOf(ProductDoesNotExistException.class);
+    }
+
+    @Test
+    void productsCreatedHereGetIdsAboveTheUpstreamRange() {
+        Product product = new Product();
+        product.setTitle("ours");
+        product.setPrice(1);
+
+        assertThat(tiered.addProduct(product).getId()).isGreaterThanOrEqualTo(1_000_000L);
+    }
+}
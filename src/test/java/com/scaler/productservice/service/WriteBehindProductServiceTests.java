@@ -0,0 +1,356 @@
+package com.scaler.productservice.service;
+
+import com.scaler.productservice.config.WriteBehindProperties;
+import com.scaler.productservice.dtos.ProductPage;
+import com.scaler.productservice.dtos.ProductWrite;
+import com.scaler.productservice.exceptions.ProductDoesNotExistException;
+import com.scaler.productservice.exceptions.WriteQueueFullException;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.pagination.ProductCursor;
+import com.scaler.productservice.pagination.ProductSortField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteBehindProductServiceTests {
+
+    /*
+    The flush interval is an hour, so nothing is flushed unless the test asks
+    for it (batch size reached or drain()). That keeps the tests deterministic.
+     */
+
+    private InMemoryBackend backend;
+    private WriteBehindProperties properties;
+    private WriteBehindProductService service;
+
+    @BeforeEach
+    void setUp() {
+        backend = new InMemoryBackend();
+        for (long id = 1; id <= 5; id++) {
+            backend.store(id, "product " + id, 10);
+        }
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setOfferTimeout(Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.failFlushes = false;
+        service.drain();
+    }
+
+    @Test
+    void writesToOneProductAreCoalescedIntoOneFlushedWrite() throws Exception {
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(1L, patch("first", 0));
+        service.updateProduct(1L, patch(null, 42));
+        service.updateProduct(1L, patch("last", 0));
+        assertThat(service.getQueuedCount()).isEqualTo(1);
+        assertThat(backend.flushes).isEmpty();
+
+        service.drain();
+
+        assertThat(backend.flushes).hasSize(1);
+        assertThat(backend.flushes.get(0)).hasSize(1);
+        Product stored = backend.products.get(1L);
+        assertThat(stored.getTitle()).isEqualTo("last");
+        assertThat(stored.getPrice()).isEqualTo(42);
+    }
+
+    @Test
+    void readsSeePendingWrites() throws Exception {
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(2L, patch("changed", 0));
+
+        assertThat(backend.products.get(2L).getTitle()).isEqualTo("product 2");
+        assertThat(service.getSingleProduct(2L).getTitle()).isEqualTo("changed");
+        assertThat(service.getSingleProduct(2L).getVersion()).isNull();
+        assertThat(service.getAllProducts()).extracting(Product::getTitle).contains("changed");
+        assertThat(service.getProductVersion(2L)).isNull();
+    }
+
+    @Test
+    void fullBatchIsFlushedInTheBackground() throws Exception {
+        properties.setBatchSize(3);
+        service = new WriteBehindProductService(backend, properties);
+        for (long id = 1; id <= 3; id++) {
+            service.updateProduct(id, patch("batched", 0));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (service.getQueuedCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(backend.flushes).hasSize(1);
+        assertThat(backend.flushes.get(0)).hasSize(3);
+    }
+
+    @Test
+    void fullQueueRejectsWritesToNewProducts() throws Exception {
+        properties.setCapacity(2);
+        properties.setBatchSize(100);
+        backend.failFlushes = true;
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(1L, patch("a", 0));
+        service.updateProduct(2L, patch("b", 0));
+        // a product that is already waiting needs no room
+        service.updateProduct(2L, patch("c", 0));
+
+        assertThatThrownBy(() -> service.updateProduct(3L, patch("d", 0)))
+                .isInstanceOf(WriteQueueFullException.class);
+    }
+
+    @Test
+    void failedFlushPutsTheWritesBackAndBacksOff() throws Exception {
+        properties.setBatchSize(2);
+        properties.setFlushInterval(Duration.ofMillis(10));
+        properties.setMaxRetryBackoff(Duration.ofHours(1));
+        backend.failFlushes = true;
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(1L, patch("a", 0));
+        service.updateProduct(2L, patch("b", 0));
+
+        awaitTrue(() -> backend.attempts.get() >= 3);
+        // the writes are still queued and still read
+        assertThat(service.getQueuedCount()).isEqualTo(2);
+        assertThat(service.getSingleProduct(1L).getTitle()).isEqualTo("a");
+        // a newer write to a requeued product is merged on top of it
+        service.updateProduct(1L, patch(null, 7));
+
+        // the gaps double: 10, 20, 40, 80 ms... instead of a flush every 10 ms
+        int attempts = backend.attempts.get();
+        Thread.sleep(300);
+        assertThat(backend.attempts.get() - attempts).isLessThan(10);
+
+        backend.failFlushes = false;
+        service.drain();
+        assertThat(backend.products.get(1L).getTitle()).isEqualTo("a");
+        assertThat(backend.products.get(1L).getPrice()).isEqualTo(7);
+        assertThat(backend.products.get(2L).getTitle()).isEqualTo("b");
+        assertThat(service.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void writerWaitingForRoomGetsInOnceAFlushSucceeds() throws Exception {
+        properties.setCapacity(2);
+        properties.setBatchSize(100);
+        properties.setFlushInterval(Duration.ofMillis(10));
+        properties.setMaxRetryBackoff(Duration.ofMillis(20));
+        properties.setOfferTimeout(Duration.ofSeconds(10));
+        backend.failFlushes = true;
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(1L, patch("a", 0));
+        service.updateProduct(2L, patch("b", 0));
+
+        CompletableFuture<Product> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.updateProduct(3L, patch("c", 0));
+            } catch (ProductDoesNotExistException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitTrue(() -> backend.attempts.get() >= 3);
+        assertThat(waiting).isNotDone();
+
+        backend.failFlushes = false;
+        assertThat(waiting.get(10, TimeUnit.SECONDS).getTitle()).isEqualTo("c");
+    }
+
+    @Test
+    void writeThatCannotBeStoredIsDroppedAndTheOthersAreStored() throws Exception {
+        backend.poisonIds.add(3L);
+        service = new WriteBehindProductService(backend, properties);
+        for (long id = 1; id <= 5; id++) {
+            service.updateProduct(id, patch("changed " + id, 0));
+        }
+
+        service.drain();
+
+        assertThat(service.getQueuedCount()).isZero();
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+        assertThat(backend.products.get(3L).getTitle()).isEqualTo("product 3");
+        for (long id : List.of(1L, 2L, 4L, 5L)) {
+            assertThat(backend.products.get(id).getTitle()).isEqualTo("changed " + id);
+        }
+    }
+
+    @Test
+    void readThatOverlapsAFlushReadsAgain() throws Exception {
+        service = new WriteBehindProductService(backend, properties);
+        service.updateProduct(1L, patch("flushed meanwhile", 0));
+
+        // the read gets the stored row, then the flush commits before the read
+        // looks at the queue: the write is neither in the row nor in the queue
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        backend.holdNextRead(readStarted, flushed);
+        CompletableFuture<Product> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.getSingleProduct(1L);
+            } catch (ProductDoesNotExistException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(readStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        service.drain();
+        assertThat(service.getQueuedCount()).isZero();
+        flushed.countDown();
+
+        assertThat(read.get(10, TimeUnit.SECONDS).getTitle()).isEqualTo("flushed meanwhile");
+        assertThat(backend.reads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void unknownProductIsRejectedBeforeItIsQueued() {
+        service = new WriteBehindProductService(backend, properties);
+        assertThatThrownBy(() -> service.updateProduct(99L, patch("x", 0)))
+                .isInstanceOf(ProductDoesNotExistException.class);
+        assertThat(service.getQueuedCount()).isZero();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static Product patch(String title, double price) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setPrice(price);
+        return product;
+    }
+
+    // Stores products in a map and remembers every batch it was asked to write.
+    // Reads hand out copies, like rows loaded from a database
+    private static class InMemoryBackend implements ProductService {
+        final Map<Long, Product> products = new ConcurrentHashMap<>();
+        final List<List<ProductWrite>> flushes = new CopyOnWriteArrayList<>();
+        final Set<Long> poisonIds = ConcurrentHashMap.newKeySet();
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        volatile boolean failFlushes;
+        private volatile CountDownLatch readStarted;
+        private volatile CountDownLatch releaseRead;
+
+        // The next read copies the row, then waits for release before returning it
+        void holdNextRead(CountDownLatch started, CountDownLatch release) {
+            readStarted = started;
+            releaseRead = release;
+        }
+
+        void store(Long id, String title, double price) {
+            Product product = new Product();
+            product.setId(id);
+            product.setTitle(title);
+            product.setPrice(price);
+            product.setVersion(0L);
+            products.put(id, product);
+        }
+
+        @Override
+        public List<Long> applyWrites(List<ProductWrite> writes) {
+            attempts.incrementAndGet();
+            if (failFlushes) {
+                throw new DataAccessResourceFailureException("database is down");
+            }
+            // checked before anything is written, like a rolled back transaction
+            if (writes.stream().anyMatch(write -> poisonIds.contains(write.getId()))) {
+                throw new DataIntegrityViolationException("value too long for column title");
+            }
+            flushes.add(List.copyOf(writes));
+            return ProductService.super.applyWrites(writes);
+        }
+
+        @Override
+        public Product getSingleProduct(Long id) throws ProductDoesNotExistException {
+            reads.incrementAndGet();
+            Product stored = stored(id);
+            Product product = new Product();
+            product.setId(stored.getId());
+            product.setTitle(stored.getTitle());
+            product.setPrice(stored.getPrice());
+            product.setVersion(stored.getVersion());
+            CountDownLatch release = releaseRead;
+            if (release != null) {
+                releaseRead = null;
+                readStarted.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return product;
+        }
+
+        private Product stored(Long id) throws ProductDoesNotExistException {
+            Product product = products.get(id);
+            if (product == null) {
+                throw new ProductDoesNotExistException("Product with id " + id + " does not exist");
+            }
+            return product;
+        }
+
+        @Override
+        public Product addProduct(Product product) {
+            return product;
+        }
+
+        @Override
+        public List<Product> getAllProducts() {
+            return new ArrayList<>(products.values());
+        }
+
+        @Override
+        public ProductPage getProductPage(ProductSortField sortField, ProductCursor cursor, int size) {
+            return null;
+        }
+
+        @Override
+        public Product updateProduct(Long id, Product product) throws ProductDoesNotExistException {
+            Product existing = stored(id);
+            if (product.getTitle() != null) {
+                existing.setTitle(product.getTitle());
+            }
+            if (product.getPrice() != 0) {
+                existing.setPrice(product.getPrice());
+            }
+            return existing;
+        }
+
+        @Override
+        public Product replaceProduct(Long id, Product product) throws ProductDoesNotExistException {
+            Product existing = stored(id);
+            existing.setTitle(product.getTitle());
+            existing.setPrice(product.getPrice());
+            return existing;
+        }
+
+        @Override
+        public Product deleteProduct(Long id) {
+            return products.remove(id);
+        }
+    }
+}
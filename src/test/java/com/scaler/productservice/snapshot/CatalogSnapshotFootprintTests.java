@@ -0,0 +1,100 @@
+package com.scaler.productservice.snapshot;
+
+import com.scaler.productservice.models.Category;
+import com.scaler.productservice.models.Product;
+import com.scaler.productservice.repositories.ProductRepository;
+import com.scaler.productservice.service.ProductService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+class CatalogSnapshotFootprintTests {
+
+    /*
+    Compares the heap it takes to answer a price/category filter from Product
+    entities (what a findAll() and a filter in Java would do) with the
+    columnar snapshot, and logs both per product.
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotFootprintTests.class);
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    @Qualifier("selfProductService")
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CatalogSnapshotService snapshotService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void snapshotTakesAFractionOfTheEntityFootprint() {
+        productService.addProducts(createProducts());
+        // warm up both paths
+        loadEntities();
+        snapshotService.rebuild();
+
+        long before = allocatedBytes();
+        int entities = loadEntities();
+        double entityBytesPerProduct = (double) (allocatedBytes() - before) / entities;
+
+        before = allocatedBytes();
+        CatalogSnapshot snapshot = snapshotService.rebuild();
+        double buildBytesPerProduct = (double) (allocatedBytes() - before) / snapshot.size();
+
+        log.info(String.format("entities: %.0f bytes allocated per product, snapshot: %.0f bytes allocated per "
+                        + "product to build, %.1f bytes per product kept",
+                entityBytesPerProduct, buildBytesPerProduct, snapshot.getBytesPerProduct()));
+
+        assertThat(snapshot.size()).isGreaterThanOrEqualTo(ROWS);
+        assertThat(snapshot.getBytesPerProduct()).isLessThan(entityBytesPerProduct / 10);
+        assertThat(buildBytesPerProduct).isLessThan(entityBytesPerProduct);
+    }
+
+    private int loadEntities() {
+        Integer loaded = transactionTemplate.execute(status -> productRepository.findAll().size());
+        return loaded;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static List<Product> createProducts() {
+        List<Product> products = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Category category = new Category();
+            category.setName("footprint-" + (i % 20));
+
+            Product product = new Product();
+            product.setTitle("Footprint product " + i);
+            product.setPrice(1 + i % 500);
+            product.setDescription("Description of footprint product " + i);
+            product.setImageUrl("https://example.com/footprint/" + i + ".jpg");
+            product.setCategory(category);
+            products.add(product);
+        }
+        return products;
+    }
+}
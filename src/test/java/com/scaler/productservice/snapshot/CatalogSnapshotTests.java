@@ -0,0 +1,58 @@
+package com.scaler.productservice.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTests {
+
+    private final CatalogSnapshot snapshot = new CatalogSnapshot.Builder()
+            .add(1, 30, "Books")
+            .add(2, 10, "Toys")
+            .add(3, 20, "Books")
+            .add(4, 20, "Books")
+            .add(5, 50, null)
+            .add(6, 5, "Books")
+            .build();
+
+    @Test
+    void filtersByCategoryAndPriceRangeInPriceOrder() {
+        CatalogSnapshot.Scan scan = snapshot.scan("books", 10.0, 30.0, null, 0, 10, Integer.MAX_VALUE);
+
+        assertThat(scan.getIds()).containsExactly(3, 4, 1);
+        assertThat(scan.getPrices()).containsExactly(20, 20, 30);
+        assertThat(scan.getTotalMatches()).isEqualTo(3);
+        assertThat(scan.isHasMore()).isFalse();
+
+        assertThat(snapshot.scan(null, null, null, null, 0, 10, Integer.MAX_VALUE).getIds())
+                .containsExactly(6, 2, 3, 4, 1, 5);
+        assertThat(snapshot.scan("garden", null, null, null, 0, 10, Integer.MAX_VALUE).getTotalMatches()).isZero();
+    }
+
+    @Test
+    void pagesContinueAfterTheCursorEvenOnEqualPrices() {
+        CatalogSnapshot.Scan first = snapshot.scan("Books", null, null, null, 0, 2, Integer.MAX_VALUE);
+        assertThat(first.getIds()).containsExactly(6, 3);
+        assertThat(first.isHasMore()).isTrue();
+
+        CatalogSnapshot.Scan second = snapshot.scan("Books", null, null, 3L, 20, 2, Integer.MAX_VALUE);
+        assertThat(second.getIds()).containsExactly(4, 1);
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getTotalMatches()).isEqualTo(4);
+    }
+
+    @Test
+    void parallelCountMatchesTheSequentialOne() {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+        for (int id = 1; id <= 200_000; id++) {
+            builder.add(id, id % 1000, "category-" + id % 7);
+        }
+        CatalogSnapshot large = builder.build();
+
+        long sequential = large.scan("category-3", 100.0, 499.0, null, 0, 1, Integer.MAX_VALUE).getTotalMatches();
+        long parallel = large.scan("category-3", 100.0, 499.0, null, 0, 1, 1).getTotalMatches();
+
+        assertThat(parallel).isEqualTo(sequential).isGreaterThan(0);
+        assertThat(large.getBytesPerProduct()).isLessThan(25);
+    }
+}
@@ -0,0 +1,160 @@
+package com.scaler.productservice.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FakeStoreStubServer implements AutoCloseable {
+
+    /*
+    A tiny stand-in for https://fakestoreapi.com that runs on localhost, so the
+    upstream client can be tested without network access.
+    Latency and failures can be injected while a test is running:
+    - latencyMillis: every request sleeps this long before answering
+    - failureStatus: when not 0, every request is answered with this status
+    - errorRate: this fraction (0..1) of the requests is answered with 500
+    - catalogSize: products 1..catalogSize exist (1000 by default). Like the real
+      API, an unknown id is answered with 200 and an empty body
+    It can also run on its own for manual load tests of the whole app:
+        java -cp <test class path> com.scaler.productservice.support.FakeStoreStubServer 9090 [latencyMillis] [catalogSize]
+    and start the app with productservice.upstream.base-url=http://localhost:9090
+     */
+
+    private static final Logger log = LoggerFactory.getLogger(FakeStoreStubServer.class);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile int failureStatus;
+    private volatile double errorRate;
+    private volatile int catalogSize = 1000;
+    private volatile byte[] catalogJson = catalogJson(1000);
+
+    public FakeStoreStubServer() throws IOException {
+        this(0);
+    }
+
+    public FakeStoreStubServer(int port) throws IOException {
+        // a large accept backlog, so bursts of new connections are not dropped by the OS
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/products", this::handle);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setFailureStatus(int failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setCatalogSize(int catalogSize) {
+        this.catalogJson = catalogJson(catalogSize);
+        this.catalogSize = catalogSize;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    // so one stub can measure several runs one after the other
+    public void resetMaxInFlight() {
+        maxInFlight.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (failureStatus != 0) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] bytes;
+            if (path.equals("/products")) {
+                bytes = catalogJson;
+            } else {
+                long id = Long.parseLong(path.substring("/products/".length()));
+                bytes = id >= 1 && id <= catalogSize ? productJson(id).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    public static String productJson(long id) {
+        return "{\"id\":" + id + ",\"title\":\"Product " + id + "\",\"price\":" + (10.0 + id)
+                + ",\"category\":\"electronics\",\"description\":\"Description " + id
+                + "\",\"image\":\"https://example.com/" + id + ".jpg\"}";
+    }
+
+    private static byte[] catalogJson(int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (long id = 1; id <= size; id++) {
+            if (id > 1) {
+                json.append(',');
+            }
+            json.append(productJson(id));
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        FakeStoreStubServer stub = new FakeStoreStubServer(args.length > 0 ? Integer.parseInt(args[0]) : 9090);
+        stub.setLatencyMillis(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        stub.setCatalogSize(args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        log.info("FakeStore stub listening on {}", stub.getBaseUrl());
+    }
+
+    // Stops the server and its request threads. Requests still being answered
+    // (e.g. sleeping through latencyMillis) are interrupted
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package com.scaler.productservice.support;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+public class LoadGenerator {
+
+    /*
+    Sends HTTP requests at a fixed rate (an open workload, like real users who
+    do not wait for each other) and records the latency of every request.
+    Latency is measured from the moment a request was SCHEDULED to start, not
+    from when it was actually sent. If the app stalls, requests that should
+    have gone out during the stall count the stall as their latency, instead
+    of quietly waiting for the app ("coordinated omission"), which would make
+    p99 and p999 look far better than what users see.
+     */
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // requestFor(i) gives the URI of the i-th request, so tests can mix endpoints and ids
+    public LoadReport run(String name, IntFunction<URI> requestFor, int requestsPerSecond, Duration duration)
+            throws InterruptedException {
+        int total = (int) (requestsPerSecond * duration.toMillis() / 1000);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long[] latencies = new long[total];
+        AtomicInteger errors = new AtomicInteger();
+        List<CompletableFuture<?>> calls = new ArrayList<>(total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(requestFor.apply(i))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            calls.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[index] = System.nanoTime() - intended;
+                        if (failure != null || response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    }));
+        }
+        try {
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // failed requests are already counted as errors
+        }
+        long elapsed = System.nanoTime() - start;
+        return new LoadReport(name, requestsPerSecond, latencies, errors.get(), elapsed);
+    }
+}
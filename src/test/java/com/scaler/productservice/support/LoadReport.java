@@ -0,0 +1,74 @@
+package com.scaler.productservice.support;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class LoadReport {
+
+    // What one LoadGenerator run measured: throughput, error count and latency percentiles
+
+    private final String name;
+    private final int targetRate;
+    private final long[] sortedLatencies;
+    private final int errors;
+    private final long elapsedNanos;
+
+    LoadReport(String name, int targetRate, long[] latencies, int errors, long elapsedNanos) {
+        this.name = name;
+        this.targetRate = targetRate;
+        this.sortedLatencies = latencies.clone();
+        Arrays.sort(this.sortedLatencies);
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getRequests() {
+        return sortedLatencies.length;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public double getThroughput() {
+        return sortedLatencies.length / (elapsedNanos / 1e9);
+    }
+
+    // e.g. percentile(99.9) for p999, in milliseconds
+    public double percentile(double percent) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s: %d requests at %d/s target, %.1f/s achieved, %d errors%n",
+                name, getRequests(), targetRate, getThroughput(), errors));
+        report.append(String.format("  latency ms: p50=%.1f p90=%.1f p99=%.1f p999=%.1f max=%.1f%n",
+                percentile(50), percentile(90), percentile(99), percentile(99.9), percentile(100)));
+        report.append(histogram());
+        return report.toString();
+    }
+
+    // Counts per latency bucket, the bucket limits double from 1ms up
+    private String histogram() {
+        StringBuilder histogram = new StringBuilder();
+        int from = 0;
+        for (long limitMillis = 1; from < sortedLatencies.length; limitMillis *= 2) {
+            long limitNanos = TimeUnit.MILLISECONDS.toNanos(limitMillis);
+            int to = from;
+            while (to < sortedLatencies.length && sortedLatencies[to] <= limitNanos) {
+                to++;
+            }
+            if (to > from) {
+                histogram.append(String.format("  <= %6d ms: %6d%n", limitMillis, to - from));
+            }
+            from = to;
+        }
+        return histogram.toString();
+    }
+}